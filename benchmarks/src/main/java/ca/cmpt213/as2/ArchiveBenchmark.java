@@ -0,0 +1,195 @@
+package ca.cmpt213.as2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Benchmark of reading a cohort straight from a single file: processDirectory maps the extracted .json files,
+ * processZip and processTarGz read the same files from a zip and a tar.gz without extracting them, and
+ * processNdjson reads them as the lines of an NDJSON dump.
+ * The *Parallel benchmarks parse the entries on worker threads while the file is read.
+ *
+ * Run from the project root after mvn package:
+ *     java -jar benchmarks/target/benchmarks.jar ArchiveBenchmark
+ * @author Bei Bei Li
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArchiveBenchmark {
+
+    /**
+     * A folder of InputTestDataSets, or synthetic-<teams>x<team size>x<comment length>
+     */
+    @Param({"4-BiggerTest", "synthetic-1000x4x80"})
+    public String dataset;
+
+    private BenchmarkInputs inputs;
+    private FeedbackPipeline pipeline;
+    private FeedbackPipeline parallelPipeline;
+    private Path zipFile;
+    private Path tarGzFile;
+    private Path ndjsonFile;
+
+    /**
+     * Method to write the dataset as a zip, as a tar.gz and as an NDJSON file
+     * @throws IOException If the dataset or a file cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        inputs = BenchmarkInputs.resolve(dataset);
+        pipeline = new FeedbackPipeline(1);
+        parallelPipeline = new FeedbackPipeline(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+        List<File> jsonFiles = new JsonFileWalker(1).findAll(inputs.getRoot());
+        zipFile = Files.createTempFile("peer-feedback-", ".zip");
+        tarGzFile = Files.createTempFile("peer-feedback-", ".tar.gz");
+        writeZip(jsonFiles, zipFile);
+        writeTarGz(jsonFiles, tarGzFile);
+        ndjsonFile = Files.createTempFile("peer-feedback-", ".ndjson");
+        writeNdjson(jsonFiles, ndjsonFile);
+    }
+
+    /**
+     * Method to remove the archives, the NDJSON file and a synthetic dataset
+     * @throws IOException If a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(zipFile);
+        Files.deleteIfExists(tarGzFile);
+        Files.deleteIfExists(ndjsonFile);
+        inputs.delete();
+    }
+
+    @Benchmark
+    public ProcessingResult processDirectory() {
+        return pipeline.process(inputs.getRoot());
+    }
+
+    @Benchmark
+    public ProcessingResult processZip() {
+        return pipeline.process(zipFile);
+    }
+
+    @Benchmark
+    public ProcessingResult processTarGz() {
+        return pipeline.process(tarGzFile);
+    }
+
+    @Benchmark
+    public ProcessingResult processNdjson() {
+        return pipeline.process(ndjsonFile);
+    }
+
+    @Benchmark
+    public ProcessingResult processDirectoryParallel() {
+        return parallelPipeline.process(inputs.getRoot());
+    }
+
+    @Benchmark
+    public ProcessingResult processTarGzParallel() {
+        return parallelPipeline.process(tarGzFile);
+    }
+
+    @Benchmark
+    public ProcessingResult processNdjsonParallel() {
+        return parallelPipeline.process(ndjsonFile);
+    }
+
+    //helper function to name a file in an archive after its path under the dataset
+    private String entryName(File jsonFile) {
+        return inputs.getRoot().relativize(jsonFile.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    //helper function to write the files to a zip in search order
+    private void writeZip(List<File> jsonFiles, Path archive) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(archive)))) {
+            for (File eachFile : jsonFiles) {
+                zip.putNextEntry(new ZipEntry(entryName(eachFile)));
+                zip.write(Files.readAllBytes(eachFile.toPath()));
+                zip.closeEntry();
+            }
+        }
+    }
+
+    //helper function to write the files to a ustar tar.gz in search order; the dataset names are short
+    private void writeTarGz(List<File> jsonFiles, Path archive) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(archive)))) {
+            for (File eachFile : jsonFiles) {
+                byte[] content = Files.readAllBytes(eachFile.toPath());
+                out.write(tarHeader(entryName(eachFile), content.length));
+                out.write(content);
+                out.write(new byte[(512 - content.length % 512) % 512]);
+            }
+            out.write(new byte[1024]);
+        }
+    }
+
+    //helper function to write one file per line in search order; line breaks inside a file are JSON whitespace
+    private static void writeNdjson(List<File> jsonFiles, Path ndjson) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(ndjson))) {
+            for (File eachFile : jsonFiles) {
+                byte[] content = Files.readAllBytes(eachFile.toPath());
+                for (int index = 0; index < content.length; index++) {
+                    if (content[index] == '\n' || content[index] == '\r') {
+                        content[index] = ' ';
+                    }
+                }
+                out.write(content);
+                out.write('\n');
+            }
+        }
+    }
+
+    //helper function to build the header block of a regular file
+    private static byte[] tarHeader(String name, long size) {
+        byte[] header = new byte[512];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, 100));
+        putOctal(header, 100, 8, 0644);
+        putOctal(header, 124, 12, size);
+        header[156] = '0';
+        System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+
+        long checksum = 0;
+        for (int index = 0; index < header.length; index++) {
+            checksum += index >= 148 && index < 156 ? ' ' : header[index] & 0xFF;
+        }
+        putOctal(header, 148, 8, checksum);
+        return header;
+    }
+
+    //helper function to write a NUL terminated octal number into a header field
+    private static void putOctal(byte[] header, int offset, int length, long value) {
+        String octal = String.format("%0" + (length - 1) + "o", value);
+        System.arraycopy(octal.getBytes(StandardCharsets.US_ASCII), 0, header, offset, length - 1);
+    }
+}
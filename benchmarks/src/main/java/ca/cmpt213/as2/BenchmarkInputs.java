@@ -0,0 +1,90 @@
+package ca.cmpt213.as2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A class that resolves the benchmark datasets: the folders shipped in InputTestDataSets
+ * (e.g. "4-BiggerTest") or a synthetic cohort written to a temporary folder (e.g. "synthetic-100x4x80").
+ * @author Bei Bei Li
+ */
+public class BenchmarkInputs {
+
+    /**
+     * System property to point the benchmarks at the InputTestDataSets folder;
+     * by default it is looked up in the working directory and its parent
+     */
+    public static final String INPUTS_PROPERTY = "inputs.dir";
+
+    private static final String SHIPPED_INPUTS = "InputTestDataSets";
+
+    private final Path root;
+    private final boolean isTemporary;
+
+    private BenchmarkInputs(Path root, boolean isTemporary) {
+        this.root = root;
+        this.isTemporary = isTemporary;
+    }
+
+    /**
+     * Method to resolve a dataset, writing it to a temporary folder if it is synthetic
+     * @param dataset The name of a folder in InputTestDataSets, or synthetic-<teams>x<team size>x<comment length>
+     * @return The BenchmarkInputs; call delete() when done
+     * @throws IOException If the synthetic cohort cannot be written
+     */
+    public static BenchmarkInputs resolve(String dataset) throws IOException {
+        if (dataset.startsWith("synthetic-")) {
+            Path temporary = Files.createTempDirectory("peer-feedback-");
+            SyntheticCohort.fromSpec(dataset).writeTree(temporary);
+            return new BenchmarkInputs(temporary, true);
+        }
+        return new BenchmarkInputs(shippedInputs().resolve(dataset), false);
+    }
+
+    //helper function to find the InputTestDataSets folder
+    private static Path shippedInputs() {
+        String configured = System.getProperty(INPUTS_PROPERTY);
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        Path here = Paths.get(SHIPPED_INPUTS);
+        if (Files.isDirectory(here)) {
+            return here;
+        }
+        return Paths.get("..", SHIPPED_INPUTS);
+    }
+
+    /**
+     * Method to retrieve the folder of the dataset
+     * @return The folder that contains the .json files
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Method to retrieve the folder of the dataset as a path string, the way the processor takes it
+     * @return The folder path
+     */
+    public String getRootPath() {
+        return root.toString() + File.separator;
+    }
+
+    /**
+     * Method to delete the dataset if it was written to a temporary folder
+     * @throws IOException If a file cannot be deleted
+     */
+    public void delete() throws IOException {
+        if (!isTemporary) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(root)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
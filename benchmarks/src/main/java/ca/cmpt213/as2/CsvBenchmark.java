@@ -0,0 +1,168 @@
+package ca.cmpt213.as2;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the csv output in rows/sec: CsvFeedbackWriter against the previous printf("%.1f") based
+ * printing, both writing a synthetic cohort to a buffered Writer that discards the characters.
+ * The "rows" secondary result is the rows/sec figure.
+ * writerWithJson writes the csv and group_feedback.json from one pass over the teams through a MultiFeedbackSink;
+ * its rows/sec counts the csv rows only, so the drop from writer is the cost of the json.
+ *
+ * Run from the project root after mvn package:
+ *     java -jar benchmarks/target/benchmarks.jar CsvBenchmark
+ * @author Bei Bei Li
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvBenchmark {
+
+    /**
+     * The number of synthetic copies of 4-BiggerTest
+     */
+    @Param({"10", "100", "1000"})
+    public int scale;
+
+    private List<StudentGroup> teams;
+    private long rowsPerCohort;
+
+    /**
+     * The number of rows written, reported by JMH as rows/sec
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RowCounter {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    /**
+     * Method to generate and group the cohort
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        TeamGrouper grouper = new TeamGrouper();
+        for (StudentEvaluation eachEva : SyntheticCohort.biggerTest(scale).generate()) {
+            grouper.add(eachEva);
+        }
+        teams = grouper.getTeams();
+        rowsPerCohort = countRows(teams);
+    }
+
+    @Benchmark
+    public List<StudentGroup> writer(RowCounter counter) throws IOException {
+        writeWithWriter(teams);
+        counter.rows += rowsPerCohort;
+        return teams;
+    }
+
+    @Benchmark
+    public List<StudentGroup> writerWithJson(RowCounter counter) throws IOException {
+        try (MultiFeedbackSink sinks = new MultiFeedbackSink(Arrays.asList(
+                new CsvFeedbackWriter(new BufferedWriter(Writer.nullWriter())),
+                new JsonFeedbackWriter(new BufferedWriter(Writer.nullWriter()))))) {
+            new ProcessingResult(teams, new ArrayList<>(), null, 1).writeTo(sinks);
+        }
+        counter.rows += rowsPerCohort;
+        return teams;
+    }
+
+    @Benchmark
+    public List<StudentGroup> printf(RowCounter counter) {
+        writeWithPrintf(teams);
+        counter.rows += rowsPerCohort;
+        return teams;
+    }
+
+    //helper function to count the csv rows of the teams: header, one per group, m * m + m per team, blank lines
+    private static long countRows(List<StudentGroup> teams) {
+        long rows = 1;
+        for (StudentGroup eachTeam : teams) {
+            long size = eachTeam.getGroupSize();
+            rows += 2 + size * size + size;
+        }
+        return rows;
+    }
+
+    //helper function writing the teams with CsvFeedbackWriter
+    private static void writeWithWriter(List<StudentGroup> teams) throws IOException {
+        try (CsvFeedbackWriter csvWriter = new CsvFeedbackWriter(new BufferedWriter(Writer.nullWriter()))) {
+            csvWriter.writeHeader();
+            for (int groupIndex = 0; groupIndex < teams.size(); groupIndex++) {
+                csvWriter.writeGroup(groupIndex + 1, teams.get(groupIndex));
+            }
+        }
+    }
+
+    //helper function reproducing the previous printCSV and printGroup
+    private static void writeWithPrintf(List<StudentGroup> teams) {
+        PrintWriter printer = new PrintWriter(new BufferedWriter(Writer.nullWriter()));
+        printer.println(CsvFeedbackWriter.HEADER);
+        for (int groupIndex = 0; groupIndex < teams.size(); groupIndex++) {
+            printer.println("Group " + (groupIndex + 1));
+            List<StudentEvaluation> evaluations = teams.get(groupIndex).getEvaluations();
+            for (StudentEvaluation evaA : evaluations) {
+                String targetStudent = evaA.getStudentEmail();
+                Double feedbackScore;
+                Double studentTotal = 0d;
+                for (StudentEvaluation evaBCD : evaluations) {
+                    if (evaBCD.getStudentEmail() == targetStudent) {
+                        continue;
+                    }
+                    feedbackScore = evaBCD.findFeedbackById(targetStudent).getContribution().getScore();
+                    studentTotal += feedbackScore;
+                    String feedbackComment = changeQuote(evaBCD.findFeedbackById(targetStudent).getContribution().getComment());
+                    printer.printf(",%s,%s,%.1f,%s,,%n", evaBCD.getStudentEmail(), targetStudent, feedbackScore, feedbackComment);
+                }
+                feedbackScore = evaA.getGroup().get(0).getContribution().getScore();
+                String feedbackComment = changeQuote(evaA.getGroup().get(0).getContribution().getComment());
+                printer.printf(",%s,%s,%.1f,%s%n", "-->", targetStudent, feedbackScore, feedbackComment);
+                String confComment = changeQuote(evaA.getConfidentialComments());
+                int numberOfStudentsExcludingSelf = evaluations.size() - 1;
+                if (numberOfStudentsExcludingSelf == 0) {
+                    printer.printf(",-->,%s,avg NaN /0,,,%s%n", targetStudent, confComment);
+                } else {
+                    double scoreAverage = studentTotal / numberOfStudentsExcludingSelf;
+                    printer.printf(",-->,%s,avg %.1f /%d,,,%s%n", targetStudent, scoreAverage, numberOfStudentsExcludingSelf, confComment);
+                }
+            }
+            printer.println();
+        }
+        printer.close();
+    }
+
+    //the previous two pass comment escaping
+    private static String changeQuote(String changeString) {
+        String result = changeString.replace("\\n", "%n");
+        return "\"" + result.replace("\"", "\'") + "\"";
+    }
+}
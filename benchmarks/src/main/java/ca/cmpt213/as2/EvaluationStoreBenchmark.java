@@ -0,0 +1,110 @@
+package ca.cmpt213.as2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of what the columnar EvaluationStore costs once the evaluations are in memory: copying mapped
+ * evaluations into the store, and validating and printing teams whose evaluations read from the store against
+ * teams that hold the mapped objects. The store saves heap, and builds feedbacks and decodes comments each time
+ * they are read instead.
+ *
+ * Run from the project root after mvn package:
+ *     java -jar benchmarks/target/benchmarks.jar EvaluationStoreBenchmark -prof gc
+ * @author Bei Bei Li
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluationStoreBenchmark {
+
+    @Param({"synthetic-1000x4x80", "synthetic-100x16x80", "synthetic-1000x4x2000"})
+    public String cohort;
+
+    private List<StudentEvaluation> evaluations;
+    private List<StudentGroup> objectTeams;
+    private List<StudentGroup> storedTeams;
+
+    /**
+     * Method to generate the cohort and group it twice, once as mapped and once through a store
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        evaluations = SyntheticCohort.fromSpec(cohort).generate();
+        FeedbackPipeline pipeline = new FeedbackPipeline(1);
+        objectTeams = pipeline.groupStudents(evaluations, new ArrayList<>());
+        storedTeams = pipeline.groupStudents(copyIntoStore(), new ArrayList<>());
+    }
+
+    @Benchmark
+    public List<StudentEvaluation> copyIntoStore() {
+        EvaluationStore store = new EvaluationStore();
+        List<StudentEvaluation> stored = new ArrayList<>(evaluations.size());
+        for (StudentEvaluation eachEva : evaluations) {
+            stored.add(store.add(eachEva));
+        }
+        store.trimToSize();
+        return stored;
+    }
+
+    @Benchmark
+    public int validateObjects() {
+        return validate(objectTeams);
+    }
+
+    @Benchmark
+    public int validateStored() {
+        return validate(storedTeams);
+    }
+
+    @Benchmark
+    public List<StudentGroup> printObjects() throws IOException {
+        return print(objectTeams);
+    }
+
+    @Benchmark
+    public List<StudentGroup> printStored() throws IOException {
+        return print(storedTeams);
+    }
+
+    //helper function to check every team
+    private static int validate(List<StudentGroup> teams) {
+        TeamValidator validator = new TeamValidator();
+        int problems = 0;
+        for (StudentGroup eachTeam : teams) {
+            problems += validator.validateTeam(eachTeam).size();
+        }
+        if (problems != 0) {
+            throw new IllegalStateException("synthetic teams should be valid");
+        }
+        return problems;
+    }
+
+    //helper function to print every team to a writer that discards the csv
+    private static List<StudentGroup> print(List<StudentGroup> teams) throws IOException {
+        try (CsvFeedbackWriter csvWriter = new CsvFeedbackWriter(new BufferedWriter(Writer.nullWriter()))) {
+            new ProcessingResult(teams, new ArrayList<>(), null, 1).writeCsv(csvWriter);
+        }
+        return teams;
+    }
+}
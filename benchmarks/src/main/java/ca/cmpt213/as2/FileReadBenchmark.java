@@ -0,0 +1,100 @@
+package ca.cmpt213.as2;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of reading and mapping the .json files from disk: JsonFileMapper.mapFile, which reads a whole file
+ * into a reusable buffer and decodes the UTF-8 bytes itself, against the InputStreamReader and BufferedReader
+ * chain it replaced, which allocates its byte and char buffers again for every file.
+ * Both use the same streaming adapter, so the difference is the reading alone.
+ *
+ * Run from the project root after mvn package, with the gc profiler for the allocation rate:
+ *     java -jar benchmarks/target/benchmarks.jar FileReadBenchmark -prof gc
+ * @author Bei Bei Li
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileReadBenchmark {
+
+    @Param({"4-BiggerTest", "synthetic-1000x4x80", "synthetic-1000x4x2000"})
+    public String dataset;
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(StudentEvaluation.class, new StudentEvaluationAdapter())
+            .create();
+
+    private BenchmarkInputs inputs;
+    private List<File> jsonFiles;
+    private JsonFileMapper mapper;
+
+    /**
+     * Method to write the dataset and find its .json files
+     * @throws IOException If a synthetic dataset cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        inputs = BenchmarkInputs.resolve(dataset);
+        jsonFiles = new FeedbackPipeline(1).searchJson(inputs.getRoot(), new ArrayList<>());
+        mapper = new JsonFileMapper(1);
+    }
+
+    /**
+     * Method to remove a synthetic dataset
+     * @throws IOException If a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        inputs.delete();
+    }
+
+    @Benchmark
+    public int bulkRead() throws JsonFileMapper.MappingException {
+        int feedbacks = 0;
+        for (File eachFile : jsonFiles) {
+            feedbacks += mapper.mapFile(eachFile).getGroupSize();
+        }
+        return feedbacks;
+    }
+
+    @Benchmark
+    public int streamReaderChain() throws IOException {
+        int feedbacks = 0;
+        for (File eachFile : jsonFiles) {
+            try (JsonReader reader = new JsonReader(new BufferedReader(
+                    new InputStreamReader(new FileInputStream(eachFile), StandardCharsets.UTF_8)))) {
+                StudentEvaluation evaluation = gson.fromJson(reader, StudentEvaluation.class);
+                feedbacks += evaluation.getGroupSize();
+            }
+        }
+        return feedbacks;
+    }
+}
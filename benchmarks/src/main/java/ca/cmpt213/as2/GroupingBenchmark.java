@@ -0,0 +1,117 @@
+package ca.cmpt213.as2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the grouping stage: the hash-indexed TeamGrouper against the previous linear team scan
+ * that re-sorted the team after every insert. Inputs are InputTestDataSets/4-BiggerTest (scale 0) and
+ * synthetic cohorts of the same shape, 1x to 1000x its size.
+ *
+ * Run from the project root after mvn package:
+ *     java -jar benchmarks/target/benchmarks.jar GroupingBenchmark
+ * @author Bei Bei Li
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupingBenchmark {
+
+    /**
+     * 0 for the shipped 4-BiggerTest, otherwise the number of synthetic copies of it
+     */
+    @Param({"0", "1", "10", "100", "1000"})
+    public int scale;
+
+    private List<StudentEvaluation> evaluations;
+
+    /**
+     * Method to load or generate the cohort
+     * @throws IOException Never for the shipped dataset, it is only read
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (scale == 0) {
+            BenchmarkInputs inputs = BenchmarkInputs.resolve("4-BiggerTest");
+            List<File> jsonFiles = new FeedbackPipeline(1).searchJson(inputs.getRoot(), new ArrayList<>());
+            evaluations = new JsonFileMapper(1).mapFiles(jsonFiles);
+        } else {
+            evaluations = SyntheticCohort.biggerTest(scale).generate();
+        }
+    }
+
+    @Benchmark
+    public int hashed() {
+        return groupHashed(evaluations);
+    }
+
+    @Benchmark
+    public int linear() {
+        return groupLinear(evaluations);
+    }
+
+    //helper function to group with TeamGrouper; returns the number of teams
+    private static int groupHashed(List<StudentEvaluation> evaluations) {
+        TeamGrouper grouper = new TeamGrouper();
+        for (StudentEvaluation eachEva : evaluations) {
+            grouper.add(eachEva);
+        }
+        return grouper.getTeams().size();
+    }
+
+    //helper function reproducing the previous grouping: linear scan over the teams for every evaluation,
+    //linear scan over the team for duplicates and a full sort after every insert; returns the number of teams
+    private static int groupLinear(List<StudentEvaluation> evaluations) {
+        List<String> teamNames = new ArrayList<>();
+        List<List<StudentEvaluation>> teams = new ArrayList<>();
+        StudentGroup byEmail = new StudentGroup();
+
+        for (StudentEvaluation eachEva : evaluations) {
+            String teamName = eachEva.getGroupName();
+            List<StudentEvaluation> team = null;
+            for (int teamIndex = 0; teamIndex < teamNames.size(); teamIndex++) {
+                if (teamNames.get(teamIndex).compareTo(teamName) == 0) {
+                    team = teams.get(teamIndex);
+                    break;
+                }
+            }
+            if (team == null) {
+                team = new ArrayList<>();
+                teamNames.add(teamName);
+                teams.add(team);
+            }
+            boolean isExist = false;
+            for (StudentEvaluation eachStudent : team) {
+                if (eachEva.getStudentEmail().compareTo(eachStudent.getStudentEmail()) == 0) {
+                    isExist = true;
+                    break;
+                }
+            }
+            if (isExist == false) {
+                team.add(eachEva);
+                Collections.sort(team, byEmail);
+            }
+        }
+        return teams.size();
+    }
+}
@@ -0,0 +1,219 @@
+package ca.cmpt213.as2;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The class that holds a load test of the command line processor at sizes JMH is not suited to: for each size
+ * it writes a synthetic cohort (see SyntheticCohort), runs PeerFeedbackProcessor on it in a JVM of its own a few
+ * times, and records for each run the wall time, the files per second and the peak resident set size of the
+ * processor. Peak RSS is read from VmHWM in /proc/<pid>/status while the process runs, so it is only recorded
+ * on Linux.
+ * The results are printed as a table and appended to loadtest-results.csv in the work directory.
+ *
+ * Run from the project root after mvn package (a million files take a few GB of disk):
+ *     java -cp benchmarks/target/benchmarks.jar ca.cmpt213.as2.LoadTestRunner --sizes=10000,100000,1000000
+ *     java -cp benchmarks/target/benchmarks.jar ca.cmpt213.as2.LoadTestRunner --sizes=10000 -- --threads=4
+ * Flags after -- are given to the processor.
+ * @author Bei Bei Li
+ */
+public class LoadTestRunner {
+
+    private static final long RSS_POLL_MILLIS = 20;
+
+    private final List<Integer> sizes = new ArrayList<>(Arrays.asList(10_000, 100_000, 1_000_000));
+    private int teamSize = 4;
+    private int commentLength = 80;
+    private int runs = 3;
+    private boolean isUnicode = false;
+    private boolean isKeepingInputs = false;
+    private String maxHeap = null;
+    private Path workDirectory = Paths.get(System.getProperty("java.io.tmpdir"), "peer-feedback-loadtest");
+    private final List<String> processorFlags = new ArrayList<>();
+
+    /**
+     * Main function to run the load test
+     * @param args Optional flags: --sizes=N,N,... (files per cohort), --team-size=N, --comment-length=N, --runs=N,
+     *             --unicode, --keep (keep the generated cohorts), --xmx=SIZE (heap of the processor),
+     *             --work=DIR, then -- followed by flags for the processor
+     * @throws IOException If a cohort cannot be written or the processor cannot be started
+     * @throws InterruptedException If interrupted while waiting for the processor
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadTestRunner runner = new LoadTestRunner();
+        runner.parse(args);
+        runner.run();
+    }
+
+    //helper function to read the flags
+    private void parse(String[] args) {
+        for (int argIndex = 0; argIndex < args.length; argIndex++) {
+            String flag = args[argIndex];
+            String value = flag.substring(flag.indexOf('=') + 1);
+            if (flag.equals("--")) {
+                processorFlags.addAll(Arrays.asList(args).subList(argIndex + 1, args.length));
+                return;
+            } else if (flag.startsWith("--sizes=")) {
+                sizes.clear();
+                for (String eachSize : value.split(",")) {
+                    sizes.add(Integer.parseInt(eachSize.trim()));
+                }
+            } else if (flag.startsWith("--team-size=")) {
+                teamSize = Integer.parseInt(value);
+            } else if (flag.startsWith("--comment-length=")) {
+                commentLength = Integer.parseInt(value);
+            } else if (flag.startsWith("--runs=")) {
+                runs = Integer.parseInt(value);
+            } else if (flag.equals("--unicode")) {
+                isUnicode = true;
+            } else if (flag.equals("--keep")) {
+                isKeepingInputs = true;
+            } else if (flag.startsWith("--xmx=")) {
+                maxHeap = value;
+            } else if (flag.startsWith("--work=")) {
+                workDirectory = Paths.get(value);
+            } else {
+                throw new IllegalArgumentException("unknown option " + flag);
+            }
+        }
+    }
+
+    //helper function to run every size and report the results
+    private void run() throws IOException, InterruptedException {
+        Files.createDirectories(workDirectory);
+        Path resultsFile = workDirectory.resolve("loadtest-results.csv");
+        boolean isNewResults = !Files.exists(resultsFile);
+
+        System.out.printf(Locale.ROOT, "%10s %4s %10s %12s %12s %6s%n",
+                "files", "run", "wall ms", "files/s", "peak RSS MB", "exit");
+        try (Writer results = Files.newBufferedWriter(resultsFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (isNewResults) {
+                results.write("files,team_size,comment_length,unicode,flags,run,wall_ms,files_per_second," +
+                        "peak_rss_kb,exit_code\n");
+            }
+
+            for (int eachSize : sizes) {
+                Path input = workDirectory.resolve("cohort-" + eachSize + "x" + teamSize + "x" + commentLength +
+                        (isUnicode ? "-unicode" : ""));
+                int files = prepareCohort(input, eachSize);
+
+                Path output = workDirectory.resolve("output-" + eachSize);
+                Files.createDirectories(output);
+                for (int eachRun = 1; eachRun <= runs; eachRun++) {
+                    RunResult result = runProcessor(input, output);
+                    double filesPerSecond = files / (result.wallNanos / 1e9);
+                    System.out.printf(Locale.ROOT, "%10d %4d %10.1f %12.0f %12s %6d%n", files, eachRun,
+                            result.wallNanos / 1e6, filesPerSecond,
+                            result.peakRssKb < 0 ? "n/a" : String.format(Locale.ROOT, "%.1f", result.peakRssKb / 1024d),
+                            result.exitCode);
+                    results.write(String.format(Locale.ROOT, "%d,%d,%d,%b,\"%s\",%d,%.1f,%.0f,%d,%d%n", files,
+                            teamSize, commentLength, isUnicode, String.join(" ", processorFlags), eachRun,
+                            result.wallNanos / 1e6, filesPerSecond, result.peakRssKb, result.exitCode));
+                    results.flush();
+                }
+
+                if (!isKeepingInputs) {
+                    deleteDirectory(input);
+                }
+                deleteDirectory(output);
+            }
+        }
+        System.out.println("results appended to " + resultsFile);
+    }
+
+    //helper function to write the cohort of the given number of files, unless it is already there
+    private int prepareCohort(Path input, int files) throws IOException {
+        int teams = Math.max(1, files / teamSize);
+        SyntheticCohort cohort = SyntheticCohort.uniform(teams, teamSize, commentLength);
+        if (isUnicode) {
+            cohort.withUnicode();
+        }
+        if (!Files.isDirectory(input)) {
+            long startNanos = System.nanoTime();
+            cohort.writeTree(input);
+            System.out.printf(Locale.ROOT, "wrote %d files to %s in %.1f s%n", cohort.getEvaluationCount(), input,
+                    (System.nanoTime() - startNanos) / 1e9);
+        }
+        return cohort.getEvaluationCount();
+    }
+
+    //helper function to run the processor once and watch its memory until it exits
+    private RunResult runProcessor(Path input, Path output) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (maxHeap != null) {
+            command.add("-Xmx" + maxHeap);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PeerFeedbackProcessor.class.getName());
+        command.add(input.toString());
+        command.add(output.toString() + "/");
+        command.addAll(processorFlags);
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+        long startNanos = System.nanoTime();
+        Process processor = builder.start();
+        Path status = Paths.get("/proc", Long.toString(processor.pid()), "status");
+        long peakRssKb = -1;
+        while (processor.isAlive()) {
+            peakRssKb = Math.max(peakRssKb, readPeakRssKb(status));
+            processor.waitFor(RSS_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        long wallNanos = System.nanoTime() - startNanos;
+        return new RunResult(wallNanos, peakRssKb, processor.exitValue());
+    }
+
+    //helper function to read the VmHWM line of /proc/<pid>/status; -1 if it cannot be read
+    private static long readPeakRssKb(Path status) {
+        try {
+            for (String eachLine : Files.readAllLines(status, StandardCharsets.UTF_8)) {
+                if (eachLine.startsWith("VmHWM:")) {
+                    return Long.parseLong(eachLine.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | RuntimeException gone) {
+            //not on Linux, or the process just exited
+        }
+        return -1;
+    }
+
+    //helper function to delete a generated directory
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    //what one run of the processor took
+    private static class RunResult {
+        private final long wallNanos;
+        private final long peakRssKb;
+        private final int exitCode;
+
+        RunResult(long wallNanos, long peakRssKb, int exitCode) {
+            this.wallNanos = wallNanos;
+            this.peakRssKb = peakRssKb;
+            this.exitCode = exitCode;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ca.cmpt213.as2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the team checks and lookups on large teams: the single pass TeamValidator and the m * m
+ * indexed feedback lookups done by printGroup, against the previous linear searches that copied the emails
+ * into a new list on every call (validateLinear also adds up the score sums in a pass of its own).
+ *
+ * Run with the gc profiler from the project root after mvn package, to also get the bytes allocated per team:
+ *     java -jar benchmarks/target/benchmarks.jar LookupBenchmark -prof gc
+ * @author Bei Bei Li
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    @Param({"8", "32", "128", "256"})
+    public int teamSize;
+
+    private StudentGroup team;
+    private PrintWriter nowhere;
+
+    /**
+     * Method to build one valid team of teamSize students
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        team = new StudentGroup("t1");
+        for (StudentEvaluation eachEva : SyntheticCohort.uniform(1, teamSize, 80).generate()) {
+            team.addStudentEva(eachEva);
+        }
+        team.sortEvaluations();
+        nowhere = new PrintWriter(Writer.nullWriter());
+    }
+
+    @Benchmark
+    public StudentGroup validateSinglePass() {
+        validateSinglePass(team);
+        return team;
+    }
+
+    @Benchmark
+    public StudentGroup validateLinear() {
+        validateLinear(team);
+        return team;
+    }
+
+    @Benchmark
+    public StudentGroup lookupIndexed() {
+        lookupIndexed(team);
+        return team;
+    }
+
+    @Benchmark
+    public StudentGroup lookupLinear() {
+        lookupLinear(team);
+        return team;
+    }
+
+    @Benchmark
+    public StudentGroup printGroup() {
+        team.printGroup(nowhere);
+        return team;
+    }
+
+    //helper function for the single pass validation
+    private static void validateSinglePass(StudentGroup team) {
+        if (!new TeamValidator().validateTeam(team).isEmpty()) {
+            throw new IllegalStateException("synthetic team should be valid");
+        }
+    }
+
+    //helper function reproducing the previous validation: a new list of emails per isInTargetStudents call,
+    //and a scan over the team for every mentioned member
+    private static void validateLinear(StudentGroup team) {
+        List<StudentEvaluation> evaluations = team.getEvaluations();
+        for (StudentEvaluation eachEva : evaluations) {
+            for (StudentEvaluation comparedEva : evaluations) {
+                List<String> emails = new ArrayList<>();
+                for (Group eachFeedback : comparedEva.getGroup()) {
+                    emails.add(eachFeedback.getSfuEmail());
+                }
+                boolean isIn = false;
+                for (String others : emails) {
+                    if (eachEva.getStudentEmail().compareTo(others) == 0) {
+                        isIn = true;
+                    }
+                }
+                if (!isIn) {
+                    throw new IllegalStateException("synthetic team should be valid");
+                }
+            }
+        }
+        for (StudentEvaluation eachEva : evaluations) {
+            List<String> teamMembers = new ArrayList<>();
+            for (int other = 1; other < eachEva.getGroupSize(); other++) {
+                teamMembers.add(eachEva.getGroup().get(other).getSfuEmail());
+            }
+            for (String checkMember : teamMembers) {
+                boolean found = false;
+                for (StudentEvaluation otherEva : evaluations) {
+                    if (otherEva.getStudentEmail().compareTo(eachEva.getStudentEmail()) != 0
+                            && otherEva.getStudentEmail().compareTo(checkMember) == 0) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    throw new IllegalStateException("synthetic team should be valid");
+                }
+            }
+        }
+        for (StudentEvaluation eachEva : evaluations) {
+            double scoreSum = 0d;
+            for (Group eachFeedback : eachEva.getGroup()) {
+                scoreSum += eachFeedback.getContribution().getScore();
+            }
+            if (!(Math.abs(scoreSum - 20d * eachEva.getGroupSize()) < 0.1)) {
+                throw new IllegalStateException("synthetic team should be valid");
+            }
+        }
+    }
+
+    //helper function for the m * m indexed lookups printGroup does
+    private static void lookupIndexed(StudentGroup team) {
+        double total = 0;
+        for (StudentEvaluation target : team.getEvaluations()) {
+            for (StudentEvaluation source : team.getEvaluations()) {
+                total += source.findFeedbackById(target.getStudentEmail()).getContribution().getScore();
+            }
+        }
+        checkTotal(team, total);
+    }
+
+    //helper function reproducing the previous linear findFeedbackById, called twice per row like printGroup did
+    private static void lookupLinear(StudentGroup team) {
+        double total = 0;
+        for (StudentEvaluation target : team.getEvaluations()) {
+            for (StudentEvaluation source : team.getEvaluations()) {
+                Group first = null;
+                Group second = null;
+                for (Group eachFeedback : source.getGroup()) {
+                    if (eachFeedback.getSfuEmail().compareTo(target.getStudentEmail()) == 0) {
+                        first = eachFeedback;
+                    }
+                }
+                for (Group eachFeedback : source.getGroup()) {
+                    if (eachFeedback.getSfuEmail().compareTo(target.getStudentEmail()) == 0) {
+                        second = eachFeedback;
+                    }
+                }
+                total += first.getContribution().getScore() + 0 * second.getContribution().getScore();
+            }
+        }
+        checkTotal(team, total);
+    }
+
+    //helper function so the lookups cannot be optimized away
+    private static void checkTotal(StudentGroup team, double total) {
+        double expected = 20d * team.getGroupSize() * team.getGroupSize();
+        if (Math.abs(total - expected) > 1) {
+            throw new IllegalStateException("unexpected score total " + total);
+        }
+    }
+}
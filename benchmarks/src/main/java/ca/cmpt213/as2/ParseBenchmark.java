@@ -0,0 +1,135 @@
+package ca.cmpt213.as2;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of mapping evaluations in evaluations/sec: the streaming StudentEvaluationAdapter against Gson's
+ * reflective mapping followed by the required field checks checkMapJson used to do. streamingAdapterInterned
+ * is the adapter with a SymbolTable, as JsonFileMapper uses it, to show what interning costs. Documents are parsed from
+ * memory so the file system does not hide the difference. The "evaluations" secondary result is the rate.
+ *
+ * Run from the project root after mvn package:
+ *     java -jar benchmarks/target/benchmarks.jar ParseBenchmark
+ * @author Bei Bei Li
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"synthetic-2500x4x80", "synthetic-500x8x80", "synthetic-2500x4x1000"})
+    public String dataset;
+
+    private final Gson reflective = new Gson();
+
+    private final Gson streaming = new GsonBuilder()
+            .registerTypeAdapter(StudentEvaluation.class, new StudentEvaluationAdapter())
+            .create();
+
+    private List<String> documents;
+
+    private Gson interning;
+
+    /**
+     * The number of evaluations mapped, reported by JMH as evaluations/sec
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class EvaluationCounter {
+        public long evaluations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            evaluations = 0;
+        }
+    }
+
+    /**
+     * Method to generate the .json documents of the cohort
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        documents = SyntheticCohort.fromSpec(dataset).generateJson();
+    }
+
+    /**
+     * Method to start every iteration with an empty symbol table, as every run of the processor does
+     */
+    @Setup(Level.Iteration)
+    public void resetSymbols() {
+        interning = new GsonBuilder()
+                .registerTypeAdapter(StudentEvaluation.class, new StudentEvaluationAdapter(new SymbolTable()))
+                .create();
+    }
+
+    @Benchmark
+    public int streamingAdapter(EvaluationCounter counter) {
+        int feedbacks = 0;
+        for (String eachDocument : documents) {
+            feedbacks += streaming.fromJson(new StringReader(eachDocument), StudentEvaluation.class).getGroupSize();
+        }
+        counter.evaluations += documents.size();
+        return feedbacks;
+    }
+
+    @Benchmark
+    public int streamingAdapterInterned(EvaluationCounter counter) {
+        int feedbacks = 0;
+        for (String eachDocument : documents) {
+            feedbacks += interning.fromJson(new StringReader(eachDocument), StudentEvaluation.class).getGroupSize();
+        }
+        counter.evaluations += documents.size();
+        return feedbacks;
+    }
+
+    @Benchmark
+    public int reflectiveWithChecks(EvaluationCounter counter) {
+        int feedbacks = 0;
+        for (String eachDocument : documents) {
+            StudentEvaluation evaluation = reflective.fromJson(new StringReader(eachDocument), StudentEvaluation.class);
+            checkRequiredFields(evaluation);
+            feedbacks += evaluation.getGroupSize();
+        }
+        counter.evaluations += documents.size();
+        return feedbacks;
+    }
+
+    //helper function reproducing the separate pass checkMapJson made over every evaluation
+    private static void checkRequiredFields(StudentEvaluation evaluation) {
+        boolean isMissing = evaluation.getGroup() == null || evaluation.getConfidentialComments() == null;
+        if (!isMissing) {
+            for (Group eachGroup : evaluation.getGroup()) {
+                if (eachGroup.getName() == null || eachGroup.getSfuEmail() == null
+                        || eachGroup.getContribution() == null
+                        || eachGroup.getContribution().getScore() < 0
+                        || eachGroup.getContribution().getComment() == null) {
+                    isMissing = true;
+                }
+            }
+        }
+        if (isMissing) {
+            throw new IllegalStateException("synthetic evaluation should be complete");
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package ca.cmpt213.as2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of each stage of FeedbackPipeline on its own: searching for the .json files,
+ * mapping them, grouping the students, validating the teams and printing the csv.
+ * The *Parallel benchmarks time the --threads mode: searching and mapping overlap, and teams are validated
+ * and rendered on the worker threads.
+ * processWarm times a whole run in a JVM that already processed the cohort, the way a service reuses it.
+ * processStreaming times the --stream mode, where reading, parsing, grouping and printing overlap; it is
+ * compared with processAndPrintCsv, the same work one stage after the other.
+ * preScan times the --prescan check of the whole cohort, to be compared with processWarm.
+ * processSpilling times the --spill mode, where the cohort goes through run files on disk, to be compared with
+ * processAndPrintCsv.
+ * Each stage gets the output of the previous stages, prepared once per trial.
+ *
+ * Run from the project root after mvn package:
+ *     java -jar benchmarks/target/benchmarks.jar PipelineStageBenchmark
+ *     java -jar benchmarks/target/benchmarks.jar PipelineStageBenchmark -p dataset=synthetic-5000x4x80
+ * @author Bei Bei Li
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineStageBenchmark {
+
+    /**
+     * A folder of InputTestDataSets, or synthetic-<teams>x<team size>x<comment length>
+     */
+    @Param({"4-BiggerTest", "synthetic-100x4x80", "synthetic-1000x4x80", "synthetic-100x16x80", "synthetic-100x4x2000"})
+    public String dataset;
+
+    private BenchmarkInputs inputs;
+    private FeedbackPipeline pipeline;
+    private FeedbackPipeline parallelPipeline;
+    private StreamingFeedbackPipeline streamingPipeline;
+    private SpillingFeedbackPipeline spillingPipeline;
+    private List<File> jsonFiles;
+    private List<StudentEvaluation> evaluations;
+    private List<StudentGroup> teams;
+
+    /**
+     * Method to prepare the input of every stage by running the stages once
+     * @throws IOException If a synthetic dataset cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        inputs = BenchmarkInputs.resolve(dataset);
+        pipeline = new FeedbackPipeline(1);
+        parallelPipeline = new FeedbackPipeline(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        streamingPipeline = new StreamingFeedbackPipeline(1);
+        spillingPipeline = new SpillingFeedbackPipeline(64, 1);
+        jsonFiles = pipeline.searchJson(inputs.getRoot(), new ArrayList<>());
+        evaluations = pipeline.mapJson(jsonFiles, new ArrayList<>());
+        teams = pipeline.groupStudents(evaluations, new ArrayList<>());
+    }
+
+    /**
+     * Method to remove a synthetic dataset
+     * @throws IOException If a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        inputs.delete();
+    }
+
+    @Benchmark
+    public List<File> searchJson() {
+        return pipeline.searchJson(inputs.getRoot(), new ArrayList<>());
+    }
+
+    @Benchmark
+    public List<StudentEvaluation> mapJson() {
+        return pipeline.mapJson(jsonFiles, new ArrayList<>());
+    }
+
+    @Benchmark
+    public List<StudentEvaluation> searchAndMapJsonParallel() {
+        return parallelPipeline.searchAndMapJson(inputs.getRoot(), new ArrayList<>());
+    }
+
+    @Benchmark
+    public List<StudentGroup> groupStudents() {
+        return pipeline.groupStudents(evaluations, new ArrayList<>());
+    }
+
+    @Benchmark
+    public List<StudentGroup> validateTeams() {
+        pipeline.validateTeams(teams, new ArrayList<>());
+        return teams;
+    }
+
+    @Benchmark
+    public List<StudentGroup> printCsv() throws IOException {
+        try (CsvFeedbackWriter csvWriter = new CsvFeedbackWriter(new BufferedWriter(Writer.nullWriter()))) {
+            new ProcessingResult(teams, new ArrayList<>(), null, 1).writeCsv(csvWriter);
+        }
+        return teams;
+    }
+
+    @Benchmark
+    public List<StudentGroup> validateTeamsParallel() {
+        parallelPipeline.validateTeams(teams, new ArrayList<>());
+        return teams;
+    }
+
+    @Benchmark
+    public List<StudentGroup> printCsvParallel() throws IOException {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        try (CsvFeedbackWriter csvWriter = new CsvFeedbackWriter(new BufferedWriter(Writer.nullWriter()))) {
+            new ProcessingResult(teams, new ArrayList<>(), null, threads).writeCsv(csvWriter);
+        }
+        return teams;
+    }
+
+    @Benchmark
+    public ProcessingResult processWarm() {
+        return pipeline.process(inputs.getRoot());
+    }
+
+    @Benchmark
+    public List<Diagnostic> preScan() {
+        return pipeline.preScan(inputs.getRoot());
+    }
+
+    @Benchmark
+    public ProcessingResult processAndPrintCsv() throws IOException {
+        ProcessingResult result = pipeline.process(inputs.getRoot());
+        try (CsvFeedbackWriter csvWriter = new CsvFeedbackWriter(new BufferedWriter(Writer.nullWriter()))) {
+            result.writeCsv(csvWriter);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Diagnostic> processStreaming() throws IOException {
+        try (CsvFeedbackWriter csvWriter = new CsvFeedbackWriter(new BufferedWriter(Writer.nullWriter()))) {
+            return streamingPipeline.process(inputs.getRoot(), csvWriter);
+        }
+    }
+
+    @Benchmark
+    public List<Diagnostic> processSpilling() throws IOException {
+        try (CsvFeedbackWriter csvWriter = new CsvFeedbackWriter(new BufferedWriter(Writer.nullWriter()))) {
+            return spillingPipeline.process(inputs.getRoot(), csvWriter);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package ca.cmpt213.as2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of starting a run from a binary snapshot instead of the .json files: processJson searches, maps,
+ * groups and validates the cohort, processSnapshot loads the same teams from a snapshot and validates them.
+ * readSnapshot and writeSnapshot time the snapshot on its own.
+ *
+ * Run from the project root after mvn package:
+ *     java -jar benchmarks/target/benchmarks.jar SnapshotBenchmark
+ * @author Bei Bei Li
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    /**
+     * A folder of InputTestDataSets, or synthetic-<teams>x<team size>x<comment length>
+     */
+    @Param({"4-BiggerTest", "synthetic-1000x4x80", "synthetic-100x4x2000"})
+    public String dataset;
+
+    private BenchmarkInputs inputs;
+    private FeedbackPipeline pipeline;
+    private List<StudentGroup> teams;
+    private Path snapshotFile;
+    private Path scratchFile;
+
+    /**
+     * Method to process the dataset once and save its teams to a snapshot
+     * @throws IOException If the dataset or the snapshot cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        inputs = BenchmarkInputs.resolve(dataset);
+        pipeline = new FeedbackPipeline(1);
+        teams = pipeline.process(inputs.getRoot()).getTeams();
+        snapshotFile = Files.createTempFile("peer-feedback-", ".snapshot");
+        scratchFile = Files.createTempFile("peer-feedback-", ".snapshot");
+        FeedbackSnapshot.write(teams, snapshotFile);
+    }
+
+    /**
+     * Method to remove the snapshots and a synthetic dataset
+     * @throws IOException If a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+        Files.deleteIfExists(scratchFile);
+        inputs.delete();
+    }
+
+    @Benchmark
+    public ProcessingResult processJson() {
+        return pipeline.process(inputs.getRoot());
+    }
+
+    @Benchmark
+    public ProcessingResult processSnapshot() {
+        return pipeline.processSnapshot(snapshotFile);
+    }
+
+    @Benchmark
+    public List<StudentGroup> readSnapshot() throws IOException {
+        return FeedbackSnapshot.read(snapshotFile);
+    }
+
+    @Benchmark
+    public Path writeSnapshot() throws IOException {
+        FeedbackSnapshot.write(teams, scratchFile);
+        return scratchFile;
+    }
+}
@@ -0,0 +1,415 @@
+package ca.cmpt213.as2;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A class that generates synthetic peer feedback cohorts for the benchmarks and the load tests.
+ * By default every generated evaluation is valid: each student rates every teammate and the scores sum to
+ * 20 * team size. withUnicode() mixes accented, Greek, Cyrillic, CJK and emoji words into the names and comments,
+ * and withFailureRate() breaks the given share of the evaluations in one of the ways of Failure. The failures are
+ * drawn from a random generator of their own, so the valid evaluations stay the same whatever the rates.
+ *
+ * It can also be run to write a tree in the submission layout, e.g. from the project root after mvn package:
+ *     java -cp benchmarks/target/benchmarks.jar ca.cmpt213.as2.SyntheticCohort /tmp/cohort --teams=2500
+ *         --team-size=4 --comment-length=80 --unicode --score-sum=0.01 --id-typo=0.001
+ * @author Bei Bei Li
+ */
+public class SyntheticCohort {
+
+    /**
+     * The ways a generated evaluation can be broken, each caught by a different check of the processor
+     */
+    public enum Failure {
+        //a required field (confidential_comments, a feedback's sfu_email or score) is left out
+        MISSING_FIELD,
+        //one score is raised by 1, so the scores no longer sum to 20 * team size
+        SCORE_SUM,
+        //the feedback about one teammate is left out
+        FORGOTTEN_TEAMMATE,
+        //a teammate's sfu email is misspelled
+        ID_TYPO
+    }
+
+    /**
+     * The team sizes found in InputTestDataSets/4-BiggerTest (9 teams, 28 students)
+     */
+    public static final int[] BIGGER_TEST_TEAM_SIZES = {1, 2, 2, 2, 3, 3, 3, 4, 8};
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    //words mixed into names and comments by withUnicode(), from 2 to 4 UTF-8 bytes per character
+    private static final String[] UNICODE_WORDS = {"caf\u00e9", "na\u00efve", "Zo\u00eb", "fa\u00e7ade",
+            "\u0395\u03bb\u03bb\u03b7\u03bd\u03b9\u03ba\u03ac", "\u043f\u0440\u0438\u0432\u0435\u0442",
+            "\u65e5\u672c\u8a9e", "\ud55c\uad6d\uc5b4", "\u4e2d\u6587", "\ud83d\ude42", "\ud83d\udc4d\ud83c\udffd",
+            "\u0141\u00f3d\u017a", "S\u00e3o", "\u00d8resund"};
+
+    private final int[] teamSizes;
+    private final int replicas;
+    private final int commentLength;
+    private final long seed;
+
+    private boolean isUnicode = false;
+    private final Map<Failure, Double> failureRates = new EnumMap<>(Failure.class);
+
+    /**
+     * Constructor that takes parameters to instantiate the SyntheticCohort class
+     * @param teamSizes The size of each team in one replica of the cohort
+     * @param replicas The number of times the teams are repeated (each copy gets new team numbers)
+     * @param commentLength The number of characters in each comment
+     * @param seed The seed of the random generator, so the same parameters give the same cohort
+     */
+    public SyntheticCohort(int[] teamSizes, int replicas, int commentLength, long seed) {
+        this.teamSizes = teamSizes.clone();
+        this.replicas = replicas;
+        this.commentLength = commentLength;
+        this.seed = seed;
+    }
+
+    /**
+     * Main function to write a synthetic cohort in the submission layout
+     * @param args The output directory followed by optional flags: --teams=N (default 250), --team-size=N (4),
+     *             --comment-length=N (80), --seed=N, --unicode, and the failure rates --missing-field=R,
+     *             --score-sum=R, --forgotten-teammate=R and --id-typo=R (from 0 to 1, default 0)
+     * @throws IOException If a file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: SyntheticCohort <output directory> [--teams=N] [--team-size=N] " +
+                    "[--comment-length=N] [--seed=N] [--unicode] [--missing-field=R] [--score-sum=R] " +
+                    "[--forgotten-teammate=R] [--id-typo=R]");
+            return;
+        }
+
+        int teams = 250;
+        int teamSize = 4;
+        int commentLength = 80;
+        long seed = 213L;
+        boolean isUnicode = false;
+        Map<Failure, Double> rates = new EnumMap<>(Failure.class);
+        for (int argIndex = 1; argIndex < args.length; argIndex++) {
+            String flag = args[argIndex];
+            String value = flag.substring(flag.indexOf('=') + 1);
+            if (flag.startsWith("--teams=")) {
+                teams = Integer.parseInt(value);
+            } else if (flag.startsWith("--team-size=")) {
+                teamSize = Integer.parseInt(value);
+            } else if (flag.startsWith("--comment-length=")) {
+                commentLength = Integer.parseInt(value);
+            } else if (flag.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else if (flag.equals("--unicode")) {
+                isUnicode = true;
+            } else if (flag.startsWith("--") && flag.contains("=")) {
+                //--missing-field=R is the rate of Failure.MISSING_FIELD, and so on
+                String failure = flag.substring(2, flag.indexOf('=')).replace('-', '_').toUpperCase(Locale.ROOT);
+                rates.put(Failure.valueOf(failure), Double.parseDouble(value));
+            } else {
+                throw new IllegalArgumentException("unknown option " + flag);
+            }
+        }
+
+        SyntheticCohort cohort = new SyntheticCohort(new int[]{teamSize}, teams, commentLength, seed);
+        if (isUnicode) {
+            cohort.withUnicode();
+        }
+        for (Map.Entry<Failure, Double> eachRate : rates.entrySet()) {
+            cohort.withFailureRate(eachRate.getKey(), eachRate.getValue());
+        }
+
+        Path root = Paths.get(args[0]);
+        cohort.writeTree(root);
+        System.out.println("wrote " + cohort.getEvaluationCount() + " evaluations to " + root);
+    }
+
+    /**
+     * Method to generate a cohort with the shape of 4-BiggerTest repeated scale times
+     * @param scale The number of copies of 4-BiggerTest
+     * @return The SyntheticCohort
+     */
+    public static SyntheticCohort biggerTest(int scale) {
+        return new SyntheticCohort(BIGGER_TEST_TEAM_SIZES, scale, 80, 213L);
+    }
+
+    /**
+     * Method to generate a cohort of equally sized teams
+     * @param teams The number of teams
+     * @param teamSize The number of students in each team
+     * @param commentLength The number of characters in each comment
+     * @return The SyntheticCohort
+     */
+    public static SyntheticCohort uniform(int teams, int teamSize, int commentLength) {
+        return new SyntheticCohort(new int[]{teamSize}, teams, commentLength, 213L);
+    }
+
+    /**
+     * Method to create a cohort from a benchmark parameter such as "synthetic-100x4x80"
+     * (100 teams of 4 students, 80 character comments)
+     * @param spec The benchmark parameter
+     * @return The SyntheticCohort
+     * @throws IllegalArgumentException If the parameter is not in that form
+     */
+    public static SyntheticCohort fromSpec(String spec) {
+        String prefix = "synthetic-";
+        String[] sizes = spec.startsWith(prefix) ? spec.substring(prefix.length()).split("x") : new String[0];
+        if (sizes.length != 3) {
+            throw new IllegalArgumentException("expected synthetic-<teams>x<team size>x<comment length>: " + spec);
+        }
+        return uniform(Integer.parseInt(sizes[0]), Integer.parseInt(sizes[1]), Integer.parseInt(sizes[2]));
+    }
+
+    /**
+     * Method to mix non-ASCII words into the names and comments
+     * @return This SyntheticCohort
+     */
+    public SyntheticCohort withUnicode() {
+        this.isUnicode = true;
+        return this;
+    }
+
+    /**
+     * Method to break a share of the evaluations in the given way; an evaluation is broken in one way at most
+     * @param failure The way evaluations are broken
+     * @param rate The share of evaluations broken that way, from 0 to 1
+     * @return This SyntheticCohort
+     */
+    public SyntheticCohort withFailureRate(Failure failure, double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("rate has to be between 0 and 1");
+        }
+        failureRates.put(failure, rate);
+        return this;
+    }
+
+    /**
+     * Method to retrieve the number of evaluations in the cohort
+     * @return The number of evaluations (one per student)
+     */
+    public int getEvaluationCount() {
+        int studentsPerReplica = 0;
+        for (int eachSize : teamSizes) {
+            studentsPerReplica += eachSize;
+        }
+        return studentsPerReplica * replicas;
+    }
+
+    /**
+     * Method to generate the .json documents of the cohort, shuffled the way a directory listing would be
+     * @return A List<String> of .json documents, one per student
+     */
+    public List<String> generateJson() {
+        List<String> documents = new ArrayList<>(getEvaluationCount());
+        for (String[] eachDocument : generateDocuments()) {
+            documents.add(eachDocument[1]);
+        }
+        return documents;
+    }
+
+    /**
+     * Method to write the cohort to disk in the submission layout: root/<sfu email>/<letter>-feedback.json.
+     * Each team is written as soon as it is generated, so a cohort of a million files is never held in memory;
+     * the files are the same as the documents of generateJson().
+     * @param root The directory to write to; it is created if missing
+     * @throws IOException If a file cannot be written
+     */
+    public void writeTree(Path root) throws IOException {
+        Generator generator = new Generator();
+        while (generator.hasNextTeam()) {
+            for (String[] eachDocument : generator.nextTeam()) {
+                String email = eachDocument[0];
+                Path studentDirectory = Files.createDirectories(root.resolve(email));
+                Files.write(studentDirectory.resolve(email.charAt(0) + "-feedback.json"),
+                        eachDocument[1].getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    //helper function to generate {owner sfu email, .json document} pairs, shuffled
+    private List<String[]> generateDocuments() {
+        List<String[]> documents = new ArrayList<>(getEvaluationCount());
+        Generator generator = new Generator();
+        while (generator.hasNextTeam()) {
+            documents.addAll(generator.nextTeam());
+        }
+
+        Collections.shuffle(documents, generator.random);
+        return documents;
+    }
+
+    //generates the cohort one team at a time; the same seed gives the same teams
+    private class Generator {
+        private final Random random = new Random(seed);
+        private final Random failureRandom = new Random(seed + 1);
+        private final int teamCount = teamSizes.length * replicas;
+        private int teamNumber = 0;
+
+        boolean hasNextTeam() {
+            return teamNumber < teamCount;
+        }
+
+        List<String[]> nextTeam() {
+            int size = teamSizes[teamNumber % teamSizes.length];
+            teamNumber++;
+            String[] emails = new String[size];
+            for (int student = 0; student < size; student++) {
+                emails[student] = randomLetters(random, 3) + "-t" + teamNumber + "-s" + (student + 1);
+            }
+            List<String[]> documents = new ArrayList<>(size);
+            for (int owner = 0; owner < size; owner++) {
+                documents.add(new String[]{emails[owner], evaluationJson(random, emails, owner, pickFailure())});
+            }
+            return documents;
+        }
+
+        //helper function to pick how the next evaluation is broken, or null to keep it valid
+        private Failure pickFailure() {
+            if (failureRates.isEmpty()) {
+                return null;
+            }
+            double draw = failureRandom.nextDouble();
+            for (Map.Entry<Failure, Double> eachRate : failureRates.entrySet()) {
+                draw -= eachRate.getValue();
+                if (draw < 0) {
+                    return eachRate.getKey();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Method to generate the cohort as StudentEvaluation objects, mapped with Gson like the real files
+     * @return A List<StudentEvaluation>, one per student
+     */
+    public List<StudentEvaluation> generate() {
+        Gson gson = new Gson();
+        List<StudentEvaluation> evaluations = new ArrayList<>(getEvaluationCount());
+        for (String eachDocument : generateJson()) {
+            evaluations.add(gson.fromJson(eachDocument, StudentEvaluation.class));
+        }
+        return evaluations;
+    }
+
+    //helper function to build the .json document written by emails[owner]; the owner's feedback comes first.
+    //The failure, if any, only changes the document after the random values are drawn, so the other documents
+    //of the cohort are the same with or without failures
+    private String evaluationJson(Random random, String[] emails, int owner, Failure failure) {
+        double[] scores = balancedScores(random, emails.length);
+        String[] comments = new String[emails.length];
+        for (int feedback = 0; feedback < emails.length; feedback++) {
+            comments[feedback] = comment(random, emails[owner], emails[(owner + feedback) % emails.length]);
+        }
+        String confidentialComment = comment(random, emails[owner], emails[owner]);
+
+        //the feedback that is broken: a teammate's if there is one, so the owner's team stays readable
+        int brokenFeedback = emails.length > 1 ? 1 + (owner % (emails.length - 1)) : 0;
+        if (failure == Failure.SCORE_SUM) {
+            scores[brokenFeedback] += 1;
+        }
+        String missingField = failure == Failure.MISSING_FIELD
+                ? new String[]{"confidential_comments", "sfu_email", "score"}[owner % 3] : null;
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"group\": [");
+        boolean isFirst = true;
+        for (int feedback = 0; feedback < emails.length; feedback++) {
+            boolean isBroken = feedback == brokenFeedback;
+            if (isBroken && failure == Failure.FORGOTTEN_TEAMMATE && feedback > 0) {
+                continue;
+            }
+            int target = (owner + feedback) % emails.length;
+            String targetEmail = isBroken && failure == Failure.ID_TYPO && feedback > 0
+                    ? misspell(emails[target]) : emails[target];
+            if (!isFirst) {
+                json.append(',');
+            }
+            isFirst = false;
+            json.append("\n    {\n       \"name\": \"").append(studentName(emails[target])).append("\",");
+            if (!(isBroken && "sfu_email".equals(missingField))) {
+                json.append("\n       \"sfu_email\": \"").append(targetEmail).append("\",");
+            }
+            json.append("\n       \"contribution\": {");
+            if (!(isBroken && "score".equals(missingField))) {
+                json.append("\n          \"score\": ").append(scores[feedback]).append(',');
+            }
+            json.append("\n          \"comment\": \"").append(comments[feedback])
+                    .append("\"\n       }\n    }");
+        }
+        json.append("\n  ]");
+        if (!"confidential_comments".equals(missingField)) {
+            json.append(",\n  \"confidential_comments\": \"").append(confidentialComment).append('"');
+        }
+        json.append("\n}");
+        return json.toString();
+    }
+
+    //helper function to name a student after their email, with a non-ASCII word in Unicode mode
+    private String studentName(String email) {
+        if (!isUnicode) {
+            return "Student " + email;
+        }
+        return UNICODE_WORDS[Math.floorMod(email.hashCode(), UNICODE_WORDS.length)] + " Student " + email;
+    }
+
+    //helper function to misspell the letters before the team # of an email, e.g. abc-t1-s2 to bac-t1-s2
+    private static String misspell(String email) {
+        return email.charAt(1) == email.charAt(0)
+                ? (char) (email.charAt(0) == 'z' ? 'a' : email.charAt(0) + 1) + email.substring(1)
+                : email.substring(1, 2) + email.charAt(0) + email.substring(2);
+    }
+
+    //helper function to create scores with one decimal that sum to exactly 20 * count
+    //scores are moved in pairs (+d, -d) so rounding never breaks the sum
+    private double[] balancedScores(Random random, int count) {
+        int[] tenths = new int[count];
+        for (int i = 0; i < count; i++) {
+            tenths[i] = 200;
+        }
+        for (int i = 0; i + 1 < count; i += 2) {
+            int delta = random.nextInt(150);
+            tenths[i] += delta;
+            tenths[i + 1] -= delta;
+        }
+        double[] scores = new double[count];
+        for (int i = 0; i < count; i++) {
+            scores[i] = tenths[i] / 10d;
+        }
+        return scores;
+    }
+
+    //helper function to create a comment of commentLength characters, with the escapes real comments contain;
+    //in Unicode mode about one word in four is a non-ASCII one
+    private String comment(Random random, String from, String about) {
+        StringBuilder text = new StringBuilder("From '" + from + "' about '" + about + "'\\nAnd they said, \\\"ok\\\"");
+        while (text.length() < commentLength) {
+            int wordLength = 1 + random.nextInt(8);
+            if (isUnicode && wordLength <= 2) {
+                text.append(' ').append(UNICODE_WORDS[random.nextInt(UNICODE_WORDS.length)]);
+            } else {
+                text.append(' ').append(randomLetters(random, wordLength));
+            }
+        }
+        return text.toString();
+    }
+
+    //helper function to create a random lower case word
+    private static String randomLetters(Random random, int length) {
+        char[] word = new char[length];
+        for (int i = 0; i < length; i++) {
+            word[i] = LETTERS.charAt(random.nextInt(LETTERS.length()));
+        }
+        return new String(word);
+    }
+}
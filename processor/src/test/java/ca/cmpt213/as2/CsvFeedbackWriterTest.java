@@ -0,0 +1,104 @@
+package ca.cmpt213.as2;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that CsvFeedbackWriter.writeScore() writes the same text as String.format("%.1f"), which the
+ * csv was printed with before the writer.
+ * @author Bei Bei Li
+ */
+class CsvFeedbackWriterTest {
+
+    private static final long SEED = 213L;
+
+    private static final int RANDOM_VALUE_COUNT = 100000;
+
+    @Test
+    void writesHalfTenthsLikeFormat() throws IOException {
+        //x.x5 is the rounding boundary, and most of these are not exact in binary
+        List<Double> values = new ArrayList<>();
+        for (int hundredths = 5; hundredths < 100000; hundredths += 10) {
+            double value = hundredths / 100d;
+            values.add(value);
+            values.add(Math.nextUp(value));
+            values.add(Math.nextDown(value));
+        }
+        assertSameAsFormat(withNegatives(values));
+    }
+
+    @Test
+    void writesLargeValuesLikeFormat() throws IOException {
+        List<Double> values = new ArrayList<>();
+        double[] magnitudes = {1e9, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e19, 1e300};
+        for (double eachMagnitude : magnitudes) {
+            values.add(eachMagnitude);
+            values.add(Math.nextUp(eachMagnitude));
+            values.add(Math.nextDown(eachMagnitude));
+            values.add(eachMagnitude - 0.05);
+            values.add(eachMagnitude + 0.05);
+            values.add(eachMagnitude - 0.45);
+        }
+        values.add(9999999999999.95);
+        values.add(999999999999.95);
+        values.add((double) Long.MAX_VALUE);
+        values.add(Double.MAX_VALUE);
+        assertSameAsFormat(withNegatives(values));
+    }
+
+    @Test
+    void writesSpecialValuesLikeFormat() throws IOException {
+        List<Double> values = new ArrayList<>();
+        values.add(0d);
+        values.add(0.04);
+        values.add(0.049999999);
+        values.add(0.95);
+        values.add(9.95);
+        values.add(99.95);
+        values.add(Double.MIN_VALUE);
+        values.add(Double.MIN_NORMAL);
+        values.add(Double.POSITIVE_INFINITY);
+        values.add(Double.NaN);
+        assertSameAsFormat(withNegatives(values));
+    }
+
+    @Test
+    void writesRandomValuesLikeFormat() throws IOException {
+        Random random = new Random(SEED);
+        List<Double> values = new ArrayList<>();
+        for (int count = 0; count < RANDOM_VALUE_COUNT; count++) {
+            //scores, averages and anything up to the largest fast magnitude
+            values.add(random.nextDouble() * 30d);
+            values.add(random.nextInt(300) / 10d + random.nextInt(3) * 0.05);
+            values.add(Math.pow(10d, random.nextDouble() * 16d) * (random.nextBoolean() ? 1d : -1d));
+        }
+        assertSameAsFormat(values);
+    }
+
+    //helper function to add the negative of every value, which also gives -0.0 and negative infinity
+    private static List<Double> withNegatives(List<Double> values) {
+        List<Double> signedValues = new ArrayList<>(values);
+        for (double eachValue : values) {
+            signedValues.add(-eachValue);
+        }
+        return signedValues;
+    }
+
+    //helper function to check each value against String.format on its own
+    private static void assertSameAsFormat(List<Double> values) throws IOException {
+        for (double eachValue : values) {
+            StringWriter text = new StringWriter();
+            new CsvFeedbackWriter(text).writeScore(eachValue);
+            assertEquals(String.format(Locale.ROOT, "%.1f", eachValue), text.toString(),
+                    "for " + eachValue + " (" + Double.doubleToRawLongBits(eachValue) + ")");
+        }
+    }
+}
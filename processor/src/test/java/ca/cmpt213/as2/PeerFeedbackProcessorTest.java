@@ -0,0 +1,600 @@
+package ca.cmpt213.as2;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end tests that run PeerFeedbackProcessor in its own process, the same way as from the command line, on the
+ * shipped data sets. A run must write the csv in AnalysisResults_v2, and each mode must write byte for byte the csv
+ * of a run without flags on the same tree; every data set in InputTestDataThatFails must print its errors and exit
+ * with a failure status.
+ * The expected csv files were written on another file system, so against them line endings are normalized and the
+ * groups are compared without their order: a team is numbered in the order its first .json file is found in the
+ * directory.
+ * FeedbackWatcher is run in this JVM, one batch at a time.
+ * @author Bei Bei Li
+ */
+class PeerFeedbackProcessorTest {
+
+    //the exit status of System.exit(-1)
+    private static final int FAILURE_STATUS = 255;
+    private static final String CSV_NAME = "group_feedback.csv";
+    private static final String EXIT_LINE = "Now exiting program.";
+    private static final int TAR_BLOCK_SIZE = 512;
+
+    private static Path root;
+
+    @TempDir
+    Path temporary;
+
+    @BeforeAll
+    static void findRoot() throws IOException {
+        root = Paths.get(System.getProperty("peerfeedback.root", "..")).toRealPath();
+    }
+
+    static Stream<String> dataSets() {
+        return Stream.of("1-Just1", "2-OneGroup", "3-CoupleSmallGroups", "4-BiggerTest");
+    }
+
+    static Stream<String> failingDataSets() {
+        return Stream.of("MFail0x0-NoFiles", "MFail1x4-HaveOnlyOneFile", "MFail1x4-IdTypoForOther",
+                "MFail1x4-MissingReqField-group", "MFail1x4-ScoreSumIncorrect", "MFail1x4-StudentForgotOneGroupMate");
+    }
+
+    @ParameterizedTest
+    @MethodSource("dataSets")
+    void writesExpectedCsvByDefault(String dataSet) throws Exception {
+        Run run = runSuccessfully(dataSetPath(dataSet));
+        assertMatchesExpectedCsv(dataSet, run.outputDirectory.resolve(CSV_NAME));
+    }
+
+    @ParameterizedTest
+    @MethodSource("dataSets")
+    void writesSameCsvWithThreads(String dataSet) throws Exception {
+        assertSameCsvAsDefault(dataSet, dataSetPath(dataSet), "--threads=3");
+    }
+
+    @ParameterizedTest
+    @MethodSource("failingDataSets")
+    void reportsErrorsOfFailingDataSet(String dataSet) throws Exception {
+        assertReportsErrors(dataSet);
+    }
+
+    @ParameterizedTest
+    @MethodSource("failingDataSets")
+    void reportsErrorsOfFailingDataSetWithThreads(String dataSet) throws Exception {
+        assertReportsErrors(dataSet, "--threads=3");
+    }
+
+    @ParameterizedTest
+    @MethodSource("dataSets")
+    void reusesEveryFileOnSecondCacheRun(String dataSet) throws Exception {
+        String cacheFlag = "--cache=" + temporary.resolve("feedback.cache");
+        int fileCount = jsonFileCount(dataSet);
+
+        Run firstRun = assertSameCsvAsDefault(dataSet, dataSetPath(dataSet), cacheFlag);
+        assertTrue(firstRun.output.contains("cache: reused 0 of " + fileCount + " files" + teamSummary(firstRun, 0)),
+                firstRun.output.toString());
+
+        Run secondRun = assertSameCsvAsDefault(dataSet, dataSetPath(dataSet), cacheFlag);
+        assertTrue(secondRun.output.contains("cache: reused " + fileCount + " of " + fileCount + " files"
+                + teamSummary(secondRun, -1)), secondRun.output.toString());
+    }
+
+    @Test
+    void watcherReplacesCsvOnlyAfterSuccessfulBatch() throws Exception {
+        Path input = copyOf(dataSetPath("3-CoupleSmallGroups"));
+        byte[] expected = Files.readAllBytes(runSuccessfully(input).outputDirectory.resolve(CSV_NAME));
+
+        Path output = Files.createTempDirectory(temporary, "watched");
+        ProcessorOptions options = ProcessorOptions.parse(
+                new String[]{input.toString(), output.toString(), "--watch"});
+        FeedbackWatcher watcher = new FeedbackWatcher(options, output.resolve(CSV_NAME).toFile());
+
+        assertTrue(watcher.processOnce().isSuccessful());
+        assertArrayEquals(expected, Files.readAllBytes(output.resolve(CSV_NAME)));
+
+        //a student takes back their evaluation, so the next batch fails and the csv is left as it was
+        Files.delete(input.resolve("yfa-t1-s1").resolve("r-feedback.json"));
+        assertFalse(watcher.processOnce().isSuccessful());
+        assertArrayEquals(expected, Files.readAllBytes(output.resolve(CSV_NAME)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("dataSets")
+    void writesSameCsvWhenStreaming(String dataSet) throws Exception {
+        assertSameCsvAsDefault(dataSet, dataSetPath(dataSet), "--stream");
+    }
+
+    @ParameterizedTest
+    @MethodSource("failingDataSets")
+    void reportsErrorsOfFailingDataSetWhenStreaming(String dataSet) throws Exception {
+        assertReportsErrors(dataSet, "--stream");
+    }
+
+    @Test
+    void reportsLateEvaluationWhenStreaming() throws Exception {
+        Path input = writeLateEvaluationCohort();
+        List<String> expected = Arrays.asList(
+                "ERROR: aaa-t1-s1 in team t1 did not provide feedback for ccc-t1-s3",
+                "ERROR: bbb-t1-s2 in team t1 did not provide feedback for ccc-t1-s3",
+                EXIT_LINE);
+
+        Run defaultRun = runProcessor(input, Files.createTempDirectory(temporary, "out"));
+        assertEquals(expected, defaultRun.output);
+        assertEquals(FAILURE_STATUS, defaultRun.exitStatus);
+
+        Run streamingRun = runProcessor(input, Files.createTempDirectory(temporary, "out"), "--stream");
+        assertEquals(expected, streamingRun.output);
+        assertEquals(FAILURE_STATUS, streamingRun.exitStatus);
+        assertNoFilesIn(streamingRun.outputDirectory);
+    }
+
+    @ParameterizedTest
+    @MethodSource("dataSets")
+    void writesMetricsNextToCsv(String dataSet) throws Exception {
+        int fileCount = jsonFileCount(dataSet);
+
+        Run promRun = assertSameCsvAsDefault(dataSet, dataSetPath(dataSet), "--metrics");
+        String prometheus = readString(promRun.outputDirectory.resolve("group_feedback.metrics.prom"));
+        assertTrue(prometheus.contains("\nfeedback_files_discovered_total " + fileCount + "\n"), prometheus);
+
+        Run jsonRun = assertSameCsvAsDefault(dataSet, dataSetPath(dataSet), "--metrics=json");
+        JsonObject metrics = new JsonParser().parse(readString(
+                jsonRun.outputDirectory.resolve("group_feedback.metrics.json"))).getAsJsonObject();
+        assertEquals(fileCount, metrics.get("files_discovered").getAsInt());
+        assertEquals(fileCount, metrics.get("evaluations_mapped").getAsInt());
+    }
+
+    @ParameterizedTest
+    @MethodSource("dataSets")
+    void writesSameCsvFromSnapshot(String dataSet) throws Exception {
+        Path snapshot = temporary.resolve(dataSet + ".snapshot");
+        assertSameCsvAsDefault(dataSet, dataSetPath(dataSet), "--snapshot=" + snapshot);
+        assertTrue(Files.isRegularFile(snapshot), "no snapshot was saved");
+
+        assertSameCsvAsDefault(dataSet, snapshot);
+    }
+
+    @Test
+    void reportsNoJsonFileForPlainFileInput() throws Exception {
+        //only a file that starts with the snapshot magic is loaded as a snapshot
+        Path jsonFile = root.resolve("InputTestDataThatFails").resolve("MFail1x4-IdTypoForOther")
+                .resolve("jco-t1-s4").resolve("c-feedback.json");
+        String[][] modes = {{}, {"--stream"}, {"--cache=" + temporary.resolve("feedback.cache")}};
+        for (String[] eachMode : modes) {
+            Run run = runProcessor(jsonFile, Files.createTempDirectory(temporary, "out"), eachMode);
+            assertEquals(Arrays.asList("ERROR: no .JSON file found in the given path", EXIT_LINE), run.output,
+                    "with " + Arrays.toString(eachMode));
+            assertEquals(FAILURE_STATUS, run.exitStatus);
+            assertNoFilesIn(run.outputDirectory);
+        }
+    }
+
+    @Test
+    void reportsNullScoreAsNegative() throws Exception {
+        //a null score is read like a missing one, so the adapter reports it instead of Gson
+        Path input = Files.createTempDirectory(temporary, "in");
+        Path jsonFile = input.resolve("a-feedback.json");
+        writeEvaluation(jsonFile, "aaa-t1-s1", "bbb-t1-s2");
+        String evaluation = new String(Files.readAllBytes(jsonFile), StandardCharsets.UTF_8);
+        Files.write(jsonFile, evaluation.replaceFirst("\"score\":20\\.0", "\"score\":null")
+                .getBytes(StandardCharsets.UTF_8));
+
+        Run run = runProcessor(input, Files.createTempDirectory(temporary, "out"));
+        assertEquals(Arrays.asList("ERROR: Negative score detected in the feedback for aaa-t1-s1 in file " + jsonFile,
+                EXIT_LINE), run.output);
+        assertEquals(FAILURE_STATUS, run.exitStatus);
+        assertNoFilesIn(run.outputDirectory);
+    }
+
+    @ParameterizedTest
+    @MethodSource("dataSets")
+    void writesSameJsonWithThreadsAndCache(String dataSet) throws Exception {
+        Run plainRun = assertSameCsvAsDefault(dataSet, dataSetPath(dataSet), "--json");
+        byte[] json = Files.readAllBytes(plainRun.outputDirectory.resolve("group_feedback.json"));
+        JsonArray marks = new JsonParser().parse(new String(json, StandardCharsets.UTF_8)).getAsJsonObject()
+                .getAsJsonArray("marks");
+        assertEquals(jsonFileCount(dataSet), marks.size());
+
+        //the second cache run renders every team from the cached rows
+        String cacheFlag = "--cache=" + temporary.resolve("feedback.cache");
+        String[][] modes = {{"--json", "--threads=3"}, {"--json", cacheFlag}, {"--json", cacheFlag}};
+        for (String[] eachMode : modes) {
+            Run run = assertSameCsvAsDefault(dataSet, dataSetPath(dataSet), eachMode);
+            assertArrayEquals(json, Files.readAllBytes(run.outputDirectory.resolve("group_feedback.json")),
+                    "the json differs with " + Arrays.toString(eachMode));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("dataSets")
+    void writesSameCsvWithShards(String dataSet) throws Exception {
+        assertSameCsvAsDefault(dataSet, dataSetPath(dataSet), "--shards=2");
+    }
+
+    @ParameterizedTest
+    @MethodSource("failingDataSets")
+    void reportsErrorsOfFailingDataSetWithShards(String dataSet) throws Exception {
+        assertReportsErrors(dataSet, "--shards=2");
+    }
+
+    @ParameterizedTest
+    @MethodSource("dataSets")
+    void writesSameCsvAfterPreScan(String dataSet) throws Exception {
+        assertSameCsvAsDefault(dataSet, dataSetPath(dataSet), "--prescan");
+    }
+
+    @ParameterizedTest
+    @MethodSource("failingDataSets")
+    void reportsErrorsOfFailingDataSetWithPreScan(String dataSet) throws Exception {
+        assertReportsErrors(dataSet, "--prescan");
+    }
+
+    @ParameterizedTest
+    @MethodSource("dataSets")
+    void writesSameCsvFromZip(String dataSet) throws Exception {
+        Path archive = temporary.resolve(dataSet + ".zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (File eachFile : jsonFilesOf(dataSet)) {
+                zip.putNextEntry(new ZipEntry(entryName(dataSet, eachFile)));
+                zip.write(Files.readAllBytes(eachFile.toPath()));
+                zip.closeEntry();
+            }
+        }
+        assertSameCsvAsDefault(dataSet, archive);
+    }
+
+    @ParameterizedTest
+    @MethodSource("dataSets")
+    void writesSameCsvFromTarGz(String dataSet) throws Exception {
+        Path archive = temporary.resolve(dataSet + ".tar.gz");
+        try (OutputStream tar = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            for (File eachFile : jsonFilesOf(dataSet)) {
+                byte[] content = Files.readAllBytes(eachFile.toPath());
+                tar.write(tarHeader(entryName(dataSet, eachFile), content.length));
+                tar.write(content);
+                tar.write(new byte[(TAR_BLOCK_SIZE - content.length % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE]);
+            }
+            //two zero blocks end the archive
+            tar.write(new byte[2 * TAR_BLOCK_SIZE]);
+        }
+        assertSameCsvAsDefault(dataSet, archive);
+    }
+
+    @ParameterizedTest
+    @MethodSource("dataSets")
+    void writesSameCsvFromNdjson(String dataSet) throws Exception {
+        Path lines = temporary.resolve(dataSet + ".ndjson");
+        Gson gson = new Gson();
+        try (Writer out = Files.newBufferedWriter(lines, StandardCharsets.UTF_8)) {
+            for (File eachFile : jsonFilesOf(dataSet)) {
+                try (Reader in = Files.newBufferedReader(eachFile.toPath(), StandardCharsets.UTF_8)) {
+                    //gson writes the evaluation back on one line
+                    out.write(gson.toJson(new JsonParser().parse(in)));
+                    out.write('\n');
+                }
+            }
+        }
+        assertSameCsvAsDefault(dataSet, lines);
+    }
+
+    @ParameterizedTest
+    @MethodSource("dataSets")
+    void writesSameCsvWhenSpilling(String dataSet) throws Exception {
+        assertSameCsvAsDefault(dataSet, dataSetPath(dataSet), "--spill=3");
+    }
+
+    @ParameterizedTest
+    @MethodSource("failingDataSets")
+    void reportsErrorsOfFailingDataSetWhenSpilling(String dataSet) throws Exception {
+        assertReportsErrors(dataSet, "--spill=3");
+    }
+
+    //helper function to list the errors printed for each data set that fails
+    private static List<String> expectedErrors(String dataSet, Path input) {
+        switch (dataSet) {
+            case "MFail0x0-NoFiles":
+                return Arrays.asList("ERROR: no .JSON file found in the given path");
+            case "MFail1x4-HaveOnlyOneFile":
+                return Arrays.asList(
+                        "ERROR: nfo-t1-s4 in team t1 mentioned wmr-t1-s2, but wmr-t1-s2 did not provide an evaluation",
+                        "ERROR: nfo-t1-s4 in team t1 mentioned tmg-t1-s3, but tmg-t1-s3 did not provide an evaluation",
+                        "ERROR: nfo-t1-s4 in team t1 mentioned ked-t1-s1, but ked-t1-s1 did not provide an evaluation");
+            case "MFail1x4-IdTypoForOther":
+                return Arrays.asList(
+                        "ERROR: bmo-t1-s1 in team t1 did not provide feedback for iff-t1-s2",
+                        "ERROR: bmo-t1-s1 in team t1 mentioned iff-t1-s2Opps, but iff-t1-s2Opps did not provide an "
+                                + "evaluation");
+            case "MFail1x4-MissingReqField-group":
+                return Arrays.asList("ERROR: Missing required fields (group) in file "
+                        + input.resolve("bps-t1-s3").resolve("r-feedback.json"));
+            case "MFail1x4-ScoreSumIncorrect":
+                return Arrays.asList("ERROR: ani-t1-s3's evaluation in team t1 - the sum of score in the file is not "
+                        + "(20 * number of group members), with a tolerance of 0.1");
+            case "MFail1x4-StudentForgotOneGroupMate":
+                return Arrays.asList(
+                        "ERROR: bgb-t1-s4 in team t1 did not provide feedback for hio-t1-s1",
+                        "ERROR: bgb-t1-s4's evaluation in team t1 - the sum of score in the file is not (20 * number "
+                                + "of group members), with a tolerance of 0.1");
+            default:
+                throw new IllegalArgumentException("no expected errors for " + dataSet);
+        }
+    }
+
+    //helper function to run the processor on a data set that fails and check its errors, its exit status,
+    //and that it leaves nothing in the output directory
+    private void assertReportsErrors(String dataSet, String... flags) throws Exception {
+        Path input = root.resolve("InputTestDataThatFails").resolve(dataSet);
+        Run run = runProcessor(input, Files.createTempDirectory(temporary, "out"), flags);
+
+        List<String> expected = new ArrayList<>(expectedErrors(dataSet, input));
+        expected.add(EXIT_LINE);
+        assertEquals(expected, run.output);
+        assertEquals(FAILURE_STATUS, run.exitStatus);
+        assertNoFilesIn(run.outputDirectory);
+    }
+
+    //helper function to check that a failed run did not write anything, not even a temporary csv
+    private static void assertNoFilesIn(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(Collections.emptyList(), files.collect(Collectors.toList()),
+                    "a failed run must not write the csv");
+        }
+    }
+
+    //helper function to run the processor with the flags and check its csv: it must match the expected one of the
+    //data set, and be byte for byte the csv of a run on the data set without flags
+    private Run assertSameCsvAsDefault(String dataSet, Path input, String... flags) throws Exception {
+        Run defaultRun = runSuccessfully(dataSetPath(dataSet));
+        Run run = runSuccessfully(input, flags);
+
+        assertMatchesExpectedCsv(dataSet, run.outputDirectory.resolve(CSV_NAME));
+        assertArrayEquals(Files.readAllBytes(defaultRun.outputDirectory.resolve(CSV_NAME)),
+                Files.readAllBytes(run.outputDirectory.resolve(CSV_NAME)),
+                "the csv differs from the one written without flags");
+        return run;
+    }
+
+    //helper function to compare a csv to the expected one of the data set, whatever the order of the groups
+    private static void assertMatchesExpectedCsv(String dataSet, Path csv) throws IOException {
+        Path expected = root.resolve("AnalysisResults_v2").resolve(dataSet).resolve(CSV_NAME);
+        assertEquals(groupsOf(expected), groupsOf(csv));
+    }
+
+    //helper function to split a csv into its header and the rows of each group, with the groups sorted
+    private static List<String> groupsOf(Path csv) throws IOException {
+        String[] lines = readString(csv).replace("\r\n", "\n").split("\n", -1);
+
+        String header = "";
+        List<String> groups = new ArrayList<>();
+        StringBuilder current = null;
+        for (String eachLine : lines) {
+            if (eachLine.matches("Group \\d+")) {
+                if (current != null) {
+                    groups.add(withoutTrailingLines(current));
+                }
+                current = new StringBuilder();
+            } else if (current == null) {
+                header += eachLine + "\n";
+            } else {
+                current.append(eachLine).append('\n');
+            }
+        }
+        if (current != null) {
+            groups.add(withoutTrailingLines(current));
+        }
+        Collections.sort(groups);
+        groups.add(0, header);
+        return groups;
+    }
+
+    //helper function to drop the blank lines after a group; only the last group of the file has none
+    private static String withoutTrailingLines(StringBuilder group) {
+        int end = group.length();
+        while (end > 0 && group.charAt(end - 1) == '\n') {
+            end--;
+        }
+        return group.substring(0, end);
+    }
+
+    //helper function to build the end of the cache summary: the teams reused out of the teams in the csv,
+    //all of them if reused is -1
+    private static String teamSummary(Run run, int reused) throws IOException {
+        long teamCount = groupsOf(run.outputDirectory.resolve(CSV_NAME)).size() - 1;
+        return " and " + (reused < 0 ? teamCount : reused) + " of " + teamCount + " teams";
+    }
+
+    //helper function to count the .json files of a data set, which is also its number of evaluations
+    private static int jsonFileCount(String dataSet) throws IOException {
+        try (Stream<Path> files = Files.walk(dataSetPath(dataSet))) {
+            return (int) files.filter(eachFile -> eachFile.getFileName().toString().endsWith(".json")).count();
+        }
+    }
+
+    //helper function to list the .json files of a data set in the order the processor searches them
+    private static List<File> jsonFilesOf(String dataSet) {
+        return new JsonFileWalker(1).findAll(dataSetPath(dataSet));
+    }
+
+    //helper function to copy a directory tree into the temporary directory
+    private Path copyOf(Path source) throws IOException {
+        Path copy = Files.createTempDirectory(temporary, "input");
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path eachPath : paths.collect(Collectors.toList())) {
+                Path target = copy.resolve(source.relativize(eachPath).toString());
+                if (Files.isDirectory(eachPath)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.copy(eachPath, target);
+                }
+            }
+        }
+        return copy;
+    }
+
+    //helper function to write a team whose third evaluation is found last: the first two students only mention
+    //each other, so when streaming the team is complete and written before the third evaluation arrives
+    private Path writeLateEvaluationCohort() throws IOException {
+        Path input = Files.createTempDirectory(temporary, "late");
+        writeEvaluation(input.resolve("a-feedback.json"), "aaa-t1-s1", "bbb-t1-s2");
+        writeEvaluation(input.resolve("b-feedback.json"), "bbb-t1-s2", "aaa-t1-s1");
+        //files of a directory are found before its subdirectories
+        Path late = Files.createDirectory(input.resolve("late"));
+        writeEvaluation(late.resolve("c-feedback.json"), "ccc-t1-s3", "aaa-t1-s1", "bbb-t1-s2");
+        return input;
+    }
+
+    //helper function to write the evaluation of the first email, which gives 20 to each student
+    private static void writeEvaluation(Path file, String... emails) throws IOException {
+        JsonArray group = new JsonArray();
+        for (String eachEmail : emails) {
+            JsonObject contribution = new JsonObject();
+            contribution.addProperty("score", 20.0);
+            contribution.addProperty("comment", "From " + emails[0] + " about " + eachEmail);
+
+            JsonObject student = new JsonObject();
+            student.addProperty("name", eachEmail);
+            student.addProperty("sfu_email", eachEmail);
+            student.add("contribution", contribution);
+            group.add(student);
+        }
+
+        JsonObject evaluation = new JsonObject();
+        evaluation.add("group", group);
+        evaluation.addProperty("confidential_comments", "Said by " + emails[0]);
+        Files.write(file, new Gson().toJson(evaluation).getBytes(StandardCharsets.UTF_8));
+    }
+
+    //helper function to name an archive entry by its path inside the data set
+    private static String entryName(String dataSet, File jsonFile) {
+        return dataSetPath(dataSet).relativize(jsonFile.toPath()).toString().replace('\\', '/');
+    }
+
+    //helper function to write a ustar header for a regular file
+    private static byte[] tarHeader(String name, long size) {
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        putField(header, 0, name);
+        putField(header, 100, "0000644");
+        putField(header, 108, "0000000");
+        putField(header, 116, "0000000");
+        putField(header, 124, String.format("%011o", size));
+        putField(header, 136, String.format("%011o", 0));
+        header[156] = '0';
+        putField(header, 257, "ustar");
+        putField(header, 263, "00");
+
+        //the checksum is taken with its own field filled with spaces
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        int checksum = 0;
+        for (byte eachByte : header) {
+            checksum += eachByte & 0xFF;
+        }
+        putField(header, 148, String.format("%06o", checksum));
+        header[155] = ' ';
+        return header;
+    }
+
+    //helper function to copy ASCII text into a tar header; the rest of the field stays NUL
+    private static void putField(byte[] header, int offset, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+
+    //helper function to find a data set in InputTestDataSets
+    private static Path dataSetPath(String dataSet) {
+        return root.resolve("InputTestDataSets").resolve(dataSet);
+    }
+
+    //helper function to read a UTF-8 file
+    private static String readString(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    //helper function to run the processor into a new output directory; the run must succeed
+    private Run runSuccessfully(Path input, String... flags) throws IOException, InterruptedException {
+        Run run = runProcessor(input, Files.createTempDirectory(temporary, "out"), flags);
+        assertEquals(0, run.exitStatus, "the run failed: " + run.output);
+        return run;
+    }
+
+    //helper function to run the processor in a new JVM, since it ends with System.exit
+    private static Run runProcessor(Path input, Path outputDirectory, String... flags)
+            throws IOException, InterruptedException {
+        final long TIMEOUT_MINUTES = 2;
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        String classPath = System.getProperty("java.class.path");
+
+        List<String> command = new ArrayList<>(Arrays.asList(java, "-cp", classPath,
+                PeerFeedbackProcessor.class.getName(), input.toString(), outputDirectory.toString()));
+        command.addAll(Arrays.asList(flags));
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream in = process.getInputStream()) {
+            in.transferTo(output);
+        }
+        if (!process.waitFor(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            throw new AssertionError("the processor did not finish: " + command);
+        }
+
+        String text = output.toString(StandardCharsets.UTF_8.name()).replace("\r\n", "\n");
+        List<String> lines = text.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(text.split("\n")));
+        return new Run(process.exitValue(), lines, outputDirectory);
+    }
+
+    /**
+     * A class that holds the exit status, the printed lines and the output directory of one run of the processor.
+     * @author Bei Bei Li
+     */
+    private static final class Run {
+        private final int exitStatus;
+        private final List<String> output;
+        private final Path outputDirectory;
+
+        //helper constructor that takes the result of a finished process
+        private Run(int exitStatus, List<String> output, Path outputDirectory) {
+            this.exitStatus = exitStatus;
+            this.output = output;
+            this.outputDirectory = outputDirectory;
+        }
+    }
+}
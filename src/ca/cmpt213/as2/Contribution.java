@@ -17,6 +17,20 @@ public class Contribution {
     @Expose
     private String comment;
 
+    //used by Gson's reflective mapping; keeps the -1 default score so a missing score is caught
+    private Contribution() {
+    }
+
+    /**
+     * Constructor that takes parameters to instantiate the Contribution class
+     * @param score The score
+     * @param comment The comment
+     */
+    Contribution(double score, String comment) {
+        this.score = score;
+        this.comment = comment;
+    }
+
     /**
      * Method to retrieve the score in the contribution
      * @return The score of the contribution (Contribution)
@@ -41,6 +55,6 @@ public class Contribution {
     public String toString() {
         return getClass().getName() +
                 "[Score:" + this.score +
-                ", Comment:" + this.comment + "]";
+                ", Comment:" + getComment() + "]";
     }
 }
@@ -0,0 +1,294 @@
+package ca.cmpt213.as2;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A class that writes the group_feedback.csv rows straight to a Writer: out (Writer).
+ * Scores are formatted to one decimal place into a reused char buffer and comments are escaped
+ * in a single pass, so writing a row does not go through format strings or boxed numbers.
+ * The output is the same as the previous printf("%.1f") based printing.
+ * As a FeedbackOutputSink it writes the header on begin() and a group block per team.
+ * @author Bei Bei Li
+ */
+public class CsvFeedbackWriter implements FeedbackOutputSink {
+
+    /**
+     * The first row of the csv
+     */
+    public static final String HEADER = "Group#,Source Student,Target Student,Score,Comment,,Private";
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    //the largest magnitude formatted without falling back to String.format; tenths still fit in a long exactly
+    private static final double MAX_FAST_SCORE = 1e13;
+
+    //how close value * 10 may get to a .5 boundary before the fast rounding is not trusted; value * 10 is
+    //also not trusted once its own rounding error (half an ulp) could be that large
+    private static final double HALF_TOLERANCE = 1e-6;
+
+    private final Writer out;
+
+    //scratch space for formatting numbers; a long has at most 19 digits, plus sign and decimal point
+    private final char[] digits = new char[24];
+
+    /**
+     * Constructor that takes a parameter to instantiate the CsvFeedbackWriter class
+     * @param out The Writer to write to; it should be buffered, rows are written in small pieces
+     */
+    public CsvFeedbackWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Method to write the header row
+     * @throws IOException If the underlying Writer fails
+     */
+    public void writeHeader() throws IOException {
+        out.write(HEADER);
+        out.write(LINE_SEPARATOR);
+    }
+
+    /**
+     * Method to write the header row before the first team
+     * @throws IOException If the underlying Writer fails
+     */
+    @Override
+    public void begin() throws IOException {
+        writeHeader();
+    }
+
+    /**
+     * Method to write the group block of a team
+     * @param displayedGroupIndex The group number shown in the csv (starting at 1)
+     * @param team The StudentGroup to be written
+     * @throws IOException If the underlying Writer fails
+     */
+    @Override
+    public void writeTeam(int displayedGroupIndex, StudentGroup team) throws IOException {
+        writeGroup(displayedGroupIndex, team);
+    }
+
+    /**
+     * Method to end the csv; the last group block already ends with a blank row, so nothing is written
+     */
+    @Override
+    public void finish() {
+    }
+
+    /**
+     * Method to write a whole group block: the "Group N" row, the rows of the team and a blank row
+     * @param displayedGroupIndex The group number shown in the csv (starting at 1)
+     * @param team The StudentGroup to be written
+     * @throws IOException If the underlying Writer fails
+     */
+    public void writeGroup(int displayedGroupIndex, StudentGroup team) throws IOException {
+        out.write("Group ");
+        writeInt(displayedGroupIndex);
+        out.write(LINE_SEPARATOR);
+        writeTeamRows(team);
+        out.write(LINE_SEPARATOR);
+    }
+
+    /**
+     * Method to work out how many csv rows a group block has, without writing it
+     * @param teamSize The number of students in the team
+     * @return The number of rows: the "Group N" row, m + 1 rows per student and the blank row
+     */
+    public static long groupRowCount(int teamSize) {
+        return 2L + (long) teamSize * (teamSize + 1);
+    }
+
+    /**
+     * Method to render the rows of a team into a String, so teams can be rendered on several threads
+     * and written in order afterwards
+     * @param team The StudentGroup to be rendered
+     * @return The rows of the team, without the "Group N" row
+     */
+    public static String renderTeamRows(StudentGroup team) {
+        StringWriter rows = new StringWriter();
+        try {
+            new CsvFeedbackWriter(rows).writeTeamRows(team);
+        } catch (IOException io) {
+            //a StringWriter never throws
+            throw new UncheckedIOException(io);
+        }
+        return rows.toString();
+    }
+
+    /**
+     * Method to write a whole group block whose team rows were rendered earlier by writeTeamRows()
+     * @param displayedGroupIndex The group number shown in the csv (starting at 1)
+     * @param teamRows The rendered rows of the team
+     * @throws IOException If the underlying Writer fails
+     */
+    public void writeGroup(int displayedGroupIndex, String teamRows) throws IOException {
+        out.write("Group ");
+        writeInt(displayedGroupIndex);
+        out.write(LINE_SEPARATOR);
+        out.write(teamRows);
+        out.write(LINE_SEPARATOR);
+    }
+
+    /**
+     * Method to write the rows of a team (calculates the average score)
+     * @param team The StudentGroup to be written
+     * @throws IOException If the underlying Writer fails
+     */
+    public void writeTeamRows(StudentGroup team) throws IOException {
+        List<StudentEvaluation> evaluations = team.getEvaluations();
+
+        //for each student A inside the group
+        for (StudentEvaluation evaA : evaluations) {
+
+            String targetStudent = evaA.getStudentEmail();
+            double studentTotal = 0d;
+
+            //go to other students BCD's evaluation to get student A's feedbacks
+            for (StudentEvaluation evaBCD : evaluations) {
+
+                //leave student A's own feedback for last
+                if (evaBCD.getStudentEmail() == targetStudent) {
+                    continue;
+                }
+                Contribution feedback = evaBCD.findContributionAbout(evaA);
+                studentTotal += feedback.getScore();
+
+                out.write(',');
+                out.write(evaBCD.getStudentEmail());
+                out.write(',');
+                out.write(targetStudent);
+                out.write(',');
+                writeScore(feedback.getScore());
+                out.write(',');
+                writeComment(feedback.getComment());
+                out.write(",,");
+                out.write(LINE_SEPARATOR);
+            }
+
+            //now print student A's own feedback
+            Contribution selfFeedback = evaA.getGroup().get(0).getContribution();
+            out.write(",-->,");
+            out.write(targetStudent);
+            out.write(',');
+            writeScore(selfFeedback.getScore());
+            out.write(',');
+            writeComment(selfFeedback.getComment());
+            out.write(LINE_SEPARATOR);
+
+            //print student A's average score excluding self and confidential comment
+            int numberOfStudentsExcludingSelf = evaluations.size() - 1;
+
+            out.write(",-->,");
+            out.write(targetStudent);
+            //if only one student in group, no average score from other students
+            if (numberOfStudentsExcludingSelf == 0) {
+                out.write(",avg NaN /0");
+            } else {
+                out.write(",avg ");
+                writeScore(studentTotal / numberOfStudentsExcludingSelf);
+                out.write(" /");
+                writeInt(numberOfStudentsExcludingSelf);
+            }
+            out.write(",,,");
+            writeComment(evaA.getConfidentialComments());
+            out.write(LINE_SEPARATOR);
+        }
+    }
+
+    /**
+     * Method to write a number with one decimal place, rounding half up like printf("%.1f")
+     * @param value The number to be written
+     * @throws IOException If the underlying Writer fails
+     */
+    public void writeScore(double value) throws IOException {
+        double magnitude = Math.abs(value);
+        if (!(magnitude < MAX_FAST_SCORE)) {
+            //NaN, infinities and huge values are rare enough to go through the formatter
+            out.write(String.format(Locale.ROOT, "%.1f", value));
+            return;
+        }
+
+        double scaled = magnitude * 10d;
+        double fraction = scaled - Math.floor(scaled);
+        if (Math.abs(fraction - 0.5d) < HALF_TOLERANCE || Math.ulp(scaled) > HALF_TOLERANCE) {
+            //too close to a rounding boundary, or too large, for the multiplication to be trusted;
+            //printf rounds the shortest decimal representation, so let it decide
+            out.write(String.format(Locale.ROOT, "%.1f", value));
+            return;
+        }
+
+        long tenths = (long) Math.floor(scaled + 0.5d);
+        int position = digits.length;
+        digits[--position] = (char) ('0' + (tenths % 10));
+        digits[--position] = '.';
+        long whole = tenths / 10;
+        do {
+            digits[--position] = (char) ('0' + (whole % 10));
+            whole /= 10;
+        } while (whole > 0);
+        if (value < 0 || (value == 0d && 1d / value < 0)) {
+            digits[--position] = '-';
+        }
+        out.write(digits, position, digits.length - position);
+    }
+
+    /**
+     * Method to write a comment in double quotes; double quotes inside become single quotes and the
+     * two characters \n become %n, in one pass over the comment
+     * @param comment The comment to be written
+     * @throws IOException If the underlying Writer fails
+     */
+    public void writeComment(String comment) throws IOException {
+        out.write('"');
+        int length = comment.length();
+        int runStart = 0;
+        for (int index = 0; index < length; index++) {
+            char current = comment.charAt(index);
+            if (current == '"') {
+                out.write(comment, runStart, index - runStart);
+                out.write('\'');
+                runStart = index + 1;
+            } else if (current == '\\' && index + 1 < length && comment.charAt(index + 1) == 'n') {
+                out.write(comment, runStart, index - runStart);
+                out.write("%n");
+                index++;
+                runStart = index + 1;
+            }
+        }
+        out.write(comment, runStart, length - runStart);
+        out.write('"');
+    }
+
+    //helper function to write a non negative int without creating a String
+    private void writeInt(int value) throws IOException {
+        int position = digits.length;
+        do {
+            digits[--position] = (char) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        out.write(digits, position, digits.length - position);
+    }
+
+    /**
+     * Method to flush the underlying Writer
+     * @throws IOException If the underlying Writer fails
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Method to close the underlying Writer
+     * @throws IOException If the underlying Writer fails
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
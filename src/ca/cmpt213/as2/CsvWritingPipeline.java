@@ -0,0 +1,29 @@
+package ca.cmpt213.as2;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * An interface for pipelines that write the csv while they process the input, instead of handing back the teams
+ * to be written afterwards, such as the streaming, sharded and spilling pipelines. PeerFeedbackProcessor writes
+ * their csv next to the target and only moves it into place if the run is successful.
+ * @author Bei Bei Li
+ */
+public interface CsvWritingPipeline {
+
+    /**
+     * Method to process the input and write the csv
+     * @param input The directory that contains the .json files, or an input file the pipeline accepts
+     * @param csvWriter The CsvFeedbackWriter to write to; it is not closed
+     * @return The problems found; empty if the run was successful
+     * @throws IOException If the input or the csv cannot be read or written
+     */
+    List<Diagnostic> process(Path input, CsvFeedbackWriter csvWriter) throws IOException;
+
+    /**
+     * Method to retrieve the number of csv rows written by the last call of process()
+     * @return The number of rows, including the header; 0 if the run failed
+     */
+    long getWrittenRowCount();
+}
@@ -0,0 +1,83 @@
+package ca.cmpt213.as2;
+
+/**
+ * A class that represents one problem found while processing a cohort: kind (Kind), subject (String),
+ * message (String). The subject is what the problem is about: a .json file path, a team name, a student email
+ * or the input directory, depending on the kind.
+ * @author Bei Bei Li
+ */
+public class Diagnostic {
+
+    /**
+     * The kinds of problems the pipeline reports; any of them makes the run fail
+     */
+    public enum Kind {
+        //the input directory has no .json file; subject is the directory
+        NO_JSON_FILES,
+        //a .json file or a snapshot could not be read; subject is the file
+        UNREADABLE_FILE,
+        //a .json file is not a valid evaluation (bad JSON, missing field, negative score), or a snapshot or an
+        //archive is not valid; subject is the file
+        INVALID_FILE,
+        //two evaluations of the same student; subject is the student email
+        DUPLICATE_EVALUATION,
+        //a student did not provide feedback for a team member; subject is the team
+        MISSING_FEEDBACK,
+        //a student mentioned someone who did not provide an evaluation; subject is the team
+        MISSING_EVALUATION,
+        //the scores of an evaluation do not add up to 20 per feedback; subject is the team
+        SCORE_SUM
+    }
+
+    private final Kind kind;
+    private final String subject;
+    private final String message;
+
+    /**
+     * Constructor that takes parameters to instantiate the Diagnostic class
+     * @param kind The kind of problem
+     * @param subject The file, team, student or directory the problem is about
+     * @param message The description of the problem, without an "ERROR: " prefix
+     */
+    public Diagnostic(Kind kind, String subject, String message) {
+        this.kind = kind;
+        this.subject = subject;
+        this.message = message;
+    }
+
+    /**
+     * Method to retrieve the kind of problem
+     * @return The Kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Method to retrieve what the problem is about
+     * @return The file path, team name, student email or directory
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Method to retrieve the description of the problem
+     * @return The message, without an "ERROR: " prefix
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() +
+                "[Kind:" + this.kind +
+                ", Subject:" + this.subject +
+                ", Message:" + this.message + "]";
+    }
+}
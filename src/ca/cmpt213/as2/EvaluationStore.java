@@ -0,0 +1,387 @@
+package ca.cmpt213.as2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class that keeps the evaluations of a cohort in columns instead of one object graph per file:
+ * symbols (String[]), evaluation columns (int[]), feedback columns (int[], double[]) and a text arena (byte[]).
+ * Names, emails and team names are stored once and referred to by id, scores are kept in a double[] and the
+ * comments are UTF-8 bytes in one shared arena, so a feedback costs about 20 bytes plus its comment instead of
+ * three objects and three strings. The feedbacks of each evaluation are also indexed by the id of their email, so
+ * a feedback is found by a binary search over ints instead of comparing strings.
+ * add() copies a parsed evaluation in and returns a StudentEvaluation that reads from the store, so StudentGroup,
+ * TeamValidator and CsvFeedbackWriter work the same on both. The feedbacks of a stored evaluation are built when
+ * they are asked for and not kept; emails and names are the same String instances every time.
+ * Evaluations are added by one thread; once the adding is done the store can be read from any number of threads.
+ * @author Bei Bei Li
+ */
+public class EvaluationStore {
+
+    private static final int INITIAL_EVALUATIONS = 256;
+    private static final int INITIAL_FEEDBACKS = 1024;
+    private static final int INITIAL_TEXT_BYTES = 64 * 1024;
+
+    //distinct names, emails and team names; the id of a symbol is its index
+    //the lookup map is kept after adding, so feedbacks can be found by the email given as a String
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+    private String[] symbols = new String[INITIAL_FEEDBACKS];
+    private int symbolCount = 0;
+
+    //evaluation e owns the feedback rows [firstFeedback[e], firstFeedback[e + 1])
+    private int[] firstFeedback = new int[INITIAL_EVALUATIONS + 1];
+    private int[] teamNames = new int[INITIAL_EVALUATIONS];
+    private int[] confidentialComments = new int[INITIAL_EVALUATIONS];
+    private int evaluationCount = 0;
+
+    //one row per feedback
+    private int[] feedbackNames = new int[INITIAL_FEEDBACKS];
+    private int[] feedbackEmails = new int[INITIAL_FEEDBACKS];
+    private double[] scores = new double[INITIAL_FEEDBACKS];
+    private int[] comments = new int[INITIAL_FEEDBACKS];
+    private int feedbackCount = 0;
+
+    //the index of the feedbacks of evaluation e, in the same range as its feedback rows: the email ids in
+    //ascending order and the feedback row of each; a repeated email keeps the order of the file
+    private int[] indexedEmails = new int[INITIAL_FEEDBACKS];
+    private int[] indexedRows = new int[INITIAL_FEEDBACKS];
+
+    //text t is the UTF-8 bytes [textStart[t], textStart[t + 1]) of the arena
+    private byte[] textArena = new byte[INITIAL_TEXT_BYTES];
+    private int[] textStart = new int[INITIAL_FEEDBACKS + 1];
+    private int textCount = 0;
+
+    /**
+     * Method to copy a parsed evaluation into the store
+     * @param studentEva The StudentEvaluation read from a file
+     * @return A StudentEvaluation that reads from the store; the parsed one is not referenced
+     */
+    public StudentEvaluation add(StudentEvaluation studentEva) {
+        List<Group> feedbacks = studentEva.getGroup();
+        int row = evaluationCount;
+
+        growEvaluations(row + 1);
+        growFeedbacks(feedbackCount + feedbacks.size());
+
+        int first = feedbackCount;
+        for (Group eachFeedback : feedbacks) {
+            feedbackNames[feedbackCount] = symbolId(eachFeedback.getName());
+            feedbackEmails[feedbackCount] = symbolId(eachFeedback.getSfuEmail());
+            scores[feedbackCount] = eachFeedback.getContribution().getScore();
+            comments[feedbackCount] = addText(eachFeedback.getContribution().getComment());
+            indexFeedback(first, feedbackCount);
+            feedbackCount++;
+        }
+
+        teamNames[row] = symbolId(studentEva.getGroupName());
+        confidentialComments[row] = addText(studentEva.getConfidentialComments());
+        firstFeedback[row + 1] = feedbackCount;
+        evaluationCount++;
+
+        return new StudentEvaluation(this, row);
+    }
+
+    /**
+     * Method to release the room kept for more evaluations once they are all added; adding more later still works
+     */
+    public void trimToSize() {
+        firstFeedback = Arrays.copyOf(firstFeedback, evaluationCount + 1);
+        teamNames = Arrays.copyOf(teamNames, evaluationCount);
+        confidentialComments = Arrays.copyOf(confidentialComments, evaluationCount);
+        feedbackNames = Arrays.copyOf(feedbackNames, feedbackCount);
+        feedbackEmails = Arrays.copyOf(feedbackEmails, feedbackCount);
+        scores = Arrays.copyOf(scores, feedbackCount);
+        comments = Arrays.copyOf(comments, feedbackCount);
+        indexedEmails = Arrays.copyOf(indexedEmails, feedbackCount);
+        indexedRows = Arrays.copyOf(indexedRows, feedbackCount);
+        textArena = Arrays.copyOf(textArena, textStart[textCount]);
+        textStart = Arrays.copyOf(textStart, textCount + 1);
+        symbols = Arrays.copyOf(symbols, symbolCount);
+    }
+
+    /**
+     * Method to retrieve the number of evaluations in the store
+     * @return The number of evaluations added
+     */
+    public int getEvaluationCount() {
+        return evaluationCount;
+    }
+
+    /**
+     * Method to retrieve the number of feedbacks in the store
+     * @return The number of feedbacks of all the evaluations added
+     */
+    public int getFeedbackCount() {
+        return feedbackCount;
+    }
+
+    /**
+     * Method to estimate the memory held by the columns and the arena, without the symbol strings
+     * @return The number of bytes of the arrays
+     */
+    public long getColumnBytes() {
+        return 4L * (firstFeedback.length + teamNames.length + confidentialComments.length + feedbackNames.length +
+                feedbackEmails.length + comments.length + indexedEmails.length + indexedRows.length +
+                textStart.length) +
+                8L * scores.length + textArena.length;
+    }
+
+    /**
+     * Method to retrieve the number of feedbacks of an evaluation
+     * @param row The row of the evaluation
+     * @return The number of feedbacks
+     */
+    int feedbackCount(int row) {
+        return firstFeedback[row + 1] - firstFeedback[row];
+    }
+
+    /**
+     * Method to retrieve the team name of an evaluation
+     * @param row The row of the evaluation
+     * @return The team # extracted from the owner's email
+     */
+    String teamName(int row) {
+        return symbols[teamNames[row]];
+    }
+
+    /**
+     * Method to retrieve the sfu email of one feedback of an evaluation
+     * @param row The row of the evaluation
+     * @param feedbackIndex The index of the feedback in the evaluation; 0 is the owner
+     * @return The sfu email
+     */
+    String email(int row, int feedbackIndex) {
+        return symbols[feedbackEmails[firstFeedback[row] + feedbackIndex]];
+    }
+
+    /**
+     * Method to retrieve the confidential comment of an evaluation
+     * @param row The row of the evaluation
+     * @return The confidential comment
+     */
+    String confidentialComment(int row) {
+        return text(confidentialComments[row]);
+    }
+
+    /**
+     * Method to retrieve the feedbacks of an evaluation; each one is built when it is read
+     * @param row The row of the evaluation
+     * @return An unmodifiable List<Group> view of the feedbacks
+     */
+    List<Group> feedbacks(int row) {
+        int first = firstFeedback[row];
+        int size = feedbackCount(row);
+        return new AbstractList<Group>() {
+            @Override
+            public Group get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("feedback " + index + " of " + size);
+                }
+                return feedback(first + index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Method to retrieve the sfu emails of the feedbacks of an evaluation excluding self
+     * @param row The row of the evaluation
+     * @return An unmodifiable List<String> view of the emails
+     */
+    List<String> targetEmails(int row) {
+        int first = firstFeedback[row] + 1;
+        int size = feedbackCount(row) - 1;
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("target " + index + " of " + size);
+                }
+                return symbols[feedbackEmails[first + index]];
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Method to find the feedback of an evaluation about a student
+     * @param row The row of the evaluation
+     * @param sfuEmail The sfu email of the feedback wanted
+     * @return The feedback; the last one if the email is listed twice, null if not found
+     */
+    Group findFeedback(int row, String sfuEmail) {
+        int feedbackRow = findFeedbackRow(row, sfuEmail);
+        return feedbackRow < 0 ? null : feedback(feedbackRow);
+    }
+
+    /**
+     * Method to check if an evaluation has a feedback about a student, without building the feedback
+     * @param row The row of the evaluation
+     * @param sfuEmail The sfu email to be checked
+     * @return A boolean value to indicate if one of the feedbacks is about the student
+     */
+    boolean hasFeedback(int row, String sfuEmail) {
+        return findFeedbackRow(row, sfuEmail) >= 0;
+    }
+
+    /**
+     * Method to find the contribution of an evaluation about the owner of another evaluation of the store
+     * @param row The row of the evaluation
+     * @param ownerRow The row of the evaluation whose owner the feedback is about
+     * @return The contribution; the last one if the email is listed twice, null if not found
+     */
+    Contribution findContribution(int row, int ownerRow) {
+        int feedbackRow = findFeedbackRow(row, feedbackEmails[firstFeedback[ownerRow]]);
+        return feedbackRow < 0 ? null : new StoredContribution(this, feedbackRow, scores[feedbackRow]);
+    }
+
+    //helper function to find the feedback row of an email given as a String; -1 if not found
+    private int findFeedbackRow(int row, String sfuEmail) {
+        Integer emailId = symbolIds.get(sfuEmail);
+        return emailId == null ? -1 : findFeedbackRow(row, emailId);
+    }
+
+    //helper function to binary search the index of an evaluation for the last feedback with the email id;
+    //-1 if not found
+    private int findFeedbackRow(int row, int emailId) {
+        int low = firstFeedback[row];
+        int high = firstFeedback[row + 1];
+        //the first position whose email id is greater
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (indexedEmails[middle] <= emailId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low > firstFeedback[row] && indexedEmails[low - 1] == emailId) {
+            return indexedRows[low - 1];
+        }
+        return -1;
+    }
+
+    //helper function to insert a feedback row into the index of its evaluation, whose rows start at first;
+    //an insertion sort, since an evaluation has a handful of feedbacks
+    private void indexFeedback(int first, int feedbackRow) {
+        int emailId = feedbackEmails[feedbackRow];
+        int position = feedbackRow;
+        while (position > first && indexedEmails[position - 1] > emailId) {
+            indexedEmails[position] = indexedEmails[position - 1];
+            indexedRows[position] = indexedRows[position - 1];
+            position--;
+        }
+        indexedEmails[position] = emailId;
+        indexedRows[position] = feedbackRow;
+    }
+
+    //helper function to build the feedback of a row; the comment is decoded when it is read
+    private Group feedback(int feedbackRow) {
+        return new Group(symbols[feedbackNames[feedbackRow]], symbols[feedbackEmails[feedbackRow]],
+                new StoredContribution(this, feedbackRow, scores[feedbackRow]));
+    }
+
+    //helper function to retrieve the id of a symbol, adding it the first time it is seen
+    private int symbolId(String symbol) {
+        Integer id = symbolIds.get(symbol);
+        if (id == null) {
+            id = symbolCount;
+            if (symbolCount == symbols.length) {
+                symbols = Arrays.copyOf(symbols, Math.max(16, symbolCount * 2));
+            }
+            symbols[symbolCount++] = symbol;
+            symbolIds.put(symbol, id);
+        }
+        return id;
+    }
+
+    //helper function to append a text to the arena and return its id
+    private int addText(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int start = textStart[textCount];
+        if (start + bytes.length > textArena.length) {
+            long wanted = Math.max((long) start + bytes.length, textArena.length * 2L);
+            if (wanted > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("the comments of the cohort do not fit in one arena");
+            }
+            textArena = Arrays.copyOf(textArena, (int) wanted);
+        }
+        if (textCount + 1 == textStart.length) {
+            textStart = Arrays.copyOf(textStart, Math.max(16, textStart.length * 2));
+        }
+        System.arraycopy(bytes, 0, textArena, start, bytes.length);
+        textStart[textCount + 1] = start + bytes.length;
+        return textCount++;
+    }
+
+    //helper function to decode a text of the arena
+    private String text(int textId) {
+        int start = textStart[textId];
+        return new String(textArena, start, textStart[textId + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    //helper function to make room for the given number of evaluations
+    private void growEvaluations(int needed) {
+        if (needed > teamNames.length) {
+            int capacity = Math.max(needed, Math.max(16, teamNames.length * 2));
+            firstFeedback = Arrays.copyOf(firstFeedback, capacity + 1);
+            teamNames = Arrays.copyOf(teamNames, capacity);
+            confidentialComments = Arrays.copyOf(confidentialComments, capacity);
+        }
+    }
+
+    //helper function to make room for the given number of feedbacks
+    private void growFeedbacks(int needed) {
+        if (needed > scores.length) {
+            int capacity = Math.max(needed, Math.max(16, scores.length * 2));
+            feedbackNames = Arrays.copyOf(feedbackNames, capacity);
+            feedbackEmails = Arrays.copyOf(feedbackEmails, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+            comments = Arrays.copyOf(comments, capacity);
+            indexedEmails = Arrays.copyOf(indexedEmails, capacity);
+            indexedRows = Arrays.copyOf(indexedRows, capacity);
+        }
+    }
+
+    //a contribution whose comment stays in the arena until it is read
+    private static class StoredContribution extends Contribution {
+        private final EvaluationStore store;
+        private final int feedbackRow;
+
+        StoredContribution(EvaluationStore store, int feedbackRow, double score) {
+            super(score, null);
+            this.store = store;
+            this.feedbackRow = feedbackRow;
+        }
+
+        @Override
+        public String getComment() {
+            return store.text(store.comments[feedbackRow]);
+        }
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() +
+                "[Evaluations:" + this.evaluationCount +
+                ", Feedbacks:" + this.feedbackCount +
+                ", Symbols:" + this.symbolCount +
+                ", Text Bytes:" + this.textStart[this.textCount] + "]";
+    }
+}
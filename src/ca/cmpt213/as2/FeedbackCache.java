@@ -0,0 +1,329 @@
+package ca.cmpt213.as2;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class that keeps the results of the previous run on disk so a rerun only re-parses the .json files that
+ * changed and only re-validates and re-renders the teams those files belong to.
+ * Files are fingerprinted by path, size, modification time and a SHA-256 of the content; a team is
+ * fingerprinted by the content hashes of its members. Only teams that passed validation are cached.
+ * @author Bei Bei Li
+ */
+public class FeedbackCache {
+
+    //bump when the cached data changes shape; a cache with another version is ignored
+    private static final int CACHE_VERSION = 1;
+
+    //files modified this close to the previous save are re-hashed even if size and time match,
+    //because a second write inside the same timestamp tick would not change the modification time
+    private static final long RACY_WINDOW_MILLIS = 2000;
+
+    private static final Gson GSON = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+
+    private int version = CACHE_VERSION;
+    private long savedAt;
+
+    //absolute path -> fingerprint and mapped evaluation
+    private Map<String, FileEntry> files = new HashMap<>();
+
+    //team name -> fingerprint and rendered csv rows
+    private Map<String, TeamEntry> teams = new HashMap<>();
+
+    //the content hash of each evaluation used in this run; not saved
+    private transient Map<StudentEvaluation, String> hashOfEvaluation = new IdentityHashMap<>();
+
+    //the evaluations that were parsed in this run because they were new or changed; not saved
+    private transient List<StudentEvaluation> changedEvaluations = new ArrayList<>();
+
+    //the errors of the files that failed to map in this run; not saved
+    private transient List<Diagnostic> errors = new ArrayList<>();
+
+    //counters for the summary line
+    private transient int reusedFiles;
+    private transient int reusedTeams;
+
+    /**
+     * Method to load the cache from disk; a missing, unreadable or outdated cache gives an empty one
+     * @param cacheFile The cache file
+     * @return The FeedbackCache
+     */
+    public static FeedbackCache load(File cacheFile) {
+        FeedbackCache cache = null;
+        if (cacheFile.isFile()) {
+            try (Reader reader = Files.newBufferedReader(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+                cache = GSON.fromJson(reader, FeedbackCache.class);
+            } catch (IOException | JsonParseException unreadable) {
+                System.out.println("WARNING: ignoring unreadable cache " + cacheFile.getAbsolutePath());
+            }
+        }
+        if (cache == null || cache.version != CACHE_VERSION || cache.files == null || cache.teams == null) {
+            cache = new FeedbackCache();
+        }
+        cache.hashOfEvaluation = new IdentityHashMap<>();
+        cache.changedEvaluations = new ArrayList<>();
+        cache.errors = new ArrayList<>();
+        return cache;
+    }
+
+    /**
+     * Method to save the cache to disk; it is written to a temporary file first and then moved into place
+     * @param cacheFile The cache file
+     * @throws IOException If the cache cannot be written
+     */
+    public void save(File cacheFile) throws IOException {
+        markUpToDate();
+        Path target = cacheFile.toPath().toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            GSON.toJson(this, writer);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Method to record that the files mapped so far are up to date, like save() does, without writing the cache
+     * to disk; a cache that is only kept in memory calls it after each run so unchanged files are not read again
+     */
+    public void markUpToDate() {
+        savedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Method to map the .json files, reusing the cached evaluation of every file that did not change.
+     * Cache entries of files that are gone are dropped.
+     * @param jsonFiles The list of .json files found
+     * @param mapper The mapper used for new and changed files
+     * @return The list of StudentEvaluation, in the same order as jsonFiles (files that failed are left out)
+     */
+    public List<StudentEvaluation> mapFiles(List<File> jsonFiles, JsonFileMapper mapper) {
+        //a cache kept in memory is used for many runs; each run starts from a clean slate
+        hashOfEvaluation.clear();
+        changedEvaluations.clear();
+        errors.clear();
+        reusedFiles = 0;
+        reusedTeams = 0;
+
+        Map<String, FileEntry> seenFiles = new HashMap<>(jsonFiles.size() * 2);
+        List<StudentEvaluation> studentEvaluations = new ArrayList<>(jsonFiles.size());
+
+        for (File eachJsonFile : jsonFiles) {
+            String path = eachJsonFile.getAbsolutePath();
+            long size = eachJsonFile.length();
+            long modified = eachJsonFile.lastModified();
+
+            FileEntry entry = files.get(path);
+            boolean isStatUnchanged = entry != null && entry.size == size && entry.modified == modified
+                    && modified < savedAt - RACY_WINDOW_MILLIS;
+
+            if (!isStatUnchanged) {
+                entry = refresh(eachJsonFile, entry, size, modified, mapper);
+            } else {
+                reusedFiles++;
+            }
+
+            if (entry != null) {
+                seenFiles.put(path, entry);
+                hashOfEvaluation.put(entry.evaluation, entry.contentHash);
+                studentEvaluations.add(entry.evaluation);
+            }
+        }
+
+        files = seenFiles;
+        return studentEvaluations;
+    }
+
+    //helper function to read a file whose size or time changed; it is only re-mapped if its content changed
+    //returns null if the file failed to map
+    private FileEntry refresh(File jsonFile, FileEntry previous, long size, long modified, JsonFileMapper mapper) {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(jsonFile.toPath());
+        } catch (IOException io) {
+            errors.add(new Diagnostic(Diagnostic.Kind.UNREADABLE_FILE, jsonFile.getAbsolutePath(),
+                    "IOException caught in " + jsonFile.getAbsolutePath()));
+            return null;
+        }
+
+        String contentHash = sha256(content);
+        if (previous != null && previous.contentHash.equals(contentHash)) {
+            reusedFiles++;
+            return new FileEntry(size, modified, contentHash, previous.evaluation);
+        }
+
+        try {
+            StudentEvaluation evaluation = mapper.mapContent(content, jsonFile.getAbsolutePath());
+            changedEvaluations.add(evaluation);
+            return new FileEntry(size, modified, contentHash, evaluation);
+        } catch (JsonFileMapper.MappingException mappingError) {
+            errors.add(mappingError.getDiagnostic());
+            return null;
+        }
+    }
+
+    /**
+     * Method to retrieve the evaluations that were parsed in the last call of mapFiles()
+     * @return A List<StudentEvaluation> of new or changed evaluations
+     */
+    public List<StudentEvaluation> getChangedEvaluations() {
+        return changedEvaluations;
+    }
+
+    /**
+     * Method to retrieve the errors collected during the last call of mapFiles()
+     * @return A List<Diagnostic> of the files that failed, empty if every file was mapped
+     */
+    public List<Diagnostic> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Method to retrieve the teams that have to be validated again: the ones whose members changed
+     * @param teams All the teams of this run
+     * @return A List<StudentGroup> of teams without an up to date cache entry
+     */
+    public List<StudentGroup> findChangedTeams(List<StudentGroup> teams) {
+        List<StudentGroup> changedTeams = new ArrayList<>();
+        for (StudentGroup eachTeam : teams) {
+            TeamEntry entry = this.teams.get(eachTeam.getStudentGroupName());
+            if (entry == null || !entry.fingerprint.equals(fingerprint(eachTeam))) {
+                changedTeams.add(eachTeam);
+            }
+        }
+        return changedTeams;
+    }
+
+    /**
+     * Method to retrieve the csv rows of a team, rendering and caching them if the team changed.
+     * Call it only for teams that passed validation.
+     * @param team The StudentGroup to be rendered
+     * @return The csv rows of the team, without the "Group N" row
+     */
+    public String renderTeam(StudentGroup team) {
+        String rows = findRows(team);
+        if (rows == null) {
+            rows = CsvFeedbackWriter.renderTeamRows(team);
+            storeRows(team, rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Method to retrieve the cached csv rows of a team if its members did not change
+     * @param team The StudentGroup to look up
+     * @return The csv rows of the team, or null if they have to be rendered again
+     */
+    public String findRows(StudentGroup team) {
+        TeamEntry entry = teams.get(team.getStudentGroupName());
+        if (entry != null && entry.fingerprint.equals(fingerprint(team))) {
+            reusedTeams++;
+            return entry.rows;
+        }
+        return null;
+    }
+
+    /**
+     * Method to cache the csv rows rendered for a team; the rows can be rendered on another thread,
+     * but this has to be called from the thread that uses the cache
+     * @param team The StudentGroup the rows belong to
+     * @param rows The csv rows of the team, without the "Group N" row
+     */
+    public void storeRows(StudentGroup team, String rows) {
+        teams.put(team.getStudentGroupName(), new TeamEntry(fingerprint(team), rows));
+    }
+
+    /**
+     * Method to drop the cached rows of teams that are no longer in the input
+     * @param currentTeams All the teams of this run
+     */
+    public void retainTeams(List<StudentGroup> currentTeams) {
+        Map<String, TeamEntry> kept = new HashMap<>(currentTeams.size() * 2);
+        for (StudentGroup eachTeam : currentTeams) {
+            TeamEntry entry = teams.get(eachTeam.getStudentGroupName());
+            if (entry != null) {
+                kept.put(eachTeam.getStudentGroupName(), entry);
+            }
+        }
+        teams = kept;
+    }
+
+    /**
+     * Method to retrieve a one line summary of what was reused in this run
+     * @return The summary
+     */
+    public String getSummary() {
+        return "cache: reused " + reusedFiles + " of " + files.size() + " files and " +
+                reusedTeams + " of " + teams.size() + " teams";
+    }
+
+    //helper function to fingerprint a team by the content hashes of its (sorted) members
+    private String fingerprint(StudentGroup team) {
+        List<String> memberHashes = new ArrayList<>(team.getGroupSize());
+        for (StudentEvaluation eachEva : team.getEvaluations()) {
+            memberHashes.add(hashOfEvaluation.get(eachEva));
+        }
+        Collections.sort(memberHashes);
+        return sha256(String.join(",", memberHashes).getBytes(StandardCharsets.UTF_8));
+    }
+
+    //helper function to hash bytes with SHA-256 into a hex string
+    private static String sha256(byte[] content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException missing) {
+            //every Java platform is required to support SHA-256
+            throw new IllegalStateException(missing);
+        }
+        byte[] hash = digest.digest(content);
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte eachByte : hash) {
+            hex.append(Character.forDigit((eachByte >> 4) & 0xF, 16)).append(Character.forDigit(eachByte & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    //the fingerprint and mapped evaluation of one .json file
+    private static class FileEntry {
+        private long size;
+        private long modified;
+        private String contentHash;
+        private StudentEvaluation evaluation;
+
+        FileEntry(long size, long modified, String contentHash, StudentEvaluation evaluation) {
+            this.size = size;
+            this.modified = modified;
+            this.contentHash = contentHash;
+            this.evaluation = evaluation;
+        }
+    }
+
+    //the fingerprint and rendered csv rows of one team
+    private static class TeamEntry {
+        private String fingerprint;
+        private String rows;
+
+        TeamEntry(String fingerprint, String rows) {
+            this.fingerprint = fingerprint;
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ca.cmpt213.as2;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * An interface for the outputs a successful run is written to, one team at a time and in group order.
+ * A sink writes each team as it is given and keeps nothing, so several sinks can be fed from a single pass over
+ * the teams (see MultiFeedbackSink).
+ * @author Bei Bei Li
+ */
+public interface FeedbackOutputSink extends Closeable, Flushable {
+
+    /**
+     * Method to write what comes before the first team, e.g. the header row
+     * @throws IOException If the output cannot be written
+     */
+    void begin() throws IOException;
+
+    /**
+     * Method to write one team
+     * @param displayedGroupIndex The group number of the team (starting at 1)
+     * @param team The StudentGroup to be written, sorted by email
+     * @throws IOException If the output cannot be written
+     */
+    void writeTeam(int displayedGroupIndex, StudentGroup team) throws IOException;
+
+    /**
+     * Method to write what comes after the last team; the sink is not closed
+     * @throws IOException If the output cannot be written
+     */
+    void finish() throws IOException;
+}
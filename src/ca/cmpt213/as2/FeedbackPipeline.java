@@ -0,0 +1,349 @@
+package ca.cmpt213.as2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class that processes a cohort of peer feedback .json files into validated teams without printing or
+ * exiting, so one JVM can process many cohorts: threads (int), cache (FeedbackCache, null unless incremental).
+ * Every problem is returned as a Diagnostic in the ProcessingResult. Like the command line program, a run
+ * stops after the first stage that finds problems (search, mapping, grouping, validation), but reports
+ * all the problems of that stage.
+ * The input may also be a zip, tar or tar.gz archive of the .json files, which is read without extracting it,
+ * or an NDJSON file with one evaluation per line.
+ * With PipelineMetrics, the wall time of each stage and the counts of files, evaluations and teams are recorded.
+ * The stages are package-private so the benchmarks module can time them one at a time.
+ * @author Bei Bei Li
+ */
+public class FeedbackPipeline {
+
+    private final int threads;
+    private final FeedbackCache cache;
+    private final PipelineMetrics metrics;
+
+    /**
+     * Constructor that takes a parameter to instantiate the FeedbackPipeline class
+     * @param threads The number of worker threads for searching and mapping; 1 runs on the calling thread
+     */
+    public FeedbackPipeline(int threads) {
+        this(threads, null);
+    }
+
+    /**
+     * Constructor that takes parameters to instantiate the FeedbackPipeline class in incremental mode:
+     * only new or changed files are mapped, and only the teams they belong to are validated.
+     * The caller saves the cache after writing the csv.
+     * @param threads The number of worker threads; files are mapped one by one in incremental mode
+     * @param cache The cache of the previous run, or null to process everything
+     */
+    public FeedbackPipeline(int threads, FeedbackCache cache) {
+        this(threads, cache, PipelineMetrics.disabled());
+    }
+
+    /**
+     * Constructor that takes parameters to instantiate the FeedbackPipeline class with metrics
+     * @param threads The number of worker threads; files are mapped one by one in incremental mode
+     * @param cache The cache of the previous run, or null to process everything
+     * @param metrics The PipelineMetrics every run records to
+     */
+    public FeedbackPipeline(int threads, FeedbackCache cache, PipelineMetrics metrics) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads has to be at least 1");
+        }
+        this.threads = threads;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Method to process all the .json files under the directory, or in the archive, or the lines of the NDJSON file.
+     * An archive or NDJSON file is always mapped in full, even in incremental mode.
+     * @param inputDirectory The directory that contains the .json files, a zip, tar or tar.gz archive of them,
+     *                       or a .ndjson or .jsonl file
+     * @return The ProcessingResult with the teams and the problems found
+     */
+    public ProcessingResult process(Path inputDirectory) {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        List<StudentGroup> teams = Collections.emptyList();
+
+        List<StudentEvaluation> studentEvaluations = Collections.emptyList();
+        JsonEntrySource entrySource = entrySourceOf(inputDirectory);
+        if (entrySource != null) {
+            //documents are parsed while the archive or NDJSON file is still being read
+            long startNanos = metrics.startTimer();
+            JsonFileMapper mapper = new JsonFileMapper(threads, new EvaluationStore(), metrics);
+            studentEvaluations = mapEntries(mapper, entrySource, inputDirectory, diagnostics);
+            metrics.recordFilesDiscovered(mapper.getMappedFileCount());
+            metrics.recordStage(PipelineMetrics.SEARCH_AND_MAP, startNanos);
+        } else if (threads > 1 && cache == null) {
+            //files are mapped while the directories are still being listed
+            long startNanos = metrics.startTimer();
+            studentEvaluations = searchAndMapJson(inputDirectory, diagnostics);
+            metrics.recordStage(PipelineMetrics.SEARCH_AND_MAP, startNanos);
+        } else {
+            long startNanos = metrics.startTimer();
+            List<File> jsonFiles = searchJson(inputDirectory, diagnostics);
+            metrics.recordStage(PipelineMetrics.SEARCH, startNanos);
+
+            if (diagnostics.isEmpty()) {
+                startNanos = metrics.startTimer();
+                studentEvaluations = cache != null
+                        ? mapJsonIncremental(jsonFiles, diagnostics) : mapJson(jsonFiles, diagnostics);
+                metrics.recordStage(PipelineMetrics.MAP, startNanos);
+            }
+        }
+
+        if (diagnostics.isEmpty()) {
+            long startNanos = metrics.startTimer();
+            teams = groupStudents(studentEvaluations, diagnostics);
+            metrics.recordStage(PipelineMetrics.GROUP, startNanos);
+            metrics.recordTeamsGrouped(teams.size());
+        }
+        if (diagnostics.isEmpty()) {
+            long startNanos = metrics.startTimer();
+            validateTeams(teams, diagnostics);
+            metrics.recordStage(PipelineMetrics.VALIDATE, startNanos);
+        }
+        metrics.recordDiagnostics(diagnostics.size());
+        return new ProcessingResult(teams, diagnostics, cache, threads);
+    }
+
+    /**
+     * Method to process the teams saved in a snapshot instead of the .json files they came from; the teams are
+     * checked again, so a snapshot gives the same result as the run that saved it
+     * @param snapshotFile The snapshot file written by FeedbackSnapshot
+     * @return The ProcessingResult with the teams and the problems found
+     */
+    public ProcessingResult processSnapshot(Path snapshotFile) {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        List<StudentGroup> teams = Collections.emptyList();
+
+        long startNanos = metrics.startTimer();
+        try {
+            teams = FeedbackSnapshot.read(snapshotFile);
+        } catch (IOException unreadable) {
+            diagnostics.add(new Diagnostic(Diagnostic.Kind.INVALID_FILE, snapshotFile.toString(),
+                    unreadable.getMessage()));
+        }
+        metrics.recordStage(PipelineMetrics.LOAD_SNAPSHOT, startNanos);
+        metrics.recordTeamsGrouped(teams.size());
+
+        if (diagnostics.isEmpty()) {
+            startNanos = metrics.startTimer();
+            validateTeams(teams, diagnostics);
+            metrics.recordStage(PipelineMetrics.VALIDATE, startNanos);
+        }
+        metrics.recordDiagnostics(diagnostics.size());
+        return new ProcessingResult(teams, diagnostics, cache, threads);
+    }
+
+    /**
+     * Method to check all the .json files under the directory without keeping their text: each file is read
+     * token by token for the emails, the scores and the presence of the required fields, while the names and
+     * comments are skipped. The skeleton evaluations are grouped and checked like in process(), so the problems
+     * found are the ones a full run would report, in the same order, and no csv can be written from them.
+     * Every file is checked, even in incremental mode; nothing is recorded to the metrics.
+     * @param inputDirectory The directory that contains the .json files, a zip, tar or tar.gz archive of them,
+     *                       or a .ndjson or .jsonl file
+     * @return The problems of the first stage that failed; empty if a full run would succeed
+     */
+    public List<Diagnostic> preScan(Path inputDirectory) {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        JsonFileMapper mapper = new JsonFileMapper(threads, null, PipelineMetrics.disabled(), false);
+        List<StudentEvaluation> skeletons;
+
+        JsonEntrySource entrySource = entrySourceOf(inputDirectory);
+        if (entrySource != null) {
+            skeletons = mapEntries(mapper, entrySource, inputDirectory, diagnostics);
+        } else {
+            List<File> jsonFiles = new JsonFileWalker(1).findAll(inputDirectory);
+            if (jsonFiles.isEmpty()) {
+                diagnostics.add(noJsonFiles(inputDirectory));
+                return diagnostics;
+            }
+            skeletons = mapper.mapFiles(jsonFiles);
+            diagnostics.addAll(mapper.getErrors());
+        }
+
+        if (diagnostics.isEmpty()) {
+            List<StudentGroup> teams = groupStudents(skeletons, diagnostics);
+            if (diagnostics.isEmpty()) {
+                checkTeams(teams, diagnostics);
+            }
+        }
+        return diagnostics;
+    }
+
+    /**
+     * Recursively finds all the .json files in the directory; each directory is listed once and the files of
+     * a directory come before those of its subdirectories
+     * @param inputDirectory The directory that contains the .json files
+     * @param diagnostics The list the problems are added to
+     * @return A List<File> that contains all the found .json files
+     */
+    List<File> searchJson(Path inputDirectory, List<Diagnostic> diagnostics) {
+        List<File> jsonFiles = new JsonFileWalker(1).findAll(inputDirectory);
+        metrics.recordFilesDiscovered(jsonFiles.size());
+
+        if (jsonFiles.isEmpty()) {
+            diagnostics.add(noJsonFiles(inputDirectory));
+        }
+        return jsonFiles;
+    }
+
+    /**
+     * Search for .json files and map them at the same time: directories are listed on the worker threads
+     * and each file is mapped as soon as it is found
+     * @param inputDirectory The directory that contains the .json files
+     * @param diagnostics The list the problems are added to
+     * @return The list of StudentEvaluation, in the same order as the sequential search
+     */
+    List<StudentEvaluation> searchAndMapJson(Path inputDirectory, List<Diagnostic> diagnostics) {
+        JsonFileMapper mapper = new JsonFileMapper(threads, new EvaluationStore(), metrics);
+        List<StudentEvaluation> studentEvaluations = mapper.mapWhileWalking(new JsonFileWalker(threads), inputDirectory);
+        metrics.recordFilesDiscovered(mapper.getMappedFileCount());
+
+        if (mapper.getMappedFileCount() < 1) {
+            diagnostics.add(noJsonFiles(inputDirectory));
+        }
+        diagnostics.addAll(mapper.getErrors());
+        return studentEvaluations;
+    }
+
+    /**
+     * Method to find the reader of an input that holds many evaluations in one file
+     * @param input The input path
+     * @return A JsonArchiveWalker for an archive, an NdjsonLineWalker for an NDJSON file, or null for a directory
+     */
+    static JsonEntrySource entrySourceOf(Path input) {
+        if (JsonArchiveWalker.isArchive(input)) {
+            return new JsonArchiveWalker();
+        } else if (NdjsonLineWalker.isNdjson(input)) {
+            return new NdjsonLineWalker();
+        }
+        return null;
+    }
+
+    /**
+     * Read an archive or an NDJSON file and map its JSON documents to java objects as they are read
+     * @param mapper The JsonFileMapper to map the documents with
+     * @param entrySource The reader of the file
+     * @param input The archive or NDJSON file
+     * @param diagnostics The list the problems are added to: one per document that failed, or one for the file
+     * @return The list of StudentEvaluation of the documents that were mapped
+     */
+    List<StudentEvaluation> mapEntries(JsonFileMapper mapper, JsonEntrySource entrySource, Path input,
+                                       List<Diagnostic> diagnostics) {
+        List<StudentEvaluation> studentEvaluations;
+        try {
+            studentEvaluations = mapper.mapEntries(entrySource, input);
+        } catch (IOException unreadable) {
+            diagnostics.add(new Diagnostic(Diagnostic.Kind.INVALID_FILE, input.toString(),
+                    "IOException caught in " + input.toAbsolutePath() +
+                    (unreadable.getMessage() == null ? "" : ": " + unreadable.getMessage())));
+            return Collections.emptyList();
+        }
+
+        if (mapper.getMappedFileCount() < 1) {
+            diagnostics.add(noJsonFiles(input));
+        }
+        diagnostics.addAll(mapper.getErrors());
+        return studentEvaluations;
+    }
+
+    /**
+     * Map .json files to java objects; required fields are checked while mapping
+     * @param jsonFiles The list of .json files found
+     * @param diagnostics The list the problems are added to, one per file that failed
+     * @return The list of StudentEvaluation of the files that were mapped
+     */
+    List<StudentEvaluation> mapJson(List<File> jsonFiles, List<Diagnostic> diagnostics) {
+        JsonFileMapper mapper = new JsonFileMapper(threads, new EvaluationStore(), metrics);
+        List<StudentEvaluation> studentEvaluations = mapper.mapFiles(jsonFiles);
+
+        diagnostics.addAll(mapper.getErrors());
+        return studentEvaluations;
+    }
+
+    /**
+     * Map .json files to java objects, reusing the cached objects of the files that did not change
+     * @param jsonFiles The list of .json files found
+     * @param diagnostics The list the problems are added to, one per file that failed
+     * @return The list of StudentEvaluation of the files that were mapped
+     */
+    List<StudentEvaluation> mapJsonIncremental(List<File> jsonFiles, List<Diagnostic> diagnostics) {
+        //changed files are few after the first run, so they are mapped one by one
+        List<StudentEvaluation> studentEvaluations = cache.mapFiles(jsonFiles, new JsonFileMapper(1, null, metrics));
+
+        diagnostics.addAll(cache.getErrors());
+        return studentEvaluations;
+    }
+
+    /**
+     * Group the evaluations into teams, in the order the teams are first seen
+     * @param studentEvaluations The mapped evaluations
+     * @param diagnostics The list the problems are added to, one per duplicated evaluation
+     * @return A List<StudentGroup> of the teams, each sorted by email
+     */
+    List<StudentGroup> groupStudents(List<StudentEvaluation> studentEvaluations, List<Diagnostic> diagnostics) {
+        TeamGrouper grouper = new TeamGrouper();
+
+        for (StudentEvaluation eachEva : studentEvaluations) {
+            if (grouper.add(eachEva) == false) {
+                diagnostics.add(new Diagnostic(Diagnostic.Kind.DUPLICATE_EVALUATION, eachEva.getStudentEmail(),
+                        "student evaluation duplicated for " + eachEva.getStudentEmail()));
+            }
+        }
+        return grouper.getTeams();
+    }
+
+    /**
+     * Check every team: feedback for everyone, evaluations from everyone mentioned and the score sums.
+     * Teams are checked on the worker threads. In incremental mode only the teams whose members changed are checked.
+     * @param teams The teams to be checked
+     * @param diagnostics The list the problems are added to
+     */
+    void validateTeams(List<StudentGroup> teams, List<Diagnostic> diagnostics) {
+        List<StudentGroup> teamsToCheck = teams;
+        if (cache != null) {
+            teamsToCheck = cache.findChangedTeams(teams);
+        }
+        checkTeams(teamsToCheck, diagnostics);
+    }
+
+    //helper function to check the given teams on the worker threads
+    private void checkTeams(List<StudentGroup> teamsToCheck, List<Diagnostic> diagnostics) {
+        //teams are independent, so they are checked in parallel and their diagnostics joined in team order
+        TeamValidator validator = new TeamValidator();
+        try (TeamForkJoin forkJoin = new TeamForkJoin(threads)) {
+            for (List<Diagnostic> eachTeamErrors : forkJoin.map(teamsToCheck, validator::validateTeam)) {
+                diagnostics.addAll(eachTeamErrors);
+            }
+        }
+    }
+
+    /**
+     * Method to create the diagnostic of a directory without .json files
+     * @param inputDirectory The directory that was searched
+     * @return The NO_JSON_FILES Diagnostic
+     */
+    static Diagnostic noJsonFiles(Path inputDirectory) {
+        return new Diagnostic(Diagnostic.Kind.NO_JSON_FILES, inputDirectory.toString(),
+                "no .JSON file found in the given path");
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() +
+                "[Threads:" + this.threads +
+                ", Incremental:" + (this.cache != null) + "]";
+    }
+}
@@ -0,0 +1,231 @@
+package ca.cmpt213.as2;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class that saves the grouped teams of a cohort in a compact binary file and loads them back through a
+ * memory-mapped buffer, so later runs and reports can start from the teams instead of re-reading the .json files.
+ * The file is big-endian and length-prefixed:
+ *     magic "FBSN", version (int)
+ *     string table: count (int), then each string as its UTF-8 length (int) and bytes
+ *     teams: count (int), then per team its name id (int) and evaluation count (int),
+ *         per evaluation its confidential comment id (int) and feedback count (int),
+ *         per feedback its name id (int), sfu email id (int), score (double) and comment id (int)
+ * Every string (names, emails, team names and comments) is written once and referred to by its index in the table;
+ * -1 stands for null. Teams are written in csv order with their evaluations sorted, so a loaded snapshot prints
+ * the same csv as the run that saved it.
+ * @author Bei Bei Li
+ */
+public class FeedbackSnapshot {
+
+    //"FBSN" in ASCII
+    private static final int MAGIC = 0x4642534E;
+
+    //bump when the layout changes; a snapshot with another version is refused
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final int NULL_ID = -1;
+
+    //a class of static methods only
+    private FeedbackSnapshot() {
+    }
+
+    /**
+     * Method to save the teams to a snapshot file; it is written to a temporary file first and then moved into place
+     * @param teams The teams in csv order, each sorted by email
+     * @param snapshotFile The snapshot file
+     * @throws IOException If the snapshot cannot be written
+     */
+    public static void write(List<StudentGroup> teams, Path snapshotFile) throws IOException {
+        //the string table comes first, so every string is given its id before anything is written
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (StudentGroup eachTeam : teams) {
+            idOf(eachTeam.getStudentGroupName(), stringIds, strings);
+            for (StudentEvaluation eachEva : eachTeam.getEvaluations()) {
+                idOf(eachEva.getConfidentialComments(), stringIds, strings);
+                for (Group eachFeedback : eachEva.getGroup()) {
+                    idOf(eachFeedback.getName(), stringIds, strings);
+                    idOf(eachFeedback.getSfuEmail(), stringIds, strings);
+                    idOf(eachFeedback.getContribution().getComment(), stringIds, strings);
+                }
+            }
+        }
+
+        Path target = snapshotFile.toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+
+            out.writeInt(strings.size());
+            for (String eachString : strings) {
+                byte[] bytes = eachString.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(teams.size());
+            for (StudentGroup eachTeam : teams) {
+                out.writeInt(idOf(eachTeam.getStudentGroupName(), stringIds, strings));
+                out.writeInt(eachTeam.getGroupSize());
+                for (StudentEvaluation eachEva : eachTeam.getEvaluations()) {
+                    out.writeInt(idOf(eachEva.getConfidentialComments(), stringIds, strings));
+                    out.writeInt(eachEva.getGroupSize());
+                    for (Group eachFeedback : eachEva.getGroup()) {
+                        out.writeInt(idOf(eachFeedback.getName(), stringIds, strings));
+                        out.writeInt(idOf(eachFeedback.getSfuEmail(), stringIds, strings));
+                        out.writeDouble(eachFeedback.getContribution().getScore());
+                        out.writeInt(idOf(eachFeedback.getContribution().getComment(), stringIds, strings));
+                    }
+                }
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Method to check if a file is a snapshot, by the magic it starts with; its version is checked by read()
+     * @param file The file to check
+     * @return A boolean value to indicate if the file is a regular file that starts with "FBSN"
+     */
+    public static boolean isSnapshot(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException unreadable) {
+            //too short or unreadable; it is not taken for a snapshot
+            return false;
+        }
+    }
+
+    /**
+     * Method to load the teams of a snapshot file; the file is memory-mapped and decoded in one pass,
+     * and each string of the table becomes one String shared by every feedback that uses it
+     * @param snapshotFile The snapshot file
+     * @return A List<StudentGroup> in csv order, each sorted by email
+     * @throws IOException If the file cannot be read, or is not a snapshot this version can load
+     */
+    public static List<StudentGroup> read(Path snapshotFile) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("snapshot " + snapshotFile + " is too large to be mapped");
+            }
+            //the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                throw new IOException(snapshotFile + " is not a feedback snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("snapshot " + snapshotFile + " has version " + version +
+                        ", expected " + SNAPSHOT_VERSION);
+            }
+
+            String[] strings = new String[count(buffer, snapshotFile)];
+            byte[] scratch = new byte[256];
+            for (int id = 0; id < strings.length; id++) {
+                int length = count(buffer, snapshotFile);
+                if (length > scratch.length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                buffer.get(scratch, 0, length);
+                strings[id] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+
+            int teamCount = count(buffer, snapshotFile);
+            List<StudentGroup> teams = new ArrayList<>(teamCount);
+            for (int teamIndex = 0; teamIndex < teamCount; teamIndex++) {
+                String teamName = string(strings, buffer.getInt(), snapshotFile);
+                StudentGroup team = new StudentGroup(teamName);
+                int evaluationCount = count(buffer, snapshotFile);
+                for (int evaluationIndex = 0; evaluationIndex < evaluationCount; evaluationIndex++) {
+                    team.addStudentEva(readEvaluation(buffer, strings, teamName, snapshotFile));
+                }
+                //the evaluations were saved sorted, so sorting them is a single pass
+                team.sortEvaluations();
+                teams.add(team);
+            }
+
+            if (buffer.hasRemaining()) {
+                throw new IOException("snapshot " + snapshotFile + " has trailing bytes");
+            }
+            return teams;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException truncated) {
+            throw new IOException("snapshot " + snapshotFile + " is truncated", truncated);
+        }
+    }
+
+    //helper function to read one evaluation; the owner's feedback is given the team name it was saved under
+    private static StudentEvaluation readEvaluation(MappedByteBuffer buffer, String[] strings, String teamName,
+                                                    Path snapshotFile) throws IOException {
+        String confidentialComments = string(strings, buffer.getInt(), snapshotFile);
+        int feedbackCount = count(buffer, snapshotFile);
+        List<Group> feedbacks = new ArrayList<>(feedbackCount);
+        for (int feedbackIndex = 0; feedbackIndex < feedbackCount; feedbackIndex++) {
+            String name = string(strings, buffer.getInt(), snapshotFile);
+            String sfuEmail = string(strings, buffer.getInt(), snapshotFile);
+            double score = buffer.getDouble();
+            String comment = string(strings, buffer.getInt(), snapshotFile);
+            String groupName = feedbackIndex == 0 ? teamName : null;
+            feedbacks.add(new Group(name, sfuEmail, groupName, new Contribution(score, comment)));
+        }
+        return new StudentEvaluation(feedbacks, confidentialComments);
+    }
+
+    //helper function to retrieve the id of a string, adding it to the table the first time it is seen
+    private static int idOf(String string, Map<String, Integer> stringIds, List<String> strings) {
+        if (string == null) {
+            return NULL_ID;
+        }
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = strings.size();
+            strings.add(string);
+            stringIds.put(string, id);
+        }
+        return id;
+    }
+
+    //helper function to look up a string id read from the snapshot
+    private static String string(String[] strings, int id, Path snapshotFile) throws IOException {
+        if (id == NULL_ID) {
+            return null;
+        }
+        if (id < 0 || id >= strings.length) {
+            throw new IOException("snapshot " + snapshotFile + " refers to a missing string");
+        }
+        return strings[id];
+    }
+
+    //helper function to read a count or a length; every item takes at least a byte, so a count larger than
+    //what is left of the file is corrupted and is refused before anything is allocated for it
+    private static int count(MappedByteBuffer buffer, Path snapshotFile) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IOException("snapshot " + snapshotFile + " is corrupted");
+        }
+        return count;
+    }
+}
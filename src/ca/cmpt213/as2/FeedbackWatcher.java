@@ -0,0 +1,240 @@
+package ca.cmpt213.as2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class that keeps the processor running and re-processes the input directory whenever .json files are added,
+ * changed or removed: inputDirectory (Path), csvFile (File), cache (FeedbackCache), debounceMillis (long).
+ * Changes are collected until the directory has been quiet for debounceMillis, so a burst of submissions near a
+ * deadline is processed once; a batch is never held back longer than MAX_BATCH_DEBOUNCES debounces.
+ * The cache stays in memory between runs, so each run only parses the changed files and only re-validates and
+ * re-renders the groups they belong to. The csv is replaced atomically after each successful run; when a run
+ * fails its problems are printed and the previous csv is left in place.
+ * @author Bei Bei Li
+ */
+public class FeedbackWatcher {
+
+    //a stream of changes delays the run by at most this many debounce periods
+    private static final int MAX_BATCH_DEBOUNCES = 10;
+
+    private final Path inputDirectory;
+    private final File csvFile;
+    private final File cacheFile;
+    private final FeedbackCache cache;
+    private final FeedbackPipeline pipeline;
+    private final long debounceMillis;
+
+    //the directory each registered watch key belongs to
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+    /**
+     * Constructor that takes parameters to instantiate the FeedbackWatcher class
+     * @param options The command line options; the cache file is loaded and saved after each run if one is given
+     * @param csvFile The csv file to write
+     */
+    public FeedbackWatcher(ProcessorOptions options, File csvFile) {
+        this.inputDirectory = new File(options.getInputPath()).toPath();
+        this.csvFile = csvFile;
+        this.debounceMillis = options.getWatchDebounceMillis();
+
+        if (options.isIncremental()) {
+            this.cacheFile = new File(options.getCachePath());
+            this.cache = FeedbackCache.load(cacheFile);
+        } else {
+            this.cacheFile = null;
+            this.cache = new FeedbackCache();
+        }
+        this.pipeline = new FeedbackPipeline(options.getThreads(), cache);
+    }
+
+    /**
+     * Method to process the input once and then every time it changes; it returns when the thread is interrupted
+     * @throws IOException If the directories cannot be watched
+     */
+    public void run() throws IOException {
+        try (WatchService watchService = inputDirectory.getFileSystem().newWatchService()) {
+            registerTree(watchService, inputDirectory);
+            processOnce();
+
+            while (!Thread.currentThread().isInterrupted()) {
+                if (awaitBatch(watchService)) {
+                    processOnce();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException stopped) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Method to process the input and replace the csv if the run is successful; a batch that fails with an
+     * unexpected exception is reported and leaves the previous csv in place, so the watcher keeps running
+     * @return The ProcessingResult of the run, or null if it failed with an unexpected exception
+     */
+    public ProcessingResult processOnce() {
+        try {
+            return processBatch();
+        } catch (RuntimeException failed) {
+            System.out.println("ERROR: " + failed + " caught while processing " + inputDirectory);
+            System.out.println(timestamp() + " run failed, " + csvFile + " was not updated");
+            return null;
+        }
+    }
+
+    //helper function for processOnce(): one run over the input
+    private ProcessingResult processBatch() {
+        long startNanos = System.nanoTime();
+        ProcessingResult result = pipeline.process(inputDirectory);
+
+        if (result.isSuccessful() == false) {
+            for (Diagnostic eachProblem : result.getDiagnostics()) {
+                System.out.println("ERROR: " + eachProblem.getMessage());
+            }
+            System.out.println(timestamp() + " run failed, " + csvFile + " was not updated");
+            return result;
+        }
+
+        try {
+            writeCsv(result);
+            cache.retainTeams(result.getTeams());
+            if (cacheFile != null) {
+                cache.save(cacheFile);
+            } else {
+                cache.markUpToDate();
+            }
+        } catch (IOException io) {
+            System.out.println("ERROR: IOException caught while writing " + csvFile);
+            return result;
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        System.out.println(timestamp() + " " + result.getTeams().size() + " groups written to " + csvFile +
+                " in " + elapsedMillis + " ms (" + cache.getSummary() + ")");
+        return result;
+    }
+
+    //helper function to write the csv next to the target and move it into place,
+    //so a reader never sees a half written csv
+    private void writeCsv(ProcessingResult result) throws IOException {
+        Path target = csvFile.toPath().toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (CsvFeedbackWriter csvWriter =
+                     new CsvFeedbackWriter(Files.newBufferedWriter(temporary, StandardCharsets.UTF_8))) {
+            result.writeCsv(csvWriter);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    //helper function to wait for a batch of relevant changes: blocks for the first one, then waits until
+    //the directory has been quiet for debounceMillis or the batch is MAX_BATCH_DEBOUNCES debounces old
+    //returns false if the events were not about .json files or directories
+    private boolean awaitBatch(WatchService watchService) throws InterruptedException {
+        if (!drain(watchService, watchService.take())) {
+            return false;
+        }
+
+        long batchDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis * MAX_BATCH_DEBOUNCES);
+        long quietDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+
+        while (true) {
+            long waitNanos = Math.min(quietDeadline, batchDeadline) - System.nanoTime();
+            if (waitNanos <= 0) {
+                return true;
+            }
+            WatchKey key = watchService.poll(waitNanos, TimeUnit.NANOSECONDS);
+            if (key != null && drain(watchService, key)) {
+                quietDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+            }
+        }
+    }
+
+    //helper function to read the events of a key and reset it; new directories are watched as well
+    //returns true if any event is about a .json file or a directory
+    private boolean drain(WatchService watchService, WatchKey key) {
+        Path directory = watchedDirectories.get(key);
+        boolean isRelevant = false;
+
+        for (WatchEvent<?> eachEvent : key.pollEvents()) {
+            if (eachEvent.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                //events were lost, so anything may have changed
+                isRelevant = true;
+                continue;
+            }
+
+            Path changed = directory.resolve((Path) eachEvent.context());
+            if (Files.isDirectory(changed)) {
+                isRelevant = true;
+                if (eachEvent.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    registerTree(watchService, changed);
+                }
+            } else if (changed.getFileName().toString().endsWith(".json")) {
+                isRelevant = true;
+            } else if (eachEvent.kind() == StandardWatchEventKinds.ENTRY_DELETE
+                    && watchedDirectories.containsValue(changed)) {
+                //a watched directory was removed, with whatever .json files it had
+                isRelevant = true;
+            }
+        }
+
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+        return isRelevant;
+    }
+
+    //helper function to watch a directory and all of its subdirectories
+    private void registerTree(WatchService watchService, Path directory) {
+        try {
+            WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            watchedDirectories.put(key, directory);
+        } catch (IOException unwatchable) {
+            System.out.println("WARNING: cannot watch " + directory);
+            return;
+        }
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path eachEntry : entries) {
+                if (Files.isDirectory(eachEntry)) {
+                    registerTree(watchService, eachEntry);
+                }
+            }
+        } catch (IOException | SecurityException unreadable) {
+            //same as the search: an unreadable directory is skipped
+        }
+    }
+
+    //helper function for the time of day at the start of each report line
+    private static String timestamp() {
+        return "[" + LocalTime.now().truncatedTo(ChronoUnit.SECONDS) + "]";
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() +
+                "[Input Directory:" + this.inputDirectory +
+                ", Csv File:" + this.csvFile +
+                ", Debounce:" + this.debounceMillis + "ms]";
+    }
+}
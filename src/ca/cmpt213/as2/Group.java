@@ -20,6 +20,37 @@ public class Group {
     @Expose
     private Contribution contribution;
 
+    //the team # inside sfuEmail, worked out on first use instead of splitting the email on every call
+    private transient String groupName;
+
+    //used by Gson's reflective mapping
+    private Group() {
+    }
+
+    /**
+     * Constructor that takes parameters to instantiate the Group class
+     * @param name The name of the student the feedback is about
+     * @param sfuEmail The sfu email of the student the feedback is about
+     * @param contribution The contribution (score and comment)
+     */
+    Group(String name, String sfuEmail, Contribution contribution) {
+        this(name, sfuEmail, null, contribution);
+    }
+
+    /**
+     * Constructor that takes parameters to instantiate the Group class with its team # already known
+     * @param name The name of the student the feedback is about
+     * @param sfuEmail The sfu email of the student the feedback is about
+     * @param groupName The team # inside sfuEmail, or null to work it out on first use
+     * @param contribution The contribution (score and comment)
+     */
+    Group(String name, String sfuEmail, String groupName, Contribution contribution) {
+        this.name = name;
+        this.sfuEmail = sfuEmail;
+        this.groupName = groupName;
+        this.contribution = contribution;
+    }
+
     /**
      * Method to retrieve the name in the feedback
      * @return The name of the feedback (String)
@@ -45,13 +76,27 @@ public class Group {
     }
 
     /**
-     * Method to retrieve the contribution object in the feedback
-     * @return The contribution of the feedback (Contribution)
+     * Method to retrieve the team # inside the sfu email of the feedback
+     * @return The team # (String), e.g. t1 for abc-t1-s1
      */
     public String getGroupName(){
-        String[] groupNameElements = this.sfuEmail.split("-");
-        return groupNameElements[1];
+        String cached = this.groupName;
+        if (cached == null) {
+            String[] groupNameElements = this.sfuEmail.split("-");
+            cached = groupNameElements[1];
+            this.groupName = cached;
+        }
+        return cached;
+    }
 
+    /**
+     * Method to find the team # inside an sfu email without failing
+     * @param sfuEmail The sfu email
+     * @return The team #, or null if the email has no team # (getGroupName() fails for such an email)
+     */
+    static String groupNameOf(String sfuEmail) {
+        String[] groupNameElements = sfuEmail.split("-");
+        return groupNameElements.length > 1 ? groupNameElements[1] : null;
     }
 
     /**
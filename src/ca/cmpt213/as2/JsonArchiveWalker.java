@@ -0,0 +1,344 @@
+package ca.cmpt213.as2;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * A class that finds the .json entries of a zip, tar or tar.gz archive in one streaming pass, without extracting
+ * anything to disk: the archive is decompressed as it is read and the content of each .json entry is handed to an
+ * EntrySink as soon as the entry is read, so the entries can be parsed while the rest is still being decompressed.
+ * Each entry carries its position in the order JsonFileWalker gives an extracted copy: the .json files of a
+ * directory first, then its subdirectories, both in the order they first appear in the archive. An entry has no
+ * path of its own; its subject is the archive's absolute path followed by "!/" and the entry name, e.g.
+ * /data/section1.zip!/abc-t1-s1/a-feedback.json.
+ * Tar archives are read in the ustar format, with GNU long names and pax paths.
+ * @author Bei Bei Li
+ */
+public class JsonArchiveWalker implements JsonEntrySource {
+
+    private static final int TAR_BLOCK_SIZE = 512;
+
+    //the archive formats, told by the file name
+    private enum Format {ZIP, TAR, TAR_GZ}
+
+    /**
+     * Method to check if a path names an archive this class can read
+     * @param path The input path
+     * @return A boolean value to indicate if the path is a .zip, .tar, .tar.gz or .tgz file
+     */
+    public static boolean isArchive(Path path) {
+        return formatOf(path) != null && Files.isRegularFile(path);
+    }
+
+    /**
+     * Method to read the archive and hand every .json entry to the sink
+     * @param archive The .zip, .tar, .tar.gz or .tgz file
+     * @param sink The EntrySink that receives the entries
+     * @throws IOException If the archive cannot be read or is not a valid archive, or the sink fails
+     */
+    @Override
+    public void walk(Path archive, EntrySink sink) throws IOException {
+        Format format = formatOf(archive);
+        if (format == null) {
+            throw new IOException("not a zip, tar or tar.gz archive: " + archive);
+        }
+
+        EntryOrder order = new EntryOrder(archive.toAbsolutePath().toString());
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(archive))) {
+            if (format == Format.ZIP) {
+                walkZip(in, order, sink);
+            } else if (format == Format.TAR) {
+                walkTar(in, order, sink);
+            } else {
+                try (InputStream gunzipped = new BufferedInputStream(new GZIPInputStream(in))) {
+                    walkTar(gunzipped, order, sink);
+                }
+            }
+        }
+    }
+
+    //helper function to tell the format from the file name; null if it is not an archive
+    private static Format formatOf(Path path) {
+        Path fileName = path.getFileName();
+        if (fileName == null) {
+            return null;
+        }
+        String name = fileName.toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".zip")) {
+            return Format.ZIP;
+        } else if (name.endsWith(".tar")) {
+            return Format.TAR;
+        } else if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+            return Format.TAR_GZ;
+        }
+        return null;
+    }
+
+    //helper function to read the entries of a zip archive
+    private static void walkZip(InputStream in, EntryOrder order, EntrySink sink) throws IOException {
+        ZipInputStream zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            if (!entry.isDirectory() && isJson(entry.getName())) {
+                //the size is not known before the data when the archive was written as a stream
+                byte[] content = entry.getSize() >= 0 && entry.getSize() <= Integer.MAX_VALUE - 8
+                        ? readExactly(zip, (int) entry.getSize()) : readToEnd(zip);
+                sink.accept(order.place(entry.getName()), content);
+            }
+        }
+    }
+
+    //helper function to read the entries of a tar archive, block by block
+    private static void walkTar(InputStream in, EntryOrder order, EntrySink sink) throws IOException {
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        //a GNU long name or a pax path replaces the name of the next entry
+        String nextName = null;
+
+        while (readBlock(in, header)) {
+            if (isZeroBlock(header)) {
+                //the end of the archive
+                return;
+            }
+            if (!hasValidChecksum(header)) {
+                throw new IOException("invalid tar header checksum");
+            }
+
+            long size = parseNumber(header, 124, 12);
+            char type = (char) header[156];
+            String name = nextName != null ? nextName : headerName(header);
+            nextName = null;
+
+            if (type == 'L') {
+                nextName = trimNul(new String(readData(in, size), StandardCharsets.UTF_8));
+            } else if (type == 'x') {
+                nextName = paxPath(readData(in, size));
+            } else if ((type == '0' || type == '\0' || type == '7') && isJson(name)) {
+                sink.accept(order.place(name), readData(in, size));
+            } else {
+                skipData(in, size);
+            }
+        }
+    }
+
+    //helper function to read the name field, with the ustar prefix if there is one
+    private static String headerName(byte[] header) {
+        String name = field(header, 0, 100);
+        boolean isUstar = header[257] == 'u' && header[258] == 's' && header[259] == 't' && header[260] == 'a'
+                && header[261] == 'r';
+        String prefix = isUstar ? field(header, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    //helper function to read the path of a pax extended header ("<length> path=<value>\n" records); null if none
+    private static String paxPath(byte[] records) throws IOException {
+        String path = null;
+        int position = 0;
+        while (position < records.length) {
+            int space = position;
+            while (space < records.length && records[space] != ' ') {
+                space++;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(records, position, space - position, StandardCharsets.UTF_8));
+            } catch (NumberFormatException notNumber) {
+                throw new IOException("invalid pax header");
+            }
+            if (length <= 0 || position + length > records.length) {
+                throw new IOException("invalid pax header");
+            }
+            String record = new String(records, space + 1, position + length - space - 2, StandardCharsets.UTF_8);
+            if (record.startsWith("path=")) {
+                path = record.substring("path=".length());
+            }
+            position += length;
+        }
+        return path;
+    }
+
+    //helper function to read a NUL terminated text field of a tar header
+    private static String field(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    //helper function to read a numeric field of a tar header: octal, or base-256 when the first bit is set
+    private static long parseNumber(byte[] header, int offset, int length) throws IOException {
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7F;
+            for (int index = offset + 1; index < offset + length; index++) {
+                value = (value << 8) | (header[index] & 0xFF);
+            }
+            return value;
+        }
+        long value = 0;
+        for (int index = offset; index < offset + length; index++) {
+            byte digit = header[index];
+            if (digit == 0 || digit == ' ') {
+                if (value > 0) {
+                    break;
+                }
+                continue;
+            }
+            if (digit < '0' || digit > '7') {
+                throw new IOException("invalid number in tar header");
+            }
+            value = value * 8 + (digit - '0');
+        }
+        return value;
+    }
+
+    //helper function to check the header checksum: the sum of the header bytes, with the checksum field as spaces
+    private static boolean hasValidChecksum(byte[] header) throws IOException {
+        long expected = parseNumber(header, 148, 8);
+        long unsigned = 0;
+        for (int index = 0; index < TAR_BLOCK_SIZE; index++) {
+            unsigned += index >= 148 && index < 156 ? ' ' : header[index] & 0xFF;
+        }
+        return expected == unsigned;
+    }
+
+    //helper function to check for the zero block that ends a tar archive
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte eachByte : block) {
+            if (eachByte != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //helper function to read one block; false at the end of the stream
+    private static boolean readBlock(InputStream in, byte[] block) throws IOException {
+        int read = in.readNBytes(block, 0, block.length);
+        if (read == 0) {
+            return false;
+        }
+        if (read < block.length) {
+            throw new EOFException("truncated tar archive");
+        }
+        return true;
+    }
+
+    //helper function to read the data of a tar entry and skip the padding up to the next block
+    private static byte[] readData(InputStream in, long size) throws IOException {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("tar entry too large");
+        }
+        byte[] data = readExactly(in, (int) size);
+        skipFully(in, padding(size));
+        return data;
+    }
+
+    //helper function to skip the data of a tar entry and its padding
+    private static void skipData(InputStream in, long size) throws IOException {
+        skipFully(in, size + padding(size));
+    }
+
+    //helper function to work out the padding after size bytes of data
+    private static long padding(long size) {
+        return (TAR_BLOCK_SIZE - size % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE;
+    }
+
+    //helper function to read exactly length bytes
+    private static byte[] readExactly(InputStream in, int length) throws IOException {
+        byte[] data = in.readNBytes(length);
+        if (data.length < length) {
+            throw new EOFException("truncated archive entry");
+        }
+        return data;
+    }
+
+    //helper function to read a stream until its end
+    private static byte[] readToEnd(InputStream in) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        in.transferTo(data);
+        return data.toByteArray();
+    }
+
+    //helper function to skip exactly length bytes
+    private static void skipFully(InputStream in, long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("truncated tar archive");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    //helper function to drop the NUL a GNU long name ends with
+    private static String trimNul(String name) {
+        int nul = name.indexOf('\0');
+        return nul < 0 ? name : name.substring(0, nul);
+    }
+
+    //helper function to check if an entry name is a .json file, like JsonFileWalker checks file names
+    private static boolean isJson(String name) {
+        return name.endsWith(".json");
+    }
+
+    //gives each entry the position its extracted copy would have in the search order of JsonFileWalker
+    private static class EntryOrder {
+        private final String archivePath;
+        private final Directory root = new Directory(new int[0]);
+
+        EntryOrder(String archivePath) {
+            this.archivePath = archivePath;
+        }
+
+        //places an entry under its directories, adding the directories not seen before
+        JsonFileWalker.DiscoveredFile place(String entryName) {
+            String[] segments = entryName.split("/");
+            Directory directory = root;
+            for (int segmentIndex = 0; segmentIndex < segments.length - 1; segmentIndex++) {
+                String segment = segments[segmentIndex];
+                //"./a/b.json" and "a//b.json" are the same file as "a/b.json" once extracted
+                if (segment.isEmpty() || segment.equals(".")) {
+                    continue;
+                }
+                directory = directory.subDirectory(segment);
+            }
+            int[] ordinal = JsonFileWalker.childOrdinal(directory.ordinal, 0, directory.fileCount++);
+            return new JsonFileWalker.DiscoveredFile(archivePath + "!/" + entryName, ordinal);
+        }
+    }
+
+    //a directory of the archive: its position, its subdirectories in order of first appearance and its file count
+    private static class Directory {
+        private final int[] ordinal;
+        private final Map<String, Directory> subDirectories = new LinkedHashMap<>();
+        private int fileCount = 0;
+
+        Directory(int[] ordinal) {
+            this.ordinal = ordinal;
+        }
+
+        Directory subDirectory(String name) {
+            Directory found = subDirectories.get(name);
+            if (found == null) {
+                found = new Directory(JsonFileWalker.childOrdinal(ordinal, 1, subDirectories.size()));
+                subDirectories.put(name, found);
+            }
+            return found;
+        }
+    }
+}
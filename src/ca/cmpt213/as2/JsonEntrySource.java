@@ -0,0 +1,29 @@
+package ca.cmpt213.as2;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * An interface for inputs that hold many evaluations in one file, such as an archive of .json files or an
+ * NDJSON dump: the file is read once from start to end and each evaluation is handed over as the UTF-8 bytes
+ * of its JSON document, on the thread that reads the file, so the callers can parse them while the rest of
+ * the file is still being read.
+ * @author Bei Bei Li
+ */
+public interface JsonEntrySource {
+
+    /**
+     * Receives the JSON documents of the input, in the order they are read
+     */
+    interface EntrySink {
+        void accept(JsonFileWalker.DiscoveredFile jsonEntry, byte[] content) throws IOException;
+    }
+
+    /**
+     * Method to read the input and hand every JSON document to the sink
+     * @param input The file to read
+     * @param sink The EntrySink that receives the documents
+     * @throws IOException If the file cannot be read or is not valid, or the sink fails
+     */
+    void walk(Path input, EntrySink sink) throws IOException;
+}
@@ -0,0 +1,168 @@
+package ca.cmpt213.as2;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class that writes group_feedback.json with Gson's streaming JsonWriter: json (JsonWriter).
+ * The file is one object whose "marks" array has an entry per student, in csv order:
+ *     {"userid": "abc-t1-s1", "feedback-contribution": {"mark": 18.13, "comment": "[STUDENT 1]:\n...\n\n..."}}
+ * The mark is the average score the rest of the team gave the student, with two decimal places (NaN for a
+ * team of one), and the comment joins what each of them said, in the same order as the csv rows.
+ * Each entry is written as soon as it is worked out, so no JSON tree is built.
+ * @author Bei Bei Li
+ */
+public class JsonFeedbackWriter implements FeedbackOutputSink {
+
+    private final JsonWriter json;
+
+    /**
+     * Constructor that takes a parameter to instantiate the JsonFeedbackWriter class
+     * @param out The Writer to write to; it should be buffered
+     */
+    public JsonFeedbackWriter(Writer out) {
+        this.json = new JsonWriter(out);
+        this.json.setIndent("  ");
+        //a team of one has no average, which is written as NaN like in the csv
+        this.json.setLenient(true);
+    }
+
+    /**
+     * Method to open the object and its "marks" array
+     * @throws IOException If the underlying Writer fails
+     */
+    @Override
+    public void begin() throws IOException {
+        json.beginObject();
+        json.name("marks");
+        json.beginArray();
+    }
+
+    /**
+     * Method to write the entry of every student of a team
+     * @param displayedGroupIndex The group number of the team; the entries are not numbered
+     * @param team The StudentGroup to be written
+     * @throws IOException If the underlying Writer fails
+     */
+    @Override
+    public void writeTeam(int displayedGroupIndex, StudentGroup team) throws IOException {
+        writeMarks(markTeam(team));
+    }
+
+    /**
+     * Method to work out the entry of every student of a team without writing it, so teams can be worked out on
+     * several threads and written in order afterwards with writeMarks()
+     * @param team The StudentGroup to be worked out
+     * @return The entries of the students, in csv order
+     */
+    public static List<StudentMark> markTeam(StudentGroup team) {
+        List<StudentEvaluation> evaluations = team.getEvaluations();
+        List<StudentMark> marks = new ArrayList<>(evaluations.size());
+
+        for (StudentEvaluation evaA : evaluations) {
+            String targetStudent = evaA.getStudentEmail();
+            double studentTotal = 0d;
+            StringBuilder comments = new StringBuilder();
+            int otherStudent = 0;
+
+            //the other students' feedbacks about student A
+            for (StudentEvaluation evaBCD : evaluations) {
+                if (evaBCD.getStudentEmail() == targetStudent) {
+                    continue;
+                }
+                Contribution feedback = evaBCD.findContributionAbout(evaA);
+                studentTotal += feedback.getScore();
+                otherStudent++;
+                comments.append("[STUDENT ").append(otherStudent).append("]:\n")
+                        .append(feedback.getComment()).append("\n\n");
+            }
+
+            BigDecimal mark = otherStudent == 0 ? null : roundMark(studentTotal / otherStudent);
+            marks.add(new StudentMark(targetStudent, mark, comments.toString()));
+        }
+        return marks;
+    }
+
+    /**
+     * Method to write the entries of a team worked out by markTeam()
+     * @param marks The entries of the students, in csv order
+     * @throws IOException If the underlying Writer fails
+     */
+    public void writeMarks(List<StudentMark> marks) throws IOException {
+        for (StudentMark eachMark : marks) {
+            json.beginObject();
+            json.name("userid").value(eachMark.userId);
+            json.name("feedback-contribution");
+            json.beginObject();
+            if (eachMark.mark == null) {
+                json.name("mark").value(Double.NaN);
+            } else {
+                json.name("mark").value(eachMark.mark);
+            }
+            json.name("comment").value(eachMark.comment);
+            json.endObject();
+            json.endObject();
+        }
+    }
+
+    /**
+     * Method to close the array and the object
+     * @throws IOException If the underlying Writer fails
+     */
+    @Override
+    public void finish() throws IOException {
+        json.endArray();
+        json.endObject();
+    }
+
+    //helper function to round a mark to two decimal places, rounding half up like printf("%.2f"); the scale is
+    //kept, so 14.6 is written as 14.60
+    private static BigDecimal roundMark(double mark) {
+        return BigDecimal.valueOf(mark).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Method to flush the underlying Writer
+     * @throws IOException If the underlying Writer fails
+     */
+    @Override
+    public void flush() throws IOException {
+        json.flush();
+    }
+
+    /**
+     * Method to close the underlying Writer
+     * @throws IOException If the underlying Writer fails, or the document was not finished
+     */
+    @Override
+    public void close() throws IOException {
+        json.close();
+    }
+
+    /**
+     * A class that represents the entry of a student: userId (String), mark (BigDecimal, null for a team of
+     * one), comment (String).
+     */
+    public static class StudentMark {
+        private final String userId;
+        private final BigDecimal mark;
+        private final String comment;
+
+        StudentMark(String userId, BigDecimal mark, String comment) {
+            this.userId = userId;
+            this.mark = mark;
+            this.comment = comment;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getName() + "[User Id:" + this.userId + ", Mark:" + this.mark + "]";
+        }
+    }
+}
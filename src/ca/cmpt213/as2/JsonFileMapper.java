@@ -0,0 +1,483 @@
+package ca.cmpt213.as2;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A class that maps .json files to StudentEvaluation objects, either on the calling thread or on a bounded
+ * pool of worker threads: parallelism (int), errors (List<Diagnostic>).
+ * A file that is missing a required field or has a negative score fails to map.
+ * The resulting list keeps the order of the given files, so both paths produce the same output.
+ * With an EvaluationStore, the evaluations are kept in the store's columns instead of as mapped.
+ * Without reading text, the names and comments are checked but not kept, so the evaluations are skeletons.
+ * @author Bei Bei Li
+ */
+public class JsonFileMapper {
+
+    //names and emails repeat in every teammate's file, so one table per mapper keeps them once;
+    //null for a mapper that does not intern
+    private final SymbolTable symbols;
+
+    //Gson instances are thread-safe, so one is shared by all workers
+    //StudentEvaluation is read by the streaming adapter, which also checks the required fields
+    private final Gson gson;
+
+    private final int parallelism;
+
+    //the store mapped evaluations are copied into, or null to keep them as mapped
+    private final EvaluationStore store;
+
+    private final PipelineMetrics metrics;
+
+    //one diagnostic per file that failed to map, in the order of the given files
+    private final List<Diagnostic> errors = new ArrayList<>();
+
+    private int mappedFileCount = 0;
+
+    //one read buffer per thread, grown to the largest file that thread has read, so reading a file
+    //allocates nothing once the buffer is big enough
+    private static final ThreadLocal<ReadBuffer> READ_BUFFERS = ThreadLocal.withInitial(ReadBuffer::new);
+
+    //documents read ahead of the workers per worker thread, so reading an archive or an NDJSON file cannot
+    //outrun the parsing by more than a bounded number of documents held in memory
+    private static final int ENTRIES_AHEAD_PER_THREAD = 64;
+
+    /**
+     * Constructor that takes a parameter to instantiate the JsonFileMapper class
+     * @param parallelism The number of worker threads; 1 maps the files on the calling thread
+     */
+    public JsonFileMapper(int parallelism) {
+        this(parallelism, null);
+    }
+
+    /**
+     * Constructor that takes parameters to instantiate the JsonFileMapper class with a store: each mapped
+     * evaluation is copied into the store on the calling thread as soon as it is collected, so the mapped
+     * objects do not outlive their file
+     * @param parallelism The number of worker threads; 1 maps the files on the calling thread
+     * @param store The EvaluationStore the evaluations are kept in, or null to keep the mapped objects
+     */
+    public JsonFileMapper(int parallelism, EvaluationStore store) {
+        this(parallelism, store, PipelineMetrics.disabled());
+    }
+
+    /**
+     * Constructor that takes parameters to instantiate the JsonFileMapper class with metrics: the size and
+     * the read and parse time of every mapped file are recorded
+     * @param parallelism The number of worker threads; 1 maps the files on the calling thread
+     * @param store The EvaluationStore the evaluations are kept in, or null to keep the mapped objects
+     * @param metrics The PipelineMetrics to record to
+     */
+    public JsonFileMapper(int parallelism, EvaluationStore store, PipelineMetrics metrics) {
+        this(parallelism, store, metrics, true);
+    }
+
+    /**
+     * Constructor that takes parameters to instantiate the JsonFileMapper class, reading the names and comments
+     * or only checking them
+     * @param parallelism The number of worker threads; 1 maps the files on the calling thread
+     * @param store The EvaluationStore the evaluations are kept in, or null to keep the mapped objects
+     * @param metrics The PipelineMetrics to record to
+     * @param isReadingText False to map skeleton evaluations: every name and comment is checked and left empty
+     */
+    public JsonFileMapper(int parallelism, EvaluationStore store, PipelineMetrics metrics, boolean isReadingText) {
+        this(parallelism, store, metrics, isReadingText, new SymbolTable());
+    }
+
+    //constructor shared by the public ones and withoutInterning()
+    private JsonFileMapper(int parallelism, EvaluationStore store, PipelineMetrics metrics, boolean isReadingText,
+                           SymbolTable symbols) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism has to be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.store = store;
+        this.metrics = metrics;
+        this.symbols = symbols;
+        this.gson = new GsonBuilder()
+                .registerTypeAdapter(StudentEvaluation.class, new StudentEvaluationAdapter(symbols, isReadingText))
+                .create();
+    }
+
+    /**
+     * Method to create a mapper for callers that map one file at a time and keep nothing they map: it does not
+     * intern, so it holds no table that grows with the cohort
+     * @param metrics The PipelineMetrics to record to
+     * @return The JsonFileMapper, with one thread and no store
+     */
+    static JsonFileMapper withoutInterning(PipelineMetrics metrics) {
+        return new JsonFileMapper(1, null, metrics, true, null);
+    }
+
+    /**
+     * Method to map all the given .json files; files that fail are skipped and reported in getErrors()
+     * @param jsonFiles The list of .json files found
+     * @return The list of StudentEvaluation, in the same order as jsonFiles
+     */
+    public List<StudentEvaluation> mapFiles(List<File> jsonFiles) {
+        errors.clear();
+        List<StudentEvaluation> studentEvaluations;
+        if (parallelism == 1 || jsonFiles.size() <= 1) {
+            studentEvaluations = mapSequentially(jsonFiles);
+        } else {
+            studentEvaluations = mapInParallel(jsonFiles);
+        }
+        trimStore();
+        return studentEvaluations;
+    }
+
+    /**
+     * Method to map the .json files while they are being found: each file is submitted to the worker pool
+     * as soon as the walker hands it over, instead of waiting for the whole tree to be listed.
+     * Files that fail are skipped and reported in getErrors().
+     * @param walker The JsonFileWalker that finds the files
+     * @param root The directory to search
+     * @return The list of StudentEvaluation, in the order of the previous sequential search
+     */
+    public List<StudentEvaluation> mapWhileWalking(JsonFileWalker walker, Path root) {
+        errors.clear();
+        ConcurrentLinkedQueue<PendingFile> pending = new ConcurrentLinkedQueue<>();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+
+        List<StudentEvaluation> studentEvaluations = new ArrayList<>();
+        try {
+            walker.walk(root, discovered -> pending.add(
+                    new PendingFile(discovered, pool.submit(() -> mapFile(discovered.toFile())))));
+
+            List<PendingFile> ordered = new ArrayList<>(pending);
+            Collections.sort(ordered);
+            mappedFileCount = ordered.size();
+
+            for (PendingFile eachFile : ordered) {
+                StudentEvaluation evaluation = await(eachFile.result, eachFile.file.getSubject());
+                if (evaluation != null) {
+                    studentEvaluations.add(keep(evaluation));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        trimStore();
+        return studentEvaluations;
+    }
+
+    /**
+     * Method to map the JSON documents of an archive or an NDJSON file while it is being read: each document
+     * read by the source is submitted to the worker pool, so parsing overlaps with reading the rest of the file;
+     * with one thread the documents are mapped as they are read. Documents that fail are skipped and reported in
+     * getErrors().
+     * @param source The JsonEntrySource that reads the file, e.g. a JsonArchiveWalker
+     * @param input The archive or NDJSON file
+     * @return The list of StudentEvaluation, in the order of the documents' positions given by the source
+     * @throws IOException If the file cannot be read or is not valid
+     */
+    public List<StudentEvaluation> mapEntries(JsonEntrySource source, Path input) throws IOException {
+        errors.clear();
+        List<PendingFile> pending = new ArrayList<>();
+        ExecutorService pool = parallelism == 1 ? null : Executors.newFixedThreadPool(parallelism);
+        Semaphore entriesAhead = new Semaphore(parallelism * ENTRIES_AHEAD_PER_THREAD);
+
+        List<StudentEvaluation> studentEvaluations = new ArrayList<>();
+        try {
+            source.walk(input, (jsonEntry, content) -> {
+                if (pool == null) {
+                    FutureTask<StudentEvaluation> mapped =
+                            new FutureTask<>(() -> mapEntry(content, jsonEntry.getSubject()));
+                    mapped.run();
+                    pending.add(new PendingFile(jsonEntry, mapped));
+                    return;
+                }
+                try {
+                    entriesAhead.acquire();
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while reading " + input);
+                }
+                pending.add(new PendingFile(jsonEntry, pool.submit(() -> {
+                    try {
+                        return mapEntry(content, jsonEntry.getSubject());
+                    } finally {
+                        entriesAhead.release();
+                    }
+                })));
+            });
+
+            Collections.sort(pending);
+            mappedFileCount = pending.size();
+
+            for (PendingFile eachEntry : pending) {
+                StudentEvaluation evaluation = await(eachEntry.result, eachEntry.file.getSubject());
+                if (evaluation != null) {
+                    studentEvaluations.add(keep(evaluation));
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+        trimStore();
+        return studentEvaluations;
+    }
+
+    /**
+     * Method to retrieve the number of files found by the last call of mapWhileWalking() or mapEntries()
+     * @return The number of .json files found, including those that failed to map
+     */
+    public int getMappedFileCount() {
+        return mappedFileCount;
+    }
+
+    /**
+     * Method to retrieve the errors collected during the last call of mapFiles()
+     * @return A List<Diagnostic> of the files that failed, empty if every file was mapped
+     */
+    public List<Diagnostic> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Method to check if the last call of mapFiles() mapped every file
+     * @return A boolean value to indicate if any file failed to map
+     */
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    //helper function to map the files one by one on the calling thread
+    private List<StudentEvaluation> mapSequentially(List<File> jsonFiles) {
+        List<StudentEvaluation> studentEvaluations = new ArrayList<>();
+        for (File eachJsonFile : jsonFiles) {
+            try {
+                studentEvaluations.add(keep(mapFile(eachJsonFile)));
+            } catch (MappingException mappingError) {
+                errors.add(mappingError.getDiagnostic());
+            }
+        }
+        return studentEvaluations;
+    }
+
+    //helper function to map the files on the worker pool
+    //futures are read back in submission order, which keeps the order of jsonFiles
+    private List<StudentEvaluation> mapInParallel(List<File> jsonFiles) {
+        List<StudentEvaluation> studentEvaluations = new ArrayList<>();
+        int workers = Math.min(parallelism, jsonFiles.size());
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+
+        try {
+            List<Future<StudentEvaluation>> pending = new ArrayList<>(jsonFiles.size());
+            for (File eachJsonFile : jsonFiles) {
+                Callable<StudentEvaluation> task = () -> mapFile(eachJsonFile);
+                pending.add(pool.submit(task));
+            }
+
+            for (int fileIndex = 0; fileIndex < pending.size(); fileIndex++) {
+                StudentEvaluation evaluation = await(pending.get(fileIndex), jsonFiles.get(fileIndex).getAbsolutePath());
+                if (evaluation != null) {
+                    studentEvaluations.add(keep(evaluation));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return studentEvaluations;
+    }
+
+    //helper function to give back the store's spare room once a whole list of files is mapped
+    private void trimStore() {
+        if (store != null) {
+            store.trimToSize();
+        }
+    }
+
+    //helper function to copy a mapped evaluation into the store, if there is one; always on the collecting thread
+    private StudentEvaluation keep(StudentEvaluation evaluation) {
+        return store == null ? evaluation : store.add(evaluation);
+    }
+
+    /**
+     * Method to wait for a file mapped on another thread; a failure is recorded in getErrors()
+     * @param result The pending result of mapFile()
+     * @param subject The absolute path of the file being mapped, or the label of the document, for error messages
+     * @return The StudentEvaluation, or null if the file failed to map
+     */
+    StudentEvaluation await(Future<StudentEvaluation> result, String subject) {
+        try {
+            return result.get();
+        } catch (ExecutionException failed) {
+            Throwable cause = failed.getCause();
+            if (cause instanceof MappingException) {
+                errors.add(((MappingException) cause).getDiagnostic());
+            } else {
+                errors.add(unreadable(subject, cause + " caught in " + subject));
+            }
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            errors.add(unreadable(subject, "interrupted while mapping " + subject));
+        }
+        return null;
+    }
+
+    /**
+     * Method to map a single .json file; the file is read in one go into this thread's reusable buffer
+     * and parsed from the UTF-8 bytes
+     * @param jsonFile The .json file to be mapped
+     * @return The StudentEvaluation read from the file
+     * @throws MappingException If the file cannot be read or is not a valid evaluation
+     */
+    StudentEvaluation mapFile(File jsonFile) throws MappingException {
+        long startNanos = metrics.startTimer();
+        String subject = jsonFile.getAbsolutePath();
+        ReadBuffer buffer = READ_BUFFERS.get();
+        int length;
+        try {
+            length = buffer.readFully(jsonFile.toPath());
+        } catch (NoSuchFileException | FileNotFoundException fileNotFound) {
+            throw new MappingException(unreadable(subject, "FileNotFoundException caught in " + subject));
+        } catch (IOException io) {
+            throw new MappingException(unreadable(subject, "IOException caught in " + subject));
+        }
+        StudentEvaluation evaluation = parse(new Utf8ByteReader(buffer.bytes, 0, length), subject);
+        metrics.recordFile(startNanos, length);
+        return evaluation;
+    }
+
+    /**
+     * Method to map the content of a .json file that was already read
+     * @param content The UTF-8 bytes of the file
+     * @param subject The absolute path of the file the content came from, or the label of the document,
+     *                for error messages
+     * @return The StudentEvaluation read from the content
+     * @throws MappingException If the content is not a valid evaluation
+     */
+    StudentEvaluation mapContent(byte[] content, String subject) throws MappingException {
+        return parse(new Utf8ByteReader(content, 0, content.length), subject);
+    }
+
+    //helper function to map a document of an archive or an NDJSON file and record it like a file read from disk
+    private StudentEvaluation mapEntry(byte[] content, String subject) throws MappingException {
+        long startNanos = metrics.startTimer();
+        StudentEvaluation evaluation = mapContent(content, subject);
+        metrics.recordFile(startNanos, content.length);
+        return evaluation;
+    }
+
+    //helper function to map one evaluation from a reader, closing it afterwards
+    private StudentEvaluation parse(Reader source, String subject) throws MappingException {
+        StudentEvaluation evaluation;
+
+        try (JsonReader jsonReader = new JsonReader(source)) {
+
+            evaluation = gson.fromJson(jsonReader, StudentEvaluation.class);
+
+        } catch (StudentEvaluationAdapter.InvalidEvaluationException invalid) {
+            throw new MappingException(invalid(subject, invalid.getMessage() + " in file " + subject));
+        } catch (JsonSyntaxException jsonSyntax) {
+            throw new MappingException(invalid(subject, "JsonSyntaxException caught in " + subject));
+        } catch (JsonParseException jsonParse) {
+            throw new MappingException(invalid(subject, "JsonParseException caught in " + subject));
+        } catch (IOException io) {
+            throw new MappingException(unreadable(subject, "IOException caught in " + subject));
+        }
+
+        if (evaluation == null) {
+            throw new MappingException(invalid(subject, "empty JSON file " + subject));
+        }
+        return evaluation;
+    }
+
+    //helper function for the diagnostic of a file that could not be read
+    private static Diagnostic unreadable(String subject, String message) {
+        return new Diagnostic(Diagnostic.Kind.UNREADABLE_FILE, subject, message);
+    }
+
+    //helper function for the diagnostic of a file that is not a valid evaluation
+    private static Diagnostic invalid(String subject, String message) {
+        return new Diagnostic(Diagnostic.Kind.INVALID_FILE, subject, message);
+    }
+
+    //a reusable byte array that whole files are read into with a single FileChannel
+    private static class ReadBuffer {
+        private static final int INITIAL_SIZE = 8 * 1024;
+
+        private byte[] bytes = new byte[INITIAL_SIZE];
+
+        //reads the whole file into bytes and returns its length
+        int readFully(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE - 8) {
+                    throw new IOException("file too large: " + path);
+                }
+                if (size > bytes.length) {
+                    bytes = new byte[(int) Math.max(size, bytes.length * 2L)];
+                }
+                ByteBuffer target = ByteBuffer.wrap(bytes, 0, (int) size);
+                while (target.hasRemaining() && channel.read(target) >= 0) {
+                    //keep reading; a single read is usually enough
+                }
+                return target.position();
+            }
+        }
+    }
+
+    //a file found by the walker and its pending result, sorted by the file's search order
+    private static class PendingFile implements Comparable<PendingFile> {
+        private final JsonFileWalker.DiscoveredFile file;
+        private final Future<StudentEvaluation> result;
+
+        PendingFile(JsonFileWalker.DiscoveredFile file, Future<StudentEvaluation> result) {
+            this.file = file;
+            this.result = result;
+        }
+
+        @Override
+        public int compareTo(PendingFile other) {
+            return file.compareTo(other.file);
+        }
+    }
+
+    /**
+     * Exception thrown when a single .json file cannot be mapped; it carries the diagnostic to report.
+     */
+    static class MappingException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final Diagnostic diagnostic;
+
+        MappingException(Diagnostic diagnostic) {
+            super(diagnostic.getMessage());
+            this.diagnostic = diagnostic;
+        }
+
+        Diagnostic getDiagnostic() {
+            return diagnostic;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package ca.cmpt213.as2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A class that finds the .json files under a directory with NIO directory streams, listing each directory once
+ * and fanning out across subdirectories on a fork/join pool: parallelism (int).
+ * Files are handed to a FileSink as soon as they are found. Each file carries its position in the order the
+ * previous sequential search produced (the .json files of a directory first, then its subdirectories, both in
+ * listing order), so the callers can restore that order after a parallel walk.
+ * @author Bei Bei Li
+ */
+public class JsonFileWalker {
+
+    private final int parallelism;
+
+    /**
+     * Receives the .json files found by the walk; it is called from several threads at once when parallelism > 1,
+     * and in the order of the previous sequential search when parallelism is 1
+     */
+    public interface FileSink {
+        void accept(DiscoveredFile jsonFile);
+    }
+
+    /**
+     * Constructor that takes a parameter to instantiate the JsonFileWalker class
+     * @param parallelism The number of threads listing directories; 1 walks on a single thread
+     */
+    public JsonFileWalker(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism has to be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Method to walk the directory and hand every .json file to the sink; returns once the whole tree is listed
+     * @param root The directory to search
+     * @param sink The FileSink that receives the files
+     */
+    public void walk(Path root, FileSink sink) {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        if (parallelism == 1) {
+            walkSequentially(root, new int[0], sink);
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DirectoryTask(root, new int[0], sink));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Method to find all the .json files under the directory
+     * @param root The directory to search
+     * @return A List<File> of the .json files, in the order of the previous sequential search
+     */
+    public List<File> findAll(Path root) {
+        ConcurrentLinkedQueue<DiscoveredFile> found = new ConcurrentLinkedQueue<>();
+        walk(root, found::add);
+
+        List<DiscoveredFile> ordered = new ArrayList<>(found);
+        Collections.sort(ordered);
+
+        List<File> jsonFiles = new ArrayList<>(ordered.size());
+        for (DiscoveredFile eachFile : ordered) {
+            jsonFiles.add(eachFile.toFile());
+        }
+        return jsonFiles;
+    }
+
+    //helper function to walk the tree depth first on the calling thread, so the sink sees the files in order
+    private static void walkSequentially(Path directory, int[] ordinal, FileSink sink) {
+        List<Path> subDirectories = listDirectory(directory, ordinal, sink);
+        for (int directoryIndex = 0; directoryIndex < subDirectories.size(); directoryIndex++) {
+            walkSequentially(subDirectories.get(directoryIndex), childOrdinal(ordinal, 1, directoryIndex), sink);
+        }
+    }
+
+    //helper function to list one directory: its .json files go to the sink and its subdirectories are returned
+    private static List<Path> listDirectory(Path directory, int[] ordinal, FileSink sink) {
+        List<Path> jsonFiles = new ArrayList<>();
+        List<Path> subDirectories = new ArrayList<>();
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path eachEntry : entries) {
+                if (Files.isDirectory(eachEntry)) {
+                    subDirectories.add(eachEntry);
+                } else if (eachEntry.getFileName().toString().endsWith(".json")) {
+                    jsonFiles.add(eachEntry);
+                }
+            }
+        } catch (IOException | SecurityException unreadable) {
+            //same as File.listFiles() returning null: an unreadable directory is skipped
+            return new ArrayList<>();
+        }
+
+        //files of this directory come before anything in its subdirectories
+        for (int fileIndex = 0; fileIndex < jsonFiles.size(); fileIndex++) {
+            sink.accept(new DiscoveredFile(jsonFiles.get(fileIndex), childOrdinal(ordinal, 0, fileIndex)));
+        }
+        return subDirectories;
+    }
+
+    /**
+     * Method to extend a directory's ordinal by (kind, index); JsonArchiveWalker orders archive entries with it
+     * @param ordinal The ordinal of the directory
+     * @param kind 0 for a file, 1 for a subdirectory
+     * @param index The position of the file or subdirectory among those of its kind in the directory
+     * @return The ordinal of the file or subdirectory
+     */
+    static int[] childOrdinal(int[] ordinal, int kind, int index) {
+        int[] child = new int[ordinal.length + 2];
+        System.arraycopy(ordinal, 0, child, 0, ordinal.length);
+        child[ordinal.length] = kind;
+        child[ordinal.length + 1] = index;
+        return child;
+    }
+
+    //lists one directory: its .json files go to the sink, its subdirectories become new tasks
+    private static class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final int[] ordinal;
+        private final FileSink sink;
+
+        DirectoryTask(Path directory, int[] ordinal, FileSink sink) {
+            this.directory = directory;
+            this.ordinal = ordinal;
+            this.sink = sink;
+        }
+
+        @Override
+        protected void compute() {
+            List<Path> subDirectories = listDirectory(directory, ordinal, sink);
+
+            List<DirectoryTask> subTasks = new ArrayList<>(subDirectories.size());
+            for (int directoryIndex = 0; directoryIndex < subDirectories.size(); directoryIndex++) {
+                subTasks.add(new DirectoryTask(subDirectories.get(directoryIndex),
+                        childOrdinal(ordinal, 1, directoryIndex), sink));
+            }
+            invokeAll(subTasks);
+        }
+    }
+
+    /**
+     * A class that represents a .json file found by the walk: path (Path), subject (String), ordinal (int[]).
+     * A JSON document that is not a file of its own, like an archive entry or a line of an NDJSON file, has no
+     * path; it has a subject instead, a label such as cohort.ndjson:17 that is not a valid path on every platform.
+     * Sorting by ordinal gives the order of the previous sequential search.
+     */
+    public static class DiscoveredFile implements Comparable<DiscoveredFile> {
+        private final Path path;
+        private final String subject;
+        private final int[] ordinal;
+
+        DiscoveredFile(Path path, int[] ordinal) {
+            this.path = path;
+            this.subject = null;
+            this.ordinal = ordinal;
+        }
+
+        DiscoveredFile(String subject, int[] ordinal) {
+            this.path = null;
+            this.subject = subject;
+            this.ordinal = ordinal;
+        }
+
+        /**
+         * Method to retrieve the path of the file
+         * @return The path, or null for a document that is not a file of its own
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * Method to retrieve the file
+         * @return The file, or null for a document that is not a file of its own
+         */
+        public File toFile() {
+            return path == null ? null : path.toFile();
+        }
+
+        /**
+         * Method to retrieve what problems with the document are reported against
+         * @return The absolute path of the file, or the label of a document that is not a file of its own
+         */
+        public String getSubject() {
+            return path == null ? subject : path.toFile().getAbsolutePath();
+        }
+
+        @Override
+        public int compareTo(DiscoveredFile other) {
+            int common = Math.min(ordinal.length, other.ordinal.length);
+            for (int level = 0; level < common; level++) {
+                if (ordinal[level] != other.ordinal[level]) {
+                    return Integer.compare(ordinal[level], other.ordinal[level]);
+                }
+            }
+            return Integer.compare(ordinal.length, other.ordinal.length);
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getName() + "[Path:" + this.path + ", Subject:" + this.subject + "]";
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ca.cmpt213.as2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class that passes every team to several sinks, so all the output formats of a run come from one pass over
+ * the teams: sinks (List<FeedbackOutputSink>).
+ * @author Bei Bei Li
+ */
+public class MultiFeedbackSink implements FeedbackOutputSink {
+
+    private final List<FeedbackOutputSink> sinks;
+
+    /**
+     * Constructor that takes a parameter to instantiate the MultiFeedbackSink class
+     * @param sinks The sinks every team is written to, in the order given
+     */
+    public MultiFeedbackSink(List<FeedbackOutputSink> sinks) {
+        this.sinks = new ArrayList<>(sinks);
+    }
+
+    /**
+     * Method to begin every sink
+     * @throws IOException If a sink fails
+     */
+    @Override
+    public void begin() throws IOException {
+        for (FeedbackOutputSink eachSink : sinks) {
+            eachSink.begin();
+        }
+    }
+
+    /**
+     * Method to write a team to every sink
+     * @param displayedGroupIndex The group number of the team (starting at 1)
+     * @param team The StudentGroup to be written
+     * @throws IOException If a sink fails
+     */
+    @Override
+    public void writeTeam(int displayedGroupIndex, StudentGroup team) throws IOException {
+        for (FeedbackOutputSink eachSink : sinks) {
+            eachSink.writeTeam(displayedGroupIndex, team);
+        }
+    }
+
+    /**
+     * Method to finish every sink
+     * @throws IOException If a sink fails
+     */
+    @Override
+    public void finish() throws IOException {
+        for (FeedbackOutputSink eachSink : sinks) {
+            eachSink.finish();
+        }
+    }
+
+    /**
+     * Method to flush every sink
+     * @throws IOException If a sink fails
+     */
+    @Override
+    public void flush() throws IOException {
+        for (FeedbackOutputSink eachSink : sinks) {
+            eachSink.flush();
+        }
+    }
+
+    /**
+     * Method to close every sink; every sink is closed even if one fails, and the first failure is thrown
+     * @throws IOException If a sink fails
+     */
+    @Override
+    public void close() throws IOException {
+        IOException firstFailure = null;
+        for (FeedbackOutputSink eachSink : sinks) {
+            try {
+                eachSink.close();
+            } catch (IOException failure) {
+                if (firstFailure == null) {
+                    firstFailure = failure;
+                } else {
+                    firstFailure.addSuppressed(failure);
+                }
+            }
+        }
+        if (firstFailure != null) {
+            throw firstFailure;
+        }
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() + "[Sinks:" + this.sinks + "]";
+    }
+}
@@ -0,0 +1,105 @@
+package ca.cmpt213.as2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A class that reads an NDJSON dump (newline-delimited JSON, .ndjson or .jsonl): one evaluation per line, each
+ * with the same fields as a .json file. The file is read through a single stream in fixed-size chunks and split
+ * at line boundaries; each line is handed to an EntrySink as soon as its end is read, so the lines can be
+ * parsed on other threads while the rest of the file is still being read, and the whole file is never held in
+ * memory. Blank lines are skipped, and a line may end with \r\n.
+ * A line has no path of its own; its subject is the file's absolute path followed by ":" and the line number,
+ * e.g. /data/cohort.ndjson:17.
+ * @author Bei Bei Li
+ */
+public class NdjsonLineWalker implements JsonEntrySource {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Method to check if a path names an NDJSON file
+     * @param path The input path
+     * @return A boolean value to indicate if the path is a .ndjson or .jsonl file
+     */
+    public static boolean isNdjson(Path path) {
+        Path fileName = path.getFileName();
+        if (fileName == null || !Files.isRegularFile(path)) {
+            return false;
+        }
+        String name = fileName.toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    /**
+     * Method to read the file and hand every non-blank line to the sink
+     * @param ndjsonFile The .ndjson or .jsonl file
+     * @param sink The EntrySink that receives the lines, without their line breaks
+     * @throws IOException If the file cannot be read, or the sink fails
+     */
+    @Override
+    public void walk(Path ndjsonFile, EntrySink sink) throws IOException {
+        String filePath = ndjsonFile.toAbsolutePath().toString();
+        byte[] chunk = new byte[CHUNK_SIZE];
+        //the start of a line that did not end in an earlier chunk
+        ByteArrayOutputStream carried = new ByteArrayOutputStream();
+        int lineNumber = 0;
+
+        try (InputStream in = Files.newInputStream(ndjsonFile)) {
+            for (int read = in.read(chunk); read >= 0; read = in.read(chunk)) {
+                int lineStart = 0;
+                for (int position = 0; position < read; position++) {
+                    if (chunk[position] != '\n') {
+                        continue;
+                    }
+                    byte[] line;
+                    if (carried.size() == 0) {
+                        line = Arrays.copyOfRange(chunk, lineStart, position);
+                    } else {
+                        carried.write(chunk, lineStart, position - lineStart);
+                        line = carried.toByteArray();
+                        carried.reset();
+                    }
+                    lineNumber++;
+                    hand(line, filePath, lineNumber, sink);
+                    lineStart = position + 1;
+                }
+                carried.write(chunk, lineStart, read - lineStart);
+            }
+        }
+
+        //the last line may have no line break
+        if (carried.size() > 0) {
+            hand(carried.toByteArray(), filePath, lineNumber + 1, sink);
+        }
+    }
+
+    //helper function to hand a line over unless it is blank; the line number gives its position
+    private static void hand(byte[] line, String filePath, int lineNumber, EntrySink sink) throws IOException {
+        int end = line.length;
+        if (end > 0 && line[end - 1] == '\r') {
+            end--;
+        }
+        if (isBlank(line, end)) {
+            return;
+        }
+        byte[] content = end == line.length ? line : Arrays.copyOf(line, end);
+        sink.accept(new JsonFileWalker.DiscoveredFile(filePath + ":" + lineNumber, new int[]{lineNumber}), content);
+    }
+
+    //helper function to check if the first length bytes are all JSON whitespace
+    private static boolean isBlank(byte[] line, int length) {
+        for (int index = 0; index < length; index++) {
+            byte eachByte = line[index];
+            if (eachByte != ' ' && eachByte != '\t' && eachByte != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
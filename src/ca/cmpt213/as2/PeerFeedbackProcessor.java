@@ -23,105 +23,159 @@ Design:
 
 package ca.cmpt213.as2;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSyntaxException;
-import com.google.gson.stream.JsonReader;
-
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
-import java.util.ArrayList;
-import java.util.Objects;
 
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 
 /**
  * The class that holds the main application for the JSON peer feedback processor program.
+ * The processing itself is done by FeedbackPipeline; this class parses the arguments, prints the problems found,
+ * writes the csv and is the only place that exits the program.
  * @author Bei Bei Li
  */
 public class PeerFeedbackProcessor {
 
     /**
-     * Main function to run the JSON peer feedback processor; it exactly takes 2 command arguments.
-     * @param args Two arguments from the user to specify (1)input .JSON files' and (2)output .csv file's directory path
+     * Main function to run the JSON peer feedback processor; it takes 2 command arguments followed by optional flags.
+     * @param args Two arguments from the user to specify (1)input .JSON files' and (2)output .csv file's directory path,
+     *             optionally followed by --threads=N to map the .JSON files on N worker threads
+     *             and --cache=FILE to only re-process the .JSON files that changed since the last run
+     *             and --watch[=MILLIS] to keep running and re-process the .JSON files whenever they change
+     *             and --stream to write each group while the .JSON files are still being read
+     *             and --metrics[=json] to write the metrics of the run next to the csv
+     *             and --shards=N to split the .JSON files by team across N worker processes
+     *             and --json to also write group_feedback.json next to the csv
+     *             and --snapshot=FILE to save the grouped teams to a binary snapshot
+     *             and --prescan[=only] to check the .JSON files with a cheap scan before parsing them in full
+     *             and --spill[=N] to group the .JSON files through N run files on disk instead of in memory;
+     *             the input path may also be such a snapshot, which is processed instead of .JSON files,
+     *             or a .zip, .tar, .tar.gz or .tgz archive of .JSON files, which is read without extracting it,
+     *             or a .ndjson or .jsonl file with one evaluation per line
      */
     public static void main(String[] args) {
 
         //check argument errors
-        argsChecker(args);
+        ProcessorOptions options = argsChecker(args);
 
-        String inputPath = args[0];
-        String outputPath = args[1];
+        //the pre-scan reports the problems of the whole input before any mode parses it in full
+        if (options.isPreScanning()) {
+            preScan(options);
+            if (options.isPreScanOnly()) {
+                return;
+            }
+        }
 
-        //search for .JSON files
-        List<File> jsonFiles = new ArrayList<>();
-        jsonFiles = recursiveSearchJson(inputPath, jsonFiles);
+        //in watch mode the program keeps running until it is stopped
+        if (options.isWatching()) {
+            watch(options);
+            return;
+        }
 
-        //map .JSON files to java objects
-        List<StudentEvaluation> studentEvaluations = new ArrayList<>();
-        studentEvaluations = mapJson(jsonFiles, studentEvaluations);
+        //in streaming mode the groups are written while the files are still being read
+        if (options.isStreaming()) {
+            stream(options);
+            return;
+        }
+
+        //in sharded mode the teams are processed by worker processes and merged here
+        if (options.isSharded()) {
+            shard(options);
+            return;
+        }
+
+        //in spilling mode the evaluations are grouped through run files, one partition of the teams at a time
+        if (options.isSpilling()) {
+            spill(options);
+            return;
+        }
 
-        //check required fields are mapped
-        checkMapJson(studentEvaluations);
+        String inputPath = options.getInputPath();
+        String outputPath = options.getOutputPath();
 
-        //grouping students
-        List<StudentGroup> teams = new ArrayList<>();
-        teams = groupingStudents(teams, studentEvaluations);
+        //in incremental mode only new or changed files are mapped, and only the teams they belong to are checked
+        FeedbackCache cache = null;
+        if (options.isIncremental()) {
+            cache = FeedbackCache.load(new File(options.getCachePath()));
+        }
 
-        //error check on student evaluations in each group
-        hasAllFeedbackErrorCheck(teams);
-        hasAllStudentMentionedEvaluationErrorCheck(teams);
-        checkEvaluationScoreSum(teams);
+        //search for .JSON files, map them to java objects, group the students and check each group;
+        //every problem of the first stage that fails is reported before exiting
+        //a snapshot given as input already holds the grouped teams, so only the check is left
+        PipelineMetrics metrics = metricsFor(options);
+        FeedbackPipeline pipeline = new FeedbackPipeline(options.getThreads(), cache, metrics);
+        ProcessingResult result = isSnapshot(inputPath)
+                ? pipeline.processSnapshot(Paths.get(inputPath)) : pipeline.process(Paths.get(inputPath));
+
+        if (result.isSuccessful() == false) {
+            for (Diagnostic eachProblem : result.getDiagnostics()) {
+                System.out.println("ERROR: " + eachProblem.getMessage());
+            }
+            writeMetrics(options, metrics);
+            exitProg();
+        }
 
         //one should in one group error check temporarily missing
         //...
         //...
 
         //identify and create output file path
-
-        //default file path and name;
-        String filePathName = outputPath + "group_feedback.csv";
-
-        //if output path does not have / at the end...
-        Pattern regexPatternForEndSlash = Pattern.compile(".*[/]");
-        Matcher regexMatcherForEndSlash = regexPatternForEndSlash.matcher(outputPath);
-
-        //if output path includes .csv
-        Pattern regexPatterForEndCsv = Pattern.compile(".*.csv");
-        Matcher regexMatcherForEndCsv = regexPatterForEndCsv.matcher(outputPath);
-
-        if (regexMatcherForEndSlash.matches() == false && regexMatcherForEndCsv.matches() == false){
-            outputPath = outputPath + "/";
-            filePathName = outputPath + "group_feedback.csv";
-        }
-
-        if (regexMatcherForEndCsv.matches() == true) {
-            filePathName = outputPath;
-        }
-
-        File fileTarget = new File(filePathName);
+        File fileTarget = csvTarget(outputPath);
 
         if (fileTarget != null) {
 
-            //create csv
-            try {
-                PrintWriter printer = null;
+            //create csv, and the json if asked for
+            boolean isWritten = true;
+            try (CsvFeedbackWriter csvWriter = new CsvFeedbackWriter(new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(fileTarget), StandardCharsets.UTF_8)));
+                 JsonFeedbackWriter jsonWriter = options.isWritingJson() ? new JsonFeedbackWriter(
+                         Files.newBufferedWriter(outputSibling(options, ".json"), StandardCharsets.UTF_8)) : null) {
+
+                long startNanos = metrics.startTimer();
+                //both files are written from the same pass over the teams
+                result.writeCsvAndJson(csvWriter, jsonWriter);
+                if (jsonWriter != null) {
+                    jsonWriter.flush();
+                }
+                csvWriter.flush();
+                metrics.recordStage(PipelineMetrics.WRITE_CSV, startNanos);
 
+            } catch (IOException io) {
+                isWritten = false;
+                System.out.println("ERROR: IOException caught during csv forming phase");
+                io.printStackTrace();
+            }
+
+            //the cache marks the teams as up to date, so it is only saved once the csv is closed without errors
+            if (cache != null && isWritten) {
+                cache.retainTeams(result.getTeams());
                 try {
+                    cache.save(new File(options.getCachePath()));
+                    System.out.println(cache.getSummary());
+                } catch (IOException io) {
+                    System.out.println("ERROR: IOException caught while writing the cache " + options.getCachePath());
+                }
+            }
 
-                    printer = new PrintWriter(fileTarget);
-                    printCSV(printer, teams);
+            metrics.recordCsv(result.getCsvRowCount(), fileTarget.length());
 
+            if (options.isSavingSnapshot()) {
+                long startNanos = metrics.startTimer();
+                try {
+                    FeedbackSnapshot.write(result.getTeams(), Paths.get(options.getSnapshotPath()));
                 } catch (IOException io) {
-                    System.out.println("ERROR: IOException caught during csv forming phase");
-                    throw new Exception();
-                } finally {
-                    printer.close();
+                    System.out.println("ERROR: IOException caught while writing the snapshot " +
+                            options.getSnapshotPath());
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+                metrics.recordStage(PipelineMetrics.WRITE_SNAPSHOT, startNanos);
             }
+            writeMetrics(options, metrics);
         }
         else {
             System.out.println("ERROR: Enable to create csv file, " +
@@ -132,282 +186,226 @@ public class PeerFeedbackProcessor {
 
     }
 
-    /**
-     * Validate the command line arguments' correctness.
-     * @param args Two arguments from the user to specify (1)input .JSON files' and (2)output .csv file's directory path
-     */
-    private static void argsChecker(String[] args) {
-
-        //check the number of arguments
-        int validArgsNumber = 2;
-        if (args.length != validArgsNumber) {
-            System.out.println("ERROR: 2 arguments are expected:");
-            System.out.println("    1. directory path for the input .JSON files");
-            System.out.println("    2. directory path for the out .csv file");
-            exitProg();
-        }
+    //helper function to check the input with the cheap scan; exits if it finds any problem
+    private static void preScan(ProcessorOptions options) {
 
-        //check if both paths exist
-        String userInputPath = args[0];
-        String userOutputPath = args[1];
-        File inputPath = new File(userInputPath);
-        File outputPath = new File(userOutputPath);
+        FeedbackPipeline pipeline = new FeedbackPipeline(options.getThreads());
+        List<Diagnostic> diagnostics = pipeline.preScan(Paths.get(options.getInputPath()));
 
-        if (!inputPath.exists()) {
-            System.out.println("ERROR: Check inputted arguments' correctness; input directory path does not exist");
-            exitProg();
-        } else if (!outputPath.exists()) {
-            System.out.println("ERROR: check inputted arguments' correctness; output directory path does not exist");
+        if (diagnostics.isEmpty() == false) {
+            for (Diagnostic eachProblem : diagnostics) {
+                System.out.println("ERROR: " + eachProblem.getMessage());
+            }
             exitProg();
         }
-
+        if (options.isPreScanOnly()) {
+            System.out.println("Pre-scan found no problems in " + options.getInputPath());
+        }
     }
 
-    /**
-     * Recursively finds all the .JSON (case insensitive) files in the path user provided
-     * @param inputPath The path user provided that contains .JSON files to be processed
-     * @return A List<File> reference pointer that contains all the found .JSON files
-     */
-    //do not construct the list in the method, it needs to be declared in main for referencing purpose
-    //no refresh if in main, but if it is declared in the function, it gets declared every time in each recursion call
-    private static List<File> recursiveSearchJson(String inputPath, List<File> searchedJson){
-
-        //create filter for .json files
-        FileFilter jsonFilter = new FileFilter() {
-            @Override
-            public boolean accept(File file) {
-                //if case sensitive
-                //Pattern regexPattern = Pattern.compile(".*.[jJ][sS][oO][nN]");
-                //Matcher regexMatcher = regexPattern.matcher(file.getName());
-                //return regexMatcher.matches();
-                return file.getName().endsWith(".json");
-            }
-        };
+    //helper function to keep processing the input whenever it changes; only returns if it cannot watch
+    private static void watch(ProcessorOptions options) {
 
-        //search for .json files
-        File inputDirectory = new File(inputPath);
-        File[] fileList = inputDirectory.listFiles();
+        File fileTarget = csvTarget(options.getOutputPath());
+        FeedbackWatcher watcher = new FeedbackWatcher(options, fileTarget);
 
-        if ((fileList != null) && (fileList.length >= 1)){
-            //base case
-            for (File eachFile : Objects.requireNonNull(inputDirectory.listFiles(jsonFilter))){
-                searchedJson.add(eachFile);
-            }
-            //recursion
-            for (File subFile : fileList){
-                if (subFile.isDirectory()){
-                    recursiveSearchJson(subFile.getAbsolutePath(), searchedJson);
-                }
-            }
-        }
-
-        //if path contains no .json file
-        if (searchedJson.size() < 1 || fileList.length < 1){
-            System.out.println("ERROR: no .JSON file found in the given path");
+        System.out.println("Watching " + options.getInputPath() + " for changes, press Ctrl+C to stop");
+        try {
+            watcher.run();
+        } catch (IOException io) {
+            System.out.println("ERROR: IOException caught while watching " + options.getInputPath());
             exitProg();
         }
-
-        return searchedJson;
     }
 
-
-    /**
-     * Map .json files to java objects
-     * @param jsonFiles The list of .json files found
-     * @param studentEvaluations The pointer reference for resulting StudentEvaluation list
-     * @return The pointer reference of resulting StudentEvaluation list
-     */
-    private static List<StudentEvaluation> mapJson(List<File> jsonFiles, List<StudentEvaluation> studentEvaluations){
-
-        Gson gson = new Gson();
-
-        for(File eachJsonFile : jsonFiles){
-
-            try {
-                FileReader fileReader = null;
-                JsonReader jsonReader = null;
-
-                try {
-                    fileReader = new FileReader(eachJsonFile);
-                    jsonReader = new JsonReader(fileReader);
-
-                    StudentEvaluation currentEvaluationRead = gson.fromJson(jsonReader, StudentEvaluation.class);
-                    studentEvaluations.add(currentEvaluationRead);
-
-                } catch (FileNotFoundException fileNotFound) {
-                    System.out.println("ERROR: FileNotFoundException caught in " +
-                            eachJsonFile.getAbsolutePath());
-                    throw new Exception();
-                } catch (JsonSyntaxException jsonSyntax) {
-                    System.out.println("ERROR: JsonSyntaxException caught in " +
-                            eachJsonFile.getAbsolutePath());
-                    throw new Exception();
-                } catch (JsonParseException jsonParse) {
-                    System.out.println("ERROR: JsonParseException caught in " +
-                            eachJsonFile.getAbsolutePath());
-                    throw new Exception();
-                } finally {
-                    fileReader.close();
-                    jsonReader.close();
-                }
-
-            } catch (Exception exception) {
-                exception.printStackTrace();
-                exitProg();
-            }
-
-        }
-        return studentEvaluations;
+    //helper function to process the input as a pipeline, while the .JSON files are still being read
+    private static void stream(ProcessorOptions options) {
+        PipelineMetrics metrics = metricsFor(options);
+        writeViaTemporary(options, new StreamingFeedbackPipeline(options.getThreads(), metrics), metrics);
     }
 
-    //helper function to group student together
-    //return the pointer reference to a list of student groups
-    private static List<StudentGroup> groupingStudents(List<StudentGroup> teams, List<StudentEvaluation> studentEvaluations){
-
-        boolean alreadyFoundInGroup = false;
+    //helper function to process the input on worker processes, one per shard of the teams
+    private static void shard(ProcessorOptions options) {
+        writeViaTemporary(options, new ShardedFeedbackPipeline(options.getShards(), options.getThreads()),
+                PipelineMetrics.disabled());
+    }
 
-        for (StudentEvaluation eachEva : studentEvaluations){
+    //helper function to process the input through run files partitioned by team, so that only one partition
+    //is in memory at a time
+    private static void spill(ProcessorOptions options) {
+        writeViaTemporary(options, new SpillingFeedbackPipeline(options.getSpillPartitions(), options.getThreads()),
+                PipelineMetrics.disabled());
+    }
 
-            String teamName = eachEva.getGroupName();
+    //helper function to run a pipeline that writes the csv while it processes the input; the csv is written next
+    //to the target and only moved into place if the run is successful, so a failed run leaves no csv behind
+    private static void writeViaTemporary(ProcessorOptions options, CsvWritingPipeline pipeline,
+                                          PipelineMetrics metrics) {
 
-            StudentGroup currentGroup = isTeamExists(teamName, teams);
+        Path target = csvTarget(options.getOutputPath()).toPath().toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
 
-            if (currentGroup == null) {
-                currentGroup = new StudentGroup(teamName);
-                teams.add(currentGroup);
+        List<Diagnostic> diagnostics;
+        try {
+            try (CsvFeedbackWriter csvWriter =
+                         new CsvFeedbackWriter(Files.newBufferedWriter(temporary, StandardCharsets.UTF_8))) {
+                diagnostics = pipeline.process(Paths.get(options.getInputPath()), csvWriter);
             }
-
-            if (currentGroup.isStudentInGroup(eachEva) == false ){
-                currentGroup.addStudentEva(eachEva);
+            if (diagnostics.isEmpty()) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+                metrics.recordCsv(pipeline.getWrittenRowCount(), Files.size(target));
+                writeMetrics(options, metrics);
+                return;
             }
-            else {
-                System.out.println("ERROR: student evaluation duplicated");
-                exitProg();
-            }
-
+            Files.deleteIfExists(temporary);
+        } catch (IOException io) {
+            System.out.println("ERROR: IOException caught during csv forming phase");
+            io.printStackTrace();
+            exitProg();
+            return;
         }
 
-        return teams;
+        for (Diagnostic eachProblem : diagnostics) {
+            System.out.println("ERROR: " + eachProblem.getMessage());
+        }
+        writeMetrics(options, metrics);
+        exitProg();
     }
 
-    //helper function to check if team exists
-    //returns null if team does not exist and a pointer to the group if team exists
-    private static StudentGroup isTeamExists(String teamName, List<StudentGroup> teams){
-        //compareTo() can compare with null; return int;
-        StudentGroup result = null;
-        if (teams.size() > 0){
-            for (StudentGroup eachTeam : teams){
-                if (eachTeam.getStudentGroupName().compareTo(teamName) == 0){
-                    result = eachTeam;
-                    break;
-                }
-            }
-        }
-        return result;
+    //helper function to check if the input is a snapshot file rather than a directory, an archive or an NDJSON file;
+    //any other file is searched like a directory, which finds no .JSON file
+    private static boolean isSnapshot(String inputPath) {
+        Path input = Paths.get(inputPath);
+        return FeedbackPipeline.entrySourceOf(input) == null && FeedbackSnapshot.isSnapshot(input);
     }
 
-    //check if students in a group provided feedback for everyone
-    private static void hasAllFeedbackErrorCheck(List<StudentGroup> teams){
+    //helper function to create the metrics of the run; they record nothing unless --metrics was given
+    private static PipelineMetrics metricsFor(ProcessorOptions options) {
+        return options.isRecordingMetrics() ? new PipelineMetrics() : PipelineMetrics.disabled();
+    }
 
-        for (StudentGroup eachTeam : teams){
-            if (eachTeam.hasAllEvaluation() == false ){
-                System.out.println("ERROR: someone in team " + eachTeam.getStudentGroupName() +
-                        " did not provide feedback for all team members");
-                exitProg();
-            }
+    //helper function to write the metrics of the run next to the csv, e.g. group_feedback.metrics.prom
+    private static void writeMetrics(ProcessorOptions options, PipelineMetrics metrics) {
+        if (metrics.isEnabled() == false) {
+            return;
         }
-    }
 
-    //check if all evaluations are received in a team
-    private static void hasAllStudentMentionedEvaluationErrorCheck(List<StudentGroup> teams){
+        boolean isJson = ProcessorOptions.METRICS_JSON.equals(options.getMetricsFormat());
+        Path metricsFile = outputSibling(options, isJson ? ".metrics.json" : ".metrics.prom");
 
-        for (StudentGroup eachTeam : teams) {
-            if (eachTeam.allEvaluationsReceived() == false ){
-                System.out.println("ERROR: someone in team " + eachTeam.getStudentGroupName() +
-                        " is missing his/her evaluation");
-                exitProg();
+        try (Writer out = Files.newBufferedWriter(metricsFile, StandardCharsets.UTF_8)) {
+            if (isJson) {
+                metrics.writeJson(out);
+            } else {
+                metrics.writePrometheus(out);
             }
+        } catch (IOException io) {
+            System.out.println("ERROR: IOException caught while writing " + metricsFile);
         }
     }
 
-    //check sum score in evaluation is sum of scores in the file is not (20 * number of group members), with a tolerance of 0.1.
-    private static void checkEvaluationScoreSum(List<StudentGroup> teams) {
-
-        for (StudentGroup eachTeam : teams) {
-            for (StudentEvaluation eachEva : eachTeam.getEvaluations()){
+    //helper function to name a file next to the csv: the csv name with .csv replaced by the suffix
+    private static Path outputSibling(ProcessorOptions options, String suffix) {
+        File csvFile = csvTarget(options.getOutputPath()).getAbsoluteFile();
+        String baseName = csvFile.getName().replaceFirst("\\.csv$", "");
+        return new File(csvFile.getParentFile(), baseName + suffix).toPath();
+    }
 
-                if (eachEva.isSumScoreWithinRange() == false){
-                    System.out.println("ERROR: check score sum for " + eachEva.getStudentEmail() + "in team " + eachTeam.getStudentGroupName());
-                    exitProg();
-                }
+    //helper function to identify the output file: the path itself if it ends with .csv,
+    //otherwise group_feedback.csv inside the output directory
+    private static File csvTarget(String outputPath) {
 
-            }
-        }
-    }
+        //default file path and name;
+        String filePathName = outputPath + "group_feedback.csv";
 
-    //check if all required fields are mapped
-    private static void checkMapJson(List<StudentEvaluation> studentEvaluations){
+        //if output path does not have / at the end...
+        Pattern regexPatternForEndSlash = Pattern.compile(".*[/]");
+        Matcher regexMatcherForEndSlash = regexPatternForEndSlash.matcher(outputPath);
 
-        boolean isExit = false;
-        if (studentEvaluations == null){
-            System.out.println("ERROR: JSON files not mapped error detected");
-            isExit = true;
+        //if output path includes .csv
+        Pattern regexPatterForEndCsv = Pattern.compile(".*.csv");
+        Matcher regexMatcherForEndCsv = regexPatterForEndCsv.matcher(outputPath);
 
+        if (regexMatcherForEndSlash.matches() == false && regexMatcherForEndCsv.matches() == false){
+            outputPath = outputPath + "/";
+            filePathName = outputPath + "group_feedback.csv";
         }
-        for (StudentEvaluation eachEva : studentEvaluations) {
-            if (eachEva.getGroup() == null){
-                System.out.println("ERROR: Missing required fields in JSON files");
-                isExit = true;
-            }
-            else {
-                for (Group eachGroup : eachEva.getGroup()){
-                    if (eachGroup.getName() == null
-                            || eachGroup.getSfuEmail() == null
-                            || eachGroup.getContribution() == null) {
-                        System.out.println("ERROR: Missing required fields in " +
-                                eachEva.getStudentEmail() + "'s evaluation");
-                        isExit = true;
-                    }
-                    else {
-                        if (eachGroup.getContribution().getScore() < 0) {
-                            System.out.println("ERROR: Negative score detected in " +
-                                    eachEva.getStudentEmail() + "'s evaluation");
-                            isExit = true;
-                        }
-                        if (eachGroup.getContribution().getComment() == null) {
-                            System.out.println("ERROR: Missing required fields in " +
-                                    eachEva.getStudentEmail() + "'s evaluation");
-                            isExit = true;
-                        }
-                    }
-                }
-            }
-            if (eachEva.getConfidentialComments() == null ) {
-                System.out.println("ERROR: Missing required fields in " +
-                        eachEva.getStudentEmail() + "'s evaluation");
-                isExit = true;
-            }
+
+        if (regexMatcherForEndCsv.matches() == true) {
+            filePathName = outputPath;
         }
-        if (isExit == true) {
+
+        return new File(filePathName);
+    }
+
+    /**
+     * Validate the command line arguments' correctness.
+     * @param args Two arguments from the user to specify (1)input .JSON files' and (2)output .csv file's directory path,
+     *             optionally followed by flags
+     * @return The parsed command line options
+     */
+    private static ProcessorOptions argsChecker(String[] args) {
+
+        //check the number of arguments and the optional flags
+        ProcessorOptions options = null;
+        try {
+            options = ProcessorOptions.parse(args);
+        } catch (IllegalArgumentException badArgs) {
+            System.out.println("ERROR: " + badArgs.getMessage() + ":");
+            System.out.println("    1. directory path for the input .JSON files, a .zip/.tar/.tar.gz archive of them, " +
+                    "a .ndjson file, or a snapshot file");
+            System.out.println("    2. directory path for the out .csv file");
+            System.out.println("    optional: --threads=N to map the .JSON files on N worker threads");
+            System.out.println("    optional: --cache=FILE to only re-process the .JSON files changed since the last run");
+            System.out.println("    optional: --watch[=MILLIS] to keep running and re-process the .JSON files when they change");
+            System.out.println("    optional: --stream to write each group while the .JSON files are still being read");
+            System.out.println("    optional: --metrics[=json] to write the metrics of the run next to the .csv file");
+            System.out.println("    optional: --shards=N to split the .JSON files by team across N worker processes");
+            System.out.println("    optional: --json to also write group_feedback.json next to the .csv file");
+            System.out.println("    optional: --snapshot=FILE to save the grouped teams for later runs");
+            System.out.println("    optional: --prescan[=only] to check the .JSON files with a cheap scan before parsing them");
+            System.out.println("    optional: --spill[=N] to group the .JSON files through N run files on disk");
             exitProg();
         }
 
-    }
+        //check if both paths exist
+        String userInputPath = options.getInputPath();
+        String userOutputPath = options.getOutputPath();
+        File inputPath = new File(userInputPath);
+        File outputPath = new File(userOutputPath);
 
-    //helper function to print the csv
-    private static void printCSV(PrintWriter printer, List<StudentGroup> teams){
+        if (!inputPath.exists()) {
+            System.out.println("ERROR: Check inputted arguments' correctness; input directory path does not exist");
+            exitProg();
+        } else if (!outputPath.exists()) {
+            System.out.println("ERROR: check inputted arguments' correctness; output directory path does not exist");
+            exitProg();
+        }
 
-        printer.println("Group#,Source Student,Target Student,Score,Comment,,Private");
+        //a snapshot is already grouped, so there are no .JSON files to cache, watch or stream
+        if (isSnapshot(userInputPath) && (options.isIncremental() || options.isWatching() || options.isStreaming()
+                || options.isSharded() || options.isPreScanning() || options.isSpilling())) {
+            System.out.println("ERROR: a snapshot input cannot be combined with --cache, --watch, --stream, --shards, " +
+                    "--prescan or --spill");
+            exitProg();
+        }
 
-        for (int groupIndex = 0; groupIndex < teams.size(); groupIndex++){
-            int displayedGroupIndex = groupIndex + 1;
+        //an archive or NDJSON file is read in one pass from start to end; the modes that need the files one by one
+        //do not apply
+        if (FeedbackPipeline.entrySourceOf(Paths.get(userInputPath)) != null && (options.isIncremental()
+                || options.isWatching() || options.isStreaming() || options.isSharded())) {
+            System.out.println("ERROR: an archive or NDJSON input cannot be combined with --cache, --watch, --stream " +
+                    "or --shards");
+            exitProg();
+        }
 
-            //print index
-            printer.println("Group " + displayedGroupIndex);
-            teams.get(groupIndex).printGroup(printer);
-            printer.println();
+        //the entries of an archive come in archive order, not search order, so spilled teams could not be put back in order
+        if (JsonArchiveWalker.isArchive(Paths.get(userInputPath)) && options.isSpilling()) {
+            System.out.println("ERROR: an archive input cannot be combined with --spill");
+            exitProg();
         }
 
+        return options;
     }
 
     //helper function to exit the program
@@ -0,0 +1,310 @@
+package ca.cmpt213.as2;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A class that records where a run spends its time: files discovered, bytes read, the time to read and parse
+ * each file (as a histogram), evaluations mapped, teams grouped, the wall time of each stage and the csv rows
+ * and bytes written. Files are recorded from the mapping threads, so those counters are LongAdders; everything
+ * else is recorded by the thread that runs the stages.
+ * The instance returned by disabled() records nothing and startTimer() does not read the clock, so leaving the
+ * calls in the hot path costs a field read and a branch.
+ * The metrics are exported in the Prometheus text format or as JSON.
+ * @author Bei Bei Li
+ */
+public class PipelineMetrics {
+
+    /**
+     * Names of the stages timed by the pipelines; stages that run at the same time are timed as one
+     */
+    public static final String SEARCH = "search";
+    public static final String MAP = "map";
+    public static final String SEARCH_AND_MAP = "search_and_map";
+    public static final String GROUP = "group";
+    public static final String VALIDATE = "validate";
+    public static final String STREAM = "stream";
+    public static final String WRITE_CSV = "write_csv";
+    public static final String LOAD_SNAPSHOT = "load_snapshot";
+    public static final String WRITE_SNAPSHOT = "write_snapshot";
+
+    //upper bounds of the per-file buckets in microseconds; a last bucket takes everything slower
+    private static final long[] FILE_BUCKET_MICROS = {50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 100000};
+
+    private static final PipelineMetrics DISABLED = new PipelineMetrics(false);
+
+    private final boolean isEnabled;
+
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder evaluationsMapped = new LongAdder();
+    private final LongAdder fileNanos = new LongAdder();
+    private final LongAdder[] fileBuckets = new LongAdder[FILE_BUCKET_MICROS.length + 1];
+
+    private long filesDiscovered = 0;
+    private long teamsGrouped = 0;
+    private long csvRows = 0;
+    private long csvBytes = 0;
+    private long diagnostics = 0;
+
+    //wall time of each stage in the order the stages ran
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+
+    /**
+     * Constructor to instantiate the PipelineMetrics class with recording on
+     */
+    public PipelineMetrics() {
+        this(true);
+    }
+
+    //helper constructor shared with the disabled instance
+    private PipelineMetrics(boolean isEnabled) {
+        this.isEnabled = isEnabled;
+        for (int bucket = 0; bucket < fileBuckets.length; bucket++) {
+            fileBuckets[bucket] = new LongAdder();
+        }
+    }
+
+    /**
+     * Method to retrieve the instance that records nothing
+     * @return The shared disabled PipelineMetrics
+     */
+    public static PipelineMetrics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Method to check if the metrics are recorded
+     * @return A boolean value to indicate if recording is on
+     */
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Method to read the clock at the start of something to be timed
+     * @return System.nanoTime(), or 0 if recording is off
+     */
+    public long startTimer() {
+        return isEnabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Method to record one file that was read and mapped to an evaluation; called from the mapping threads
+     * @param startNanos The value of startTimer() before the file was read
+     * @param bytes The size of the file
+     */
+    public void recordFile(long startNanos, long bytes) {
+        if (!isEnabled) {
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        bytesRead.add(bytes);
+        evaluationsMapped.increment();
+        fileNanos.add(elapsedNanos);
+        fileBuckets[bucketOf(elapsedNanos)].increment();
+    }
+
+    /**
+     * Method to record the wall time of a stage; a stage recorded twice adds up
+     * @param stage The name of the stage, one of the constants of this class
+     * @param startNanos The value of startTimer() when the stage started
+     */
+    public void recordStage(String stage, long startNanos) {
+        if (!isEnabled) {
+            return;
+        }
+        stageNanos.merge(stage, System.nanoTime() - startNanos, Long::sum);
+    }
+
+    /**
+     * Method to record the number of .json files found
+     * @param count The number of files
+     */
+    public void recordFilesDiscovered(long count) {
+        if (isEnabled) {
+            filesDiscovered += count;
+        }
+    }
+
+    /**
+     * Method to record the number of teams the evaluations were grouped into
+     * @param count The number of teams
+     */
+    public void recordTeamsGrouped(long count) {
+        if (isEnabled) {
+            teamsGrouped += count;
+        }
+    }
+
+    /**
+     * Method to record the number of problems the run reported
+     * @param count The number of diagnostics
+     */
+    public void recordDiagnostics(long count) {
+        if (isEnabled) {
+            diagnostics += count;
+        }
+    }
+
+    /**
+     * Method to record what was written to the csv
+     * @param rows The number of csv rows, including the header and the blank rows between groups
+     * @param bytes The size of the csv file
+     */
+    public void recordCsv(long rows, long bytes) {
+        if (isEnabled) {
+            csvRows += rows;
+            csvBytes += bytes;
+        }
+    }
+
+    /**
+     * Method to work out the mapping rate over the wall time of the stages that read files
+     * @return The number of evaluations mapped per second, 0 if no file was mapped
+     */
+    public double getEvaluationsPerSecond() {
+        long mappingNanos = stageNanos.getOrDefault(MAP, 0L) + stageNanos.getOrDefault(SEARCH_AND_MAP, 0L) +
+                stageNanos.getOrDefault(STREAM, 0L);
+        if (mappingNanos <= 0) {
+            return 0d;
+        }
+        return evaluationsMapped.sum() / seconds(mappingNanos);
+    }
+
+    /**
+     * Method to write the metrics in the Prometheus text exposition format
+     * @param out The Writer to write to; it is not closed
+     * @throws IOException If the Writer fails
+     */
+    public void writePrometheus(Writer out) throws IOException {
+        writeMetric(out, "feedback_files_discovered_total", "counter", ".json files found under the input directory",
+                Long.toString(filesDiscovered));
+        writeMetric(out, "feedback_bytes_read_total", "counter", "bytes of the .json files mapped",
+                Long.toString(bytesRead.sum()));
+        writeMetric(out, "feedback_evaluations_mapped_total", "counter", "evaluations mapped from .json files",
+                Long.toString(evaluationsMapped.sum()));
+
+        String histogram = "feedback_file_map_seconds";
+        out.write("# HELP " + histogram + " time to read and parse one .json file\n");
+        out.write("# TYPE " + histogram + " histogram\n");
+        long cumulative = 0;
+        for (int bucket = 0; bucket < fileBuckets.length; bucket++) {
+            cumulative += fileBuckets[bucket].sum();
+            String bound = bucket < FILE_BUCKET_MICROS.length
+                    ? number(FILE_BUCKET_MICROS[bucket] / 1e6) : "+Inf";
+            out.write(histogram + "_bucket{le=\"" + bound + "\"} " + cumulative + "\n");
+        }
+        out.write(histogram + "_sum " + number(seconds(fileNanos.sum())) + "\n");
+        out.write(histogram + "_count " + cumulative + "\n");
+
+        writeMetric(out, "feedback_evaluations_per_second", "gauge",
+                "evaluations mapped per second of the stages that read files", number(getEvaluationsPerSecond()));
+        writeMetric(out, "feedback_teams_grouped", "gauge", "teams the evaluations were grouped into",
+                Long.toString(teamsGrouped));
+
+        String stages = "feedback_stage_seconds";
+        out.write("# HELP " + stages + " wall time of each stage of the run\n");
+        out.write("# TYPE " + stages + " gauge\n");
+        for (Map.Entry<String, Long> eachStage : stageNanos.entrySet()) {
+            out.write(stages + "{stage=\"" + eachStage.getKey() + "\"} " + number(seconds(eachStage.getValue())) + "\n");
+        }
+
+        writeMetric(out, "feedback_csv_rows_total", "counter", "csv rows written", Long.toString(csvRows));
+        writeMetric(out, "feedback_csv_bytes_total", "counter", "bytes of the csv written", Long.toString(csvBytes));
+        writeMetric(out, "feedback_diagnostics", "gauge", "problems reported by the run", Long.toString(diagnostics));
+    }
+
+    /**
+     * Method to write the metrics as a JSON object
+     * @param out The Writer to write to; it is not closed
+     * @throws IOException If the Writer fails
+     */
+    public void writeJson(Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.setIndent("  ");
+        json.beginObject();
+        json.name("files_discovered").value(filesDiscovered);
+        json.name("bytes_read").value(bytesRead.sum());
+        json.name("evaluations_mapped").value(evaluationsMapped.sum());
+
+        json.name("file_map_seconds").beginObject();
+        json.name("buckets").beginArray();
+        for (int bucket = 0; bucket < fileBuckets.length; bucket++) {
+            json.beginObject();
+            if (bucket < FILE_BUCKET_MICROS.length) {
+                json.name("le").value(FILE_BUCKET_MICROS[bucket] / 1e6);
+            } else {
+                json.name("le").value("+Inf");
+            }
+            json.name("count").value(fileBuckets[bucket].sum());
+            json.endObject();
+        }
+        json.endArray();
+        json.name("sum").value(seconds(fileNanos.sum()));
+        json.endObject();
+
+        json.name("evaluations_per_second").value(getEvaluationsPerSecond());
+        json.name("teams_grouped").value(teamsGrouped);
+
+        json.name("stage_seconds").beginObject();
+        for (Map.Entry<String, Long> eachStage : stageNanos.entrySet()) {
+            json.name(eachStage.getKey()).value(seconds(eachStage.getValue()));
+        }
+        json.endObject();
+
+        json.name("csv_rows").value(csvRows);
+        json.name("csv_bytes").value(csvBytes);
+        json.name("diagnostics").value(diagnostics);
+        json.endObject();
+        json.flush();
+        out.write('\n');
+    }
+
+    //helper function to write a metric with a single value and its HELP and TYPE lines
+    private static void writeMetric(Writer out, String name, String type, String help, String value)
+            throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " " + type + "\n");
+        out.write(name + " " + value + "\n");
+    }
+
+    //helper function to find the histogram bucket of a duration
+    private static int bucketOf(long elapsedNanos) {
+        long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+        int bucket = 0;
+        while (bucket < FILE_BUCKET_MICROS.length && elapsedMicros > FILE_BUCKET_MICROS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    //helper function to convert nanoseconds to seconds
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    //helper function to format a number the same way on every locale
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.6g", value);
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() +
+                "[Enabled:" + this.isEnabled +
+                ", Files:" + this.filesDiscovered +
+                ", Evaluations:" + this.evaluationsMapped.sum() +
+                ", Stages:" + this.stageNanos.keySet() + "]";
+    }
+}
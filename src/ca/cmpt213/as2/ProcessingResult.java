@@ -0,0 +1,190 @@
+package ca.cmpt213.as2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class that represents the outcome of processing one cohort: teams (List<StudentGroup>),
+ * diagnostics (List<Diagnostic>), cache (FeedbackCache, null unless incremental), threads (int).
+ * A run is successful when there are no diagnostics; only then can the csv be written.
+ * @author Bei Bei Li
+ */
+public class ProcessingResult {
+
+    private final List<StudentGroup> teams;
+    private final List<Diagnostic> diagnostics;
+    private final FeedbackCache cache;
+    private final int threads;
+
+    //with several threads, this many group blocks are rendered in parallel before they are written,
+    //so only a window of the csv is held in memory at a time
+    private static final int RENDER_WINDOW = 1024;
+
+    /**
+     * Constructor that takes parameters to instantiate the ProcessingResult class
+     * @param teams The teams in csv order, each sorted by email; empty if the run stopped before grouping
+     * @param diagnostics The problems found, in the order they were found
+     * @param cache The cache the run used, or null
+     * @param threads The number of worker threads used to render the csv
+     */
+    ProcessingResult(List<StudentGroup> teams, List<Diagnostic> diagnostics, FeedbackCache cache, int threads) {
+        this.teams = Collections.unmodifiableList(teams);
+        this.diagnostics = Collections.unmodifiableList(diagnostics);
+        this.cache = cache;
+        this.threads = threads;
+    }
+
+    /**
+     * Method to check if the cohort was processed without problems
+     * @return A boolean value to indicate if there are no diagnostics
+     */
+    public boolean isSuccessful() {
+        return diagnostics.isEmpty();
+    }
+
+    /**
+     * Method to retrieve the problems found
+     * @return An unmodifiable List<Diagnostic>, empty if the run was successful
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Method to retrieve the teams
+     * @return An unmodifiable List<StudentGroup> in csv order
+     */
+    public List<StudentGroup> getTeams() {
+        return teams;
+    }
+
+    /**
+     * Method to work out how many rows writeCsv() writes
+     * @return The number of csv rows, including the header and the blank rows between groups
+     */
+    public long getCsvRowCount() {
+        long rows = 1;
+        for (StudentGroup eachTeam : teams) {
+            rows += CsvFeedbackWriter.groupRowCount(eachTeam.getGroupSize());
+        }
+        return rows;
+    }
+
+    /**
+     * Method to write the csv of a successful run; teams that did not change reuse their cached rows
+     * when the run was incremental. With several threads the group blocks are rendered in parallel and
+     * written in group order, so the csv is the same as with one thread.
+     * @param csvWriter The CsvFeedbackWriter to write to; it is not closed
+     * @throws IOException If the csv cannot be written
+     * @throws IllegalStateException If the run was not successful
+     */
+    public void writeCsv(CsvFeedbackWriter csvWriter) throws IOException {
+        writeCsvAndJson(csvWriter, null);
+    }
+
+    /**
+     * Method to write the csv of a successful run like writeCsv(), and group_feedback.json from the same pass
+     * over the teams; with several threads the json entries are worked out in parallel too
+     * @param csvWriter The CsvFeedbackWriter to write to; it is not closed
+     * @param jsonWriter The JsonFeedbackWriter to write to, or null to only write the csv; it is finished but
+     *                   not closed
+     * @throws IOException If the csv or the json cannot be written
+     * @throws IllegalStateException If the run was not successful
+     */
+    public void writeCsvAndJson(CsvFeedbackWriter csvWriter, JsonFeedbackWriter jsonWriter) throws IOException {
+        if (!isSuccessful()) {
+            throw new IllegalStateException("the csv of a failed run cannot be written");
+        }
+
+        //on one thread without a cache the rows go straight to the writers
+        if (threads == 1 && cache == null) {
+            writeTo(jsonWriter == null ? csvWriter : new MultiFeedbackSink(Arrays.asList(csvWriter, jsonWriter)));
+            return;
+        }
+
+        csvWriter.writeHeader();
+        if (jsonWriter != null) {
+            jsonWriter.begin();
+        }
+
+        try (TeamForkJoin forkJoin = new TeamForkJoin(threads)) {
+            for (int windowStart = 0; windowStart < teams.size(); windowStart += RENDER_WINDOW) {
+                int windowEnd = Math.min(teams.size(), windowStart + RENDER_WINDOW);
+                writeWindow(csvWriter, jsonWriter, forkJoin, windowStart, windowEnd);
+            }
+        }
+
+        if (jsonWriter != null) {
+            jsonWriter.finish();
+        }
+    }
+
+    /**
+     * Method to write a successful run to a sink in a single pass over the teams, in group order; to write
+     * several formats at once, give a MultiFeedbackSink. The teams are written on the calling thread.
+     * @param sink The FeedbackOutputSink to write to; it is finished but not closed
+     * @throws IOException If the sink fails
+     * @throws IllegalStateException If the run was not successful
+     */
+    public void writeTo(FeedbackOutputSink sink) throws IOException {
+        if (!isSuccessful()) {
+            throw new IllegalStateException("the output of a failed run cannot be written");
+        }
+
+        sink.begin();
+        for (int groupIndex = 0; groupIndex < teams.size(); groupIndex++){
+            int displayedGroupIndex = groupIndex + 1;
+            sink.writeTeam(displayedGroupIndex, teams.get(groupIndex));
+        }
+        sink.finish();
+    }
+
+    //helper function to render the group blocks [windowStart, windowEnd) on the pool and write them in order;
+    //cached rows are looked up and stored on this thread, only the rendering runs in parallel
+    private void writeWindow(CsvFeedbackWriter csvWriter, JsonFeedbackWriter jsonWriter, TeamForkJoin forkJoin,
+                             int windowStart, int windowEnd) throws IOException {
+        List<String> blocks = new ArrayList<>(windowEnd - windowStart);
+        List<StudentGroup> teamsToRender = new ArrayList<>();
+        for (int groupIndex = windowStart; groupIndex < windowEnd; groupIndex++) {
+            String cachedRows = cache == null ? null : cache.findRows(teams.get(groupIndex));
+            blocks.add(cachedRows);
+            if (cachedRows == null) {
+                teamsToRender.add(teams.get(groupIndex));
+            }
+        }
+
+        List<String> rendered = forkJoin.map(teamsToRender, CsvFeedbackWriter::renderTeamRows);
+        List<List<JsonFeedbackWriter.StudentMark>> marks = jsonWriter == null
+                ? null : forkJoin.map(teams, windowStart, windowEnd, JsonFeedbackWriter::markTeam);
+
+        int renderedIndex = 0;
+        for (int groupIndex = windowStart; groupIndex < windowEnd; groupIndex++) {
+            String rows = blocks.get(groupIndex - windowStart);
+            if (rows == null) {
+                rows = rendered.get(renderedIndex++);
+                if (cache != null) {
+                    cache.storeRows(teams.get(groupIndex), rows);
+                }
+            }
+            int displayedGroupIndex = groupIndex + 1;
+            csvWriter.writeGroup(displayedGroupIndex, rows);
+            if (jsonWriter != null) {
+                jsonWriter.writeMarks(marks.get(groupIndex - windowStart));
+            }
+        }
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() +
+                "[Teams:" + this.teams.size() +
+                ", Diagnostics:" + this.diagnostics + "]";
+    }
+}
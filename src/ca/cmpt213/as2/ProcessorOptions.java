@@ -0,0 +1,374 @@
+package ca.cmpt213.as2;
+
+/**
+ * A class that represents the command line options of the processor: inputPath (String), outputPath (String),
+ * and the optional flags given after the two paths (e.g. --threads=4).
+ * @author Bei Bei Li
+ */
+public class ProcessorOptions {
+
+    //prefix of the flag that sets the number of worker threads used to map .json files
+    private static final String THREADS_FLAG = "--threads=";
+
+    //prefix of the flag that turns on incremental mode with the given cache file
+    private static final String CACHE_FLAG = "--cache=";
+
+    //flag that keeps the processor running and re-processes the input when .json files change;
+    //it may be given a debounce in milliseconds, e.g. --watch=2000
+    private static final String WATCH_FLAG = "--watch";
+
+    //flag that writes each team's csv block as soon as the team is complete, instead of after all files are read
+    private static final String STREAM_FLAG = "--stream";
+
+    //flag that writes metrics of the run next to the csv, in the Prometheus text format unless =json is given
+    private static final String METRICS_FLAG = "--metrics";
+
+    //prefix of the flag that splits the input by team and processes each part in a worker process of its own
+    private static final String SHARDS_FLAG = "--shards=";
+
+    //flag that also writes group_feedback.json next to the csv, from the same pass over the teams
+    private static final String JSON_FLAG = "--json";
+
+    //prefix of the flag that saves the grouped teams to a binary snapshot after a successful run
+    private static final String SNAPSHOT_FLAG = "--snapshot=";
+
+    //flag that checks the whole input with a cheap scan before it is parsed in full; with =only, no csv is written
+    private static final String PRESCAN_FLAG = "--prescan";
+    private static final String PRESCAN_ONLY = "only";
+
+    //flag that spills the evaluations to run files partitioned by team, so the whole cohort is never in memory;
+    //it may be given the number of partitions, e.g. --spill=256
+    private static final String SPILL_FLAG = "--spill";
+
+    /**
+     * Formats the metrics can be written in
+     */
+    public static final String METRICS_PROMETHEUS = "prometheus";
+    public static final String METRICS_JSON = "json";
+
+    //quiet time after the last change before a batch of changes is processed
+    private static final long DEFAULT_WATCH_DEBOUNCE_MILLIS = 500;
+
+    //run files the evaluations are spread over when --spill is given without a number
+    private static final int DEFAULT_SPILL_PARTITIONS = 64;
+
+    private String inputPath;
+    private String outputPath;
+
+    //1 keeps the original sequential mapping on the calling thread
+    private int threads = 1;
+
+    //null unless incremental mode is on
+    private String cachePath = null;
+
+    //0 unless watch mode is on
+    private long watchDebounceMillis = 0;
+
+    private boolean isStreaming = false;
+
+    //null unless metrics are written
+    private String metricsFormat = null;
+
+    private boolean isWritingJson = false;
+
+    //1 processes everything in this process
+    private int shards = 1;
+
+    //null unless a snapshot is saved
+    private String snapshotPath = null;
+
+    private boolean isPreScanning = false;
+    private boolean isPreScanOnly = false;
+
+    //0 unless spilling mode is on
+    private int spillPartitions = 0;
+
+    /**
+     * Constructor that takes the two required paths to instantiate the ProcessorOptions class
+     * @param inputPath The directory path for the input .JSON files
+     * @param outputPath The directory path (or .csv file path) for the output
+     */
+    public ProcessorOptions(String inputPath, String outputPath) {
+        this.inputPath = inputPath;
+        this.outputPath = outputPath;
+    }
+
+    /**
+     * Method to parse the command line arguments; the first two are the paths, the rest are optional flags
+     * @param args The command line arguments
+     * @return The parsed options
+     * @throws IllegalArgumentException If there are fewer than two arguments or a flag is not recognized
+     */
+    public static ProcessorOptions parse(String[] args) {
+        int requiredArgsNumber = 2;
+        if (args.length < requiredArgsNumber) {
+            throw new IllegalArgumentException("2 path arguments are expected");
+        }
+
+        ProcessorOptions options = new ProcessorOptions(args[0], args[1]);
+
+        for (int flagIndex = requiredArgsNumber; flagIndex < args.length; flagIndex++) {
+            String flag = args[flagIndex];
+            if (flag.startsWith(THREADS_FLAG)) {
+                options.threads = parsePositiveInt(flag, flag.substring(THREADS_FLAG.length()));
+            } else if (flag.startsWith(CACHE_FLAG) && flag.length() > CACHE_FLAG.length()) {
+                options.cachePath = flag.substring(CACHE_FLAG.length());
+            } else if (flag.equals(WATCH_FLAG)) {
+                options.watchDebounceMillis = DEFAULT_WATCH_DEBOUNCE_MILLIS;
+            } else if (flag.startsWith(WATCH_FLAG + "=")) {
+                options.watchDebounceMillis = parsePositiveInt(flag, flag.substring(WATCH_FLAG.length() + 1));
+            } else if (flag.equals(STREAM_FLAG)) {
+                options.isStreaming = true;
+            } else if (flag.equals(METRICS_FLAG)) {
+                options.metricsFormat = METRICS_PROMETHEUS;
+            } else if (flag.equals(METRICS_FLAG + "=" + METRICS_PROMETHEUS)
+                    || flag.equals(METRICS_FLAG + "=" + METRICS_JSON)) {
+                options.metricsFormat = flag.substring(METRICS_FLAG.length() + 1);
+            } else if (flag.startsWith(SHARDS_FLAG)) {
+                options.shards = parsePositiveInt(flag, flag.substring(SHARDS_FLAG.length()));
+            } else if (flag.equals(JSON_FLAG)) {
+                options.isWritingJson = true;
+            } else if (flag.startsWith(SNAPSHOT_FLAG) && flag.length() > SNAPSHOT_FLAG.length()) {
+                options.snapshotPath = flag.substring(SNAPSHOT_FLAG.length());
+            } else if (flag.equals(PRESCAN_FLAG)) {
+                options.isPreScanning = true;
+            } else if (flag.equals(PRESCAN_FLAG + "=" + PRESCAN_ONLY)) {
+                options.isPreScanning = true;
+                options.isPreScanOnly = true;
+            } else if (flag.equals(SPILL_FLAG)) {
+                options.spillPartitions = DEFAULT_SPILL_PARTITIONS;
+            } else if (flag.startsWith(SPILL_FLAG + "=")) {
+                options.spillPartitions = parsePositiveInt(flag, flag.substring(SPILL_FLAG.length() + 1));
+            } else {
+                throw new IllegalArgumentException("unknown option " + flag);
+            }
+        }
+
+        //streaming keeps no teams after they are written, so there is nothing to cache or to reuse
+        if (options.isStreaming && (options.isIncremental() || options.isWatching())) {
+            throw new IllegalArgumentException("option " + STREAM_FLAG + " cannot be combined with " +
+                    CACHE_FLAG + " or " + WATCH_FLAG);
+        }
+        //a watched run never ends, so there is no run to write the metrics of
+        if (options.metricsFormat != null && options.isWatching()) {
+            throw new IllegalArgumentException("option " + METRICS_FLAG + " cannot be combined with " + WATCH_FLAG);
+        }
+        //the json is written from the teams of a finished run; streaming and watch mode only write the csv
+        if (options.isWritingJson && (options.isStreaming || options.isWatching())) {
+            throw new IllegalArgumentException("option " + JSON_FLAG + " cannot be combined with " +
+                    STREAM_FLAG + " or " + WATCH_FLAG);
+        }
+        //the coordinator only sees the rendered rows of the workers, and each run starts new workers
+        if (options.isSharded() && (options.isIncremental() || options.isWatching() || options.isStreaming
+                || options.isWritingJson || options.isSavingSnapshot() || options.isRecordingMetrics())) {
+            throw new IllegalArgumentException("option " + SHARDS_FLAG + " cannot be combined with " + CACHE_FLAG +
+                    ", " + WATCH_FLAG + ", " + STREAM_FLAG + ", " + JSON_FLAG + ", " + SNAPSHOT_FLAG + " or " +
+                    METRICS_FLAG);
+        }
+        //a snapshot holds the grouped teams, which streaming does not keep and watch mode never finishes with
+        if (options.isSavingSnapshot() && (options.isStreaming || options.isWatching())) {
+            throw new IllegalArgumentException("option " + SNAPSHOT_FLAG + " cannot be combined with " +
+                    STREAM_FLAG + " or " + WATCH_FLAG);
+        }
+        //a watched input changes after the scan, and each batch is already reported on its own
+        if (options.isPreScanning && options.isWatching()) {
+            throw new IllegalArgumentException("option " + PRESCAN_FLAG + " cannot be combined with " + WATCH_FLAG);
+        }
+        //spilling keeps neither the files nor the teams in memory, only the rendered rows on disk
+        if (options.isSpilling() && (options.isIncremental() || options.isWatching() || options.isStreaming
+                || options.isSharded() || options.isWritingJson || options.isSavingSnapshot()
+                || options.isRecordingMetrics())) {
+            throw new IllegalArgumentException("option " + SPILL_FLAG + " cannot be combined with " + CACHE_FLAG +
+                    ", " + WATCH_FLAG + ", " + STREAM_FLAG + ", " + SHARDS_FLAG + ", " + JSON_FLAG + ", " +
+                    SNAPSHOT_FLAG + " or " + METRICS_FLAG);
+        }
+        return options;
+    }
+
+    //helper function to parse the value of a numeric flag; it has to be at least 1
+    private static int parsePositiveInt(String flag, String value) {
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch (NumberFormatException notNumber) {
+            throw new IllegalArgumentException("option " + flag + " expects a number");
+        }
+        if (parsed < 1) {
+            throw new IllegalArgumentException("option " + flag + " expects a number greater than 0");
+        }
+        return parsed;
+    }
+
+    /**
+     * Method to retrieve the input path
+     * @return The directory path for the input .JSON files
+     */
+    public String getInputPath() {
+        return inputPath;
+    }
+
+    /**
+     * Method to retrieve the output path
+     * @return The directory path (or .csv file path) for the output
+     */
+    public String getOutputPath() {
+        return outputPath;
+    }
+
+    /**
+     * Method to retrieve the number of worker threads used to map .json files
+     * @return The number of worker threads; 1 means sequential mapping
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Method to retrieve the cache file used by incremental mode
+     * @return The cache file path, or null if incremental mode is off
+     */
+    public String getCachePath() {
+        return cachePath;
+    }
+
+    /**
+     * Method to check if incremental mode is on (only new or changed files are parsed)
+     * @return A boolean value to indicate if a cache file was given
+     */
+    public boolean isIncremental() {
+        return cachePath != null;
+    }
+
+    /**
+     * Method to check if watch mode is on (the processor keeps running and re-processes changed files)
+     * @return A boolean value to indicate if --watch was given
+     */
+    public boolean isWatching() {
+        return watchDebounceMillis > 0;
+    }
+
+    /**
+     * Method to retrieve how long watch mode waits after the last change before processing a batch
+     * @return The debounce in milliseconds, or 0 if watch mode is off
+     */
+    public long getWatchDebounceMillis() {
+        return watchDebounceMillis;
+    }
+
+    /**
+     * Method to check if streaming mode is on (teams are written while the files are still being read)
+     * @return A boolean value to indicate if --stream was given
+     */
+    public boolean isStreaming() {
+        return isStreaming;
+    }
+
+    /**
+     * Method to check if the metrics of the run are written next to the csv
+     * @return A boolean value to indicate if --metrics was given
+     */
+    public boolean isRecordingMetrics() {
+        return metricsFormat != null;
+    }
+
+    /**
+     * Method to retrieve the format the metrics are written in
+     * @return METRICS_PROMETHEUS or METRICS_JSON, or null if metrics are not written
+     */
+    public String getMetricsFormat() {
+        return metricsFormat;
+    }
+
+    /**
+     * Method to retrieve the number of worker processes the input is split across
+     * @return The number of shards; 1 means everything is processed in this process
+     */
+    public int getShards() {
+        return shards;
+    }
+
+    /**
+     * Method to check if sharded mode is on (teams are processed by worker processes)
+     * @return A boolean value to indicate if --shards was given with more than one shard
+     */
+    public boolean isSharded() {
+        return shards > 1;
+    }
+
+    /**
+     * Method to check if group_feedback.json is written next to the csv
+     * @return A boolean value to indicate if --json was given
+     */
+    public boolean isWritingJson() {
+        return isWritingJson;
+    }
+
+    /**
+     * Method to check if the grouped teams are saved to a snapshot after a successful run
+     * @return A boolean value to indicate if --snapshot was given
+     */
+    public boolean isSavingSnapshot() {
+        return snapshotPath != null;
+    }
+
+    /**
+     * Method to retrieve the snapshot file the grouped teams are saved to
+     * @return The snapshot file path, or null if no snapshot is saved
+     */
+    public String getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    /**
+     * Method to check if the input is checked with a cheap scan before it is parsed in full
+     * @return A boolean value to indicate if --prescan was given
+     */
+    public boolean isPreScanning() {
+        return isPreScanning;
+    }
+
+    /**
+     * Method to check if the run stops after the scan, without parsing the input in full or writing the csv
+     * @return A boolean value to indicate if --prescan=only was given
+     */
+    public boolean isPreScanOnly() {
+        return isPreScanOnly;
+    }
+
+    /**
+     * Method to check if spilling mode is on (the evaluations are grouped through run files on disk)
+     * @return A boolean value to indicate if --spill was given
+     */
+    public boolean isSpilling() {
+        return spillPartitions > 0;
+    }
+
+    /**
+     * Method to retrieve the number of run files the evaluations are partitioned into by team
+     * @return The number of partitions, or 0 if spilling mode is off
+     */
+    public int getSpillPartitions() {
+        return spillPartitions;
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() +
+                "[Input Path:" + this.inputPath +
+                ", Output Path:" + this.outputPath +
+                ", Threads:" + this.threads +
+                ", Cache:" + this.cachePath +
+                ", Watch Debounce:" + this.watchDebounceMillis +
+                ", Streaming:" + this.isStreaming +
+                ", Metrics:" + this.metricsFormat +
+                ", Shards:" + this.shards +
+                ", Json:" + this.isWritingJson +
+                ", Snapshot:" + this.snapshotPath +
+                ", Pre-scan:" + (this.isPreScanOnly ? PRESCAN_ONLY : String.valueOf(this.isPreScanning)) +
+                ", Spill Partitions:" + this.spillPartitions + "]";
+    }
+}
@@ -0,0 +1,198 @@
+package ca.cmpt213.as2;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The class that holds the main application of a shard worker process, started by ShardedFeedbackPipeline.
+ * A worker is given the .json files of some of the teams and runs the usual stages on them: mapping, grouping,
+ * validation and rendering the csv rows of each team. Like FeedbackPipeline, it stops after the first stage that
+ * finds problems. It writes a Result with either the problems of that stage or the rendered rows of its teams;
+ * each problem and team carries the position of its file in the search of the whole input, so the coordinator
+ * can merge the shards in the order a single process would have used.
+ * The task and the result are passed as JSON files; the worker prints nothing and exits with 0 once the result
+ * is written.
+ * @author Bei Bei Li
+ */
+public class ShardWorker {
+
+    private static final Gson GSON = new Gson();
+
+    //a class with a main function only
+    private ShardWorker() {
+    }
+
+    /**
+     * Main function to run a shard worker
+     * @param args Two arguments: (1) the task file written by the coordinator and (2) the result file to write
+     * @throws IOException If the task cannot be read or the result cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("a task file and a result file are expected");
+        }
+        Task task = readJson(Paths.get(args[0]), Task.class);
+        writeJson(Paths.get(args[1]), process(task));
+    }
+
+    //helper function to run the stages on the files of the task
+    private static Result process(Task task) {
+        Result result = new Result();
+        FeedbackPipeline pipeline = new FeedbackPipeline(task.threads);
+
+        List<File> jsonFiles = new ArrayList<>(task.paths.size());
+        Map<String, Integer> positionOfPath = new HashMap<>(task.paths.size() * 2);
+        for (int fileIndex = 0; fileIndex < task.paths.size(); fileIndex++) {
+            File jsonFile = new File(task.paths.get(fileIndex));
+            jsonFiles.add(jsonFile);
+            positionOfPath.put(jsonFile.getAbsolutePath(), task.positions.get(fileIndex));
+        }
+
+        //mapping: the problems are about files
+        List<Diagnostic> mappingErrors = new ArrayList<>();
+        List<StudentEvaluation> evaluations = pipeline.mapJson(jsonFiles, mappingErrors);
+        if (!mappingErrors.isEmpty()) {
+            for (Diagnostic eachError : mappingErrors) {
+                result.add(positionOfPath.get(eachError.getSubject()), eachError);
+            }
+            return result;
+        }
+
+        //grouping: every file was mapped, so evaluation i comes from file i
+        TeamGrouper grouper = new TeamGrouper();
+        Map<String, Integer> firstPositionOfTeam = new HashMap<>();
+        for (int evaluationIndex = 0; evaluationIndex < evaluations.size(); evaluationIndex++) {
+            StudentEvaluation eachEva = evaluations.get(evaluationIndex);
+            int position = task.positions.get(evaluationIndex);
+            firstPositionOfTeam.putIfAbsent(eachEva.getGroupName(), position);
+            if (grouper.add(eachEva) == false) {
+                result.add(position, new Diagnostic(Diagnostic.Kind.DUPLICATE_EVALUATION, eachEva.getStudentEmail(),
+                        "student evaluation duplicated for " + eachEva.getStudentEmail()));
+            }
+        }
+        if (!result.diagnostics.isEmpty()) {
+            return result;
+        }
+
+        //validation and rendering: the problems and rows of a team are placed where the team was first seen
+        List<StudentGroup> teams = grouper.getTeams();
+        TeamValidator validator = new TeamValidator();
+        try (TeamForkJoin forkJoin = new TeamForkJoin(task.threads)) {
+            List<List<Diagnostic>> teamErrors = forkJoin.map(teams, validator::validateTeam);
+            for (int teamIndex = 0; teamIndex < teams.size(); teamIndex++) {
+                int position = firstPositionOfTeam.get(teams.get(teamIndex).getStudentGroupName());
+                for (Diagnostic eachError : teamErrors.get(teamIndex)) {
+                    result.add(position, eachError);
+                }
+            }
+            if (!result.diagnostics.isEmpty()) {
+                return result;
+            }
+
+            List<String> rows = forkJoin.map(teams, CsvFeedbackWriter::renderTeamRows);
+            for (int teamIndex = 0; teamIndex < teams.size(); teamIndex++) {
+                StudentGroup team = teams.get(teamIndex);
+                result.teams.add(new RenderedTeam(firstPositionOfTeam.get(team.getStudentGroupName()),
+                        team.getGroupSize(), rows.get(teamIndex)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Method to read a task or a result
+     * @param file The JSON file
+     * @param type Task.class or Result.class
+     * @param <T> The type read
+     * @return The object read
+     * @throws IOException If the file cannot be read
+     */
+    static <T> T readJson(Path file, Class<T> type) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, type);
+        }
+    }
+
+    /**
+     * Method to write a task or a result
+     * @param file The JSON file
+     * @param content The Task or Result
+     * @throws IOException If the file cannot be written
+     */
+    static void writeJson(Path file, Object content) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            GSON.toJson(content, writer);
+        }
+    }
+
+    /**
+     * What the coordinator gives a worker: the files of its teams in search order, the position of each file in
+     * the search of the whole input, and the number of threads the worker may use
+     */
+    static class Task {
+        List<String> paths = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        int threads = 1;
+    }
+
+    /**
+     * What a worker gives back: the problems of the stage that failed, or the rendered teams if there were none
+     */
+    static class Result {
+        List<PlacedDiagnostic> diagnostics = new ArrayList<>();
+        List<RenderedTeam> teams = new ArrayList<>();
+
+        //helper function to add a problem found at the given position
+        private void add(int position, Diagnostic diagnostic) {
+            diagnostics.add(new PlacedDiagnostic(position, diagnostic));
+        }
+    }
+
+    /**
+     * A problem and the position of the file it was found at; the stage is told by the kind
+     */
+    static class PlacedDiagnostic {
+        int position;
+        Diagnostic.Kind kind;
+        String subject;
+        String message;
+
+        PlacedDiagnostic(int position, Diagnostic diagnostic) {
+            this.position = position;
+            this.kind = diagnostic.getKind();
+            this.subject = diagnostic.getSubject();
+            this.message = diagnostic.getMessage();
+        }
+
+        Diagnostic toDiagnostic() {
+            return new Diagnostic(kind, subject, message);
+        }
+    }
+
+    /**
+     * The csv rows of a team and the position of the file the team was first seen in
+     */
+    static class RenderedTeam {
+        int position;
+        int size;
+        String rows;
+
+        RenderedTeam(int position, int size, String rows) {
+            this.position = position;
+            this.size = size;
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package ca.cmpt213.as2;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A class that processes a cohort on several worker processes: shards (int), workerThreads (int).
+ * Every team is processed by one worker, so the coordinator splits the .json files by team: it reads the owner's
+ * sfu email at the top of each file, takes the team # from it the way Group.getGroupName() does, and sends the
+ * file to the shard given by the hash of the team #. Each worker (see ShardWorker) maps, groups, validates and
+ * renders its teams in a JVM of its own and writes them to a partial result.
+ * The coordinator then merges the partial results by the position of each team's first file in the search, which
+ * is the order a single process gives the groups, so the csv is byte for byte the one of FeedbackPipeline. The
+ * diagnostics are merged the same way, keeping only the earliest stage that failed in any shard.
+ * A file whose owner cannot be read goes to the first shard, whose worker reports it when mapping.
+ * @author Bei Bei Li
+ */
+public class ShardedFeedbackPipeline implements CsvWritingPipeline {
+
+    private final int shards;
+    private final int workerThreads;
+
+    private long writtenRowCount = 0;
+
+    /**
+     * Constructor that takes parameters to instantiate the ShardedFeedbackPipeline class
+     * @param shards The number of worker processes
+     * @param workerThreads The number of threads each worker maps and validates its files on
+     */
+    public ShardedFeedbackPipeline(int shards, int workerThreads) {
+        if (shards < 1 || workerThreads < 1) {
+            throw new IllegalArgumentException("shards and workerThreads have to be at least 1");
+        }
+        this.shards = shards;
+        this.workerThreads = workerThreads;
+    }
+
+    /**
+     * Method to process all the .json files under the directory on the worker processes and write the csv.
+     * The csv is only written if every shard was successful.
+     * @param inputDirectory The directory that contains the .json files
+     * @param csvWriter The CsvFeedbackWriter to write to; it is not closed
+     * @return The problems found, in the order a single process reports them; empty if the csv was written
+     * @throws IOException If a worker cannot be started or fails, or the csv cannot be written
+     */
+    @Override
+    public List<Diagnostic> process(Path inputDirectory, CsvFeedbackWriter csvWriter) throws IOException {
+        writtenRowCount = 0;
+
+        List<File> jsonFiles = new JsonFileWalker(1).findAll(inputDirectory);
+        if (jsonFiles.isEmpty()) {
+            List<Diagnostic> diagnostics = new ArrayList<>();
+            diagnostics.add(FeedbackPipeline.noJsonFiles(inputDirectory));
+            return diagnostics;
+        }
+
+        Path workDirectory = Files.createTempDirectory("peer-feedback-shards-");
+        try {
+            List<ShardWorker.Result> results = runWorkers(partition(jsonFiles), workDirectory);
+            List<Diagnostic> diagnostics = mergeDiagnostics(results);
+            if (diagnostics.isEmpty()) {
+                writeMerged(results, csvWriter);
+            }
+            return diagnostics;
+        } finally {
+            deleteDirectory(workDirectory);
+        }
+    }
+
+    /**
+     * Method to retrieve the number of csv rows written by the last run
+     * @return The number of rows, including the header and the blank rows between groups; 0 if the run failed
+     */
+    @Override
+    public long getWrittenRowCount() {
+        return writtenRowCount;
+    }
+
+    //helper function to split the files into one task per shard, keeping the search order inside each shard
+    private List<ShardWorker.Task> partition(List<File> jsonFiles) {
+        List<ShardWorker.Task> tasks = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            ShardWorker.Task task = new ShardWorker.Task();
+            task.threads = workerThreads;
+            tasks.add(task);
+        }
+
+        for (int position = 0; position < jsonFiles.size(); position++) {
+            File jsonFile = jsonFiles.get(position);
+            String teamName = readOwnerTeam(jsonFile);
+            int shard = teamName == null ? 0 : Math.floorMod(teamName.hashCode(), shards);
+            tasks.get(shard).paths.add(jsonFile.getAbsolutePath());
+            tasks.get(shard).positions.add(position);
+        }
+        return tasks;
+    }
+
+    //helper function to start a worker for every shard that has files, and wait for all of them
+    private List<ShardWorker.Result> runWorkers(List<ShardWorker.Task> tasks, Path workDirectory)
+            throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        String classPath = System.getProperty("java.class.path");
+
+        List<Process> workers = new ArrayList<>();
+        List<Path> resultFiles = new ArrayList<>();
+        try {
+            for (int shard = 0; shard < tasks.size(); shard++) {
+                if (tasks.get(shard).paths.isEmpty()) {
+                    continue;
+                }
+                Path taskFile = workDirectory.resolve("shard-" + shard + ".task.json");
+                Path resultFile = workDirectory.resolve("shard-" + shard + ".result.json");
+                ShardWorker.writeJson(taskFile, tasks.get(shard));
+
+                ProcessBuilder builder = new ProcessBuilder(java, "-cp", classPath, ShardWorker.class.getName(),
+                        taskFile.toString(), resultFile.toString());
+                builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+                builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+                workers.add(builder.start());
+                resultFiles.add(resultFile);
+            }
+
+            List<ShardWorker.Result> results = new ArrayList<>(workers.size());
+            for (int worker = 0; worker < workers.size(); worker++) {
+                int exitCode = workers.get(worker).waitFor();
+                if (exitCode != 0) {
+                    throw new IOException("shard worker " + resultFiles.get(worker).getFileName() +
+                            " exited with code " + exitCode);
+                }
+                results.add(ShardWorker.readJson(resultFiles.get(worker), ShardWorker.Result.class));
+            }
+            return results;
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the shard workers", interrupted);
+        } finally {
+            for (Process eachWorker : workers) {
+                eachWorker.destroy();
+            }
+        }
+    }
+
+    //helper function to keep the problems of the earliest stage that failed, ordered like a single process:
+    //by the position of the file, or of the team's first file
+    private static List<Diagnostic> mergeDiagnostics(List<ShardWorker.Result> results) {
+        int failedStage = Integer.MAX_VALUE;
+        for (ShardWorker.Result eachResult : results) {
+            for (ShardWorker.PlacedDiagnostic eachProblem : eachResult.diagnostics) {
+                failedStage = Math.min(failedStage, stageOf(eachProblem.kind));
+            }
+        }
+
+        List<ShardWorker.PlacedDiagnostic> placed = new ArrayList<>();
+        for (ShardWorker.Result eachResult : results) {
+            for (ShardWorker.PlacedDiagnostic eachProblem : eachResult.diagnostics) {
+                if (stageOf(eachProblem.kind) == failedStage) {
+                    placed.add(eachProblem);
+                }
+            }
+        }
+        //the sort is stable, so the problems of one team stay in the order its worker found them
+        placed.sort(Comparator.comparingInt(problem -> problem.position));
+
+        List<Diagnostic> diagnostics = new ArrayList<>(placed.size());
+        for (ShardWorker.PlacedDiagnostic eachProblem : placed) {
+            diagnostics.add(eachProblem.toDiagnostic());
+        }
+        return diagnostics;
+    }
+
+    //helper function to tell which stage reports a kind of problem: mapping, grouping or validation
+    private static int stageOf(Diagnostic.Kind kind) {
+        switch (kind) {
+            case UNREADABLE_FILE:
+            case INVALID_FILE:
+                return 0;
+            case DUPLICATE_EVALUATION:
+                return 1;
+            default:
+                return 2;
+        }
+    }
+
+    //helper function to write the rendered teams of every shard in the order they were first seen
+    private void writeMerged(List<ShardWorker.Result> results, CsvFeedbackWriter csvWriter) throws IOException {
+        List<ShardWorker.RenderedTeam> teams = new ArrayList<>();
+        for (ShardWorker.Result eachResult : results) {
+            teams.addAll(eachResult.teams);
+        }
+        teams.sort(Comparator.comparingInt(team -> team.position));
+
+        csvWriter.writeHeader();
+        long rows = 1;
+        for (int groupIndex = 0; groupIndex < teams.size(); groupIndex++) {
+            int displayedGroupIndex = groupIndex + 1;
+            csvWriter.writeGroup(displayedGroupIndex, teams.get(groupIndex).rows);
+            rows += CsvFeedbackWriter.groupRowCount(teams.get(groupIndex).size);
+        }
+        writtenRowCount = rows;
+    }
+
+    //helper function to read the team # of a file's owner: the sfu email of the first feedback of "group".
+    //It is read like StudentEvaluationAdapter reads it (leniently, and the last of a repeated field wins), so a
+    //file that maps goes to the shard of its team; only the owner's feedback is kept, the rest is skipped.
+    //Returns null if the file cannot be read that far or has no team #
+    private static String readOwnerTeam(File jsonFile) {
+        String ownerEmail = null;
+        try (Reader reader = Files.newBufferedReader(jsonFile.toPath(), StandardCharsets.UTF_8);
+             JsonReader json = new JsonReader(reader)) {
+            json.setLenient(true);
+            json.beginObject();
+            while (json.hasNext()) {
+                if (!json.nextName().equals("group") || json.peek() != JsonToken.BEGIN_ARRAY) {
+                    json.skipValue();
+                    continue;
+                }
+                ownerEmail = null;
+                json.beginArray();
+                if (json.hasNext() && json.peek() == JsonToken.BEGIN_OBJECT) {
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        if (json.nextName().equals("sfu_email")) {
+                            ownerEmail = readString(json);
+                        } else {
+                            json.skipValue();
+                        }
+                    }
+                    json.endObject();
+                }
+                while (json.hasNext()) {
+                    json.skipValue();
+                }
+                json.endArray();
+            }
+        } catch (IOException | RuntimeException unreadable) {
+            //the worker maps the file again and reports the problem
+            return null;
+        }
+        return ownerEmail == null ? null : Group.groupNameOf(ownerEmail);
+    }
+
+    //helper function to read a string field the way StudentEvaluationAdapter does; null for a JSON null
+    private static String readString(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        return json.nextString();
+    }
+
+    //helper function to delete the task and result files
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() +
+                "[Shards:" + this.shards +
+                ", Worker Threads:" + this.workerThreads + "]";
+    }
+}
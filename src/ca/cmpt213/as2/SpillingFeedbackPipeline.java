@@ -0,0 +1,375 @@
+package ca.cmpt213.as2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * A class that processes a cohort larger than the heap by spilling it to disk: partitions (int), threads (int).
+ * The files are found and mapped one at a time, and each evaluation is written straight to the run file of its
+ * partition, given by the hash of its team #, so no list of files or evaluations is kept. Every team ends up in
+ * one partition, and each partition is then read back, grouped, checked and rendered on its own, and its csv rows
+ * are written to an output run file; the output run files are then merged into the csv one team at a time.
+ * Peak memory is bounded by the largest partition instead of the whole cohort; with enough partitions, that comes
+ * down to a few teams.
+ * Evaluations carry the position of their file in the search, so the teams and the problems are merged back in
+ * the order of FeedbackPipeline, and the csv is byte for byte the same. Like FeedbackPipeline, a run stops after
+ * the first stage that finds problems (mapping, grouping, validation) and reports all the problems of that stage.
+ * The input is a directory of .json files or an NDJSON file.
+ * @author Bei Bei Li
+ */
+public class SpillingFeedbackPipeline implements CsvWritingPipeline {
+
+    //per run file; the run files of every partition are open at once during the first pass and the merge
+    private static final int RUN_BUFFER_SIZE = 16 * 1024;
+
+    private final int partitions;
+    private final int threads;
+
+    private long writtenRowCount = 0;
+
+    /**
+     * Constructor that takes parameters to instantiate the SpillingFeedbackPipeline class
+     * @param partitions The number of run files the evaluations are spread over
+     * @param threads The number of worker threads each partition is checked and rendered on
+     */
+    public SpillingFeedbackPipeline(int partitions, int threads) {
+        if (partitions < 1 || threads < 1) {
+            throw new IllegalArgumentException("partitions and threads have to be at least 1");
+        }
+        this.partitions = partitions;
+        this.threads = threads;
+    }
+
+    /**
+     * Method to process all the .json files under the directory, or the lines of the NDJSON file, and write the
+     * csv. The csv is only written if the whole cohort is valid.
+     * @param input The directory that contains the .json files, or a .ndjson or .jsonl file
+     * @param csvWriter The CsvFeedbackWriter to write to; it is not closed
+     * @return The problems found, in the order FeedbackPipeline reports them; empty if the csv was written
+     * @throws IOException If a run file cannot be written or read, or the csv cannot be written
+     */
+    @Override
+    public List<Diagnostic> process(Path input, CsvFeedbackWriter csvWriter) throws IOException {
+        writtenRowCount = 0;
+        List<Diagnostic> diagnostics = new ArrayList<>();
+
+        Path workDirectory = Files.createTempDirectory("peer-feedback-spill-");
+        try {
+            int mappedCount = spill(input, workDirectory, diagnostics);
+            if (mappedCount < 1 && diagnostics.isEmpty()) {
+                diagnostics.add(FeedbackPipeline.noJsonFiles(input));
+            }
+            if (!diagnostics.isEmpty()) {
+                return diagnostics;
+            }
+
+            List<PlacedDiagnostic> duplicates = new ArrayList<>();
+            List<PlacedDiagnostic> teamErrors = new ArrayList<>();
+            for (int partition = 0; partition < partitions; partition++) {
+                processPartition(workDirectory, partition, duplicates, teamErrors);
+            }
+
+            //the sort is stable, so the problems of one team stay in the order they were found
+            List<PlacedDiagnostic> failed = !duplicates.isEmpty() ? duplicates : teamErrors;
+            failed.sort(Comparator.comparingInt(problem -> problem.position));
+            for (PlacedDiagnostic eachProblem : failed) {
+                diagnostics.add(eachProblem.diagnostic);
+            }
+            if (diagnostics.isEmpty()) {
+                writeMerged(workDirectory, csvWriter);
+            }
+            return diagnostics;
+        } finally {
+            deleteDirectory(workDirectory);
+        }
+    }
+
+    /**
+     * Method to retrieve the number of csv rows written by the last run
+     * @return The number of rows, including the header and the blank rows between groups; 0 if the run failed
+     */
+    @Override
+    public long getWrittenRowCount() {
+        return writtenRowCount;
+    }
+
+    //helper function for the first pass: map every file in search order and write each evaluation to the run
+    //file of its partition; the problems of the files that failed are added. Returns the number of files found
+    private int spill(Path input, Path workDirectory, List<Diagnostic> diagnostics) throws IOException {
+        JsonFileMapper mapper = JsonFileMapper.withoutInterning(PipelineMetrics.disabled());
+        DataOutputStream[] runs = new DataOutputStream[partitions];
+        int[] position = {0};
+
+        try {
+            for (int partition = 0; partition < partitions; partition++) {
+                runs[partition] = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(runFile(workDirectory, partition)), RUN_BUFFER_SIZE));
+            }
+
+            if (NdjsonLineWalker.isNdjson(input)) {
+                new NdjsonLineWalker().walk(input, (jsonEntry, content) -> {
+                    try {
+                        spillOne(mapper.mapContent(content, jsonEntry.getSubject()), position[0], runs);
+                    } catch (JsonFileMapper.MappingException mappingError) {
+                        diagnostics.add(mappingError.getDiagnostic());
+                    }
+                    position[0]++;
+                });
+            } else {
+                try {
+                    //one thread, so the files come in search order and are mapped as they are found
+                    new JsonFileWalker(1).walk(input, jsonFile -> {
+                        try {
+                            spillOne(mapper.mapFile(jsonFile.toFile()), position[0], runs);
+                        } catch (JsonFileMapper.MappingException mappingError) {
+                            diagnostics.add(mappingError.getDiagnostic());
+                        } catch (IOException io) {
+                            throw new UncheckedIOException(io);
+                        }
+                        position[0]++;
+                    });
+                } catch (UncheckedIOException io) {
+                    throw io.getCause();
+                }
+            }
+        } finally {
+            for (DataOutputStream eachRun : runs) {
+                if (eachRun != null) {
+                    eachRun.close();
+                }
+            }
+        }
+        return position[0];
+    }
+
+    //helper function to write an evaluation to the run file of its team's partition
+    private void spillOne(StudentEvaluation evaluation, int position, DataOutputStream[] runs) throws IOException {
+        String teamName = evaluation.getGroupName();
+        int partition = teamName == null ? 0 : Math.floorMod(teamName.hashCode(), partitions);
+        DataOutputStream run = runs[partition];
+
+        run.writeInt(position);
+        List<Group> feedbacks = evaluation.getGroup();
+        run.writeInt(feedbacks.size());
+        for (Group eachFeedback : feedbacks) {
+            writeString(run, eachFeedback.getName());
+            writeString(run, eachFeedback.getSfuEmail());
+            run.writeDouble(eachFeedback.getContribution().getScore());
+            writeString(run, eachFeedback.getContribution().getComment());
+        }
+        writeString(run, evaluation.getConfidentialComments());
+    }
+
+    //helper function for the second pass over one partition: group its evaluations, then check and render its
+    //teams unless a duplicate was found in this or an earlier partition
+    private void processPartition(Path workDirectory, int partition, List<PlacedDiagnostic> duplicates,
+                                  List<PlacedDiagnostic> teamErrors) throws IOException {
+        Path runFile = runFile(workDirectory, partition);
+        TeamGrouper grouper = new TeamGrouper();
+        Map<String, Integer> firstPositionOfTeam = new HashMap<>();
+
+        //the evaluations were written in search order, so the teams come out in the order of their first file
+        try (DataInputStream run = openRun(runFile)) {
+            SymbolTable symbols = new SymbolTable();
+            for (int position = readPosition(run); position >= 0; position = readPosition(run)) {
+                StudentEvaluation eachEva = readEvaluation(run, symbols);
+                firstPositionOfTeam.putIfAbsent(eachEva.getGroupName(), position);
+                if (grouper.add(eachEva) == false) {
+                    duplicates.add(new PlacedDiagnostic(position, new Diagnostic(Diagnostic.Kind.DUPLICATE_EVALUATION,
+                            eachEva.getStudentEmail(), "student evaluation duplicated for " + eachEva.getStudentEmail())));
+                }
+            }
+        }
+        Files.delete(runFile);
+        if (!duplicates.isEmpty()) {
+            return;
+        }
+
+        List<StudentGroup> teams = grouper.getTeams();
+        TeamValidator validator = new TeamValidator();
+        try (TeamForkJoin forkJoin = new TeamForkJoin(threads);
+             DataOutputStream rendered = new DataOutputStream(new BufferedOutputStream(
+                     Files.newOutputStream(renderedFile(workDirectory, partition)), RUN_BUFFER_SIZE))) {
+
+            List<List<Diagnostic>> errorsOfTeams = forkJoin.map(teams, validator::validateTeam);
+            for (int teamIndex = 0; teamIndex < teams.size(); teamIndex++) {
+                int position = firstPositionOfTeam.get(teams.get(teamIndex).getStudentGroupName());
+                for (Diagnostic eachError : errorsOfTeams.get(teamIndex)) {
+                    teamErrors.add(new PlacedDiagnostic(position, eachError));
+                }
+            }
+            if (!teamErrors.isEmpty()) {
+                return;
+            }
+
+            List<String> rows = forkJoin.map(teams, CsvFeedbackWriter::renderTeamRows);
+            for (int teamIndex = 0; teamIndex < teams.size(); teamIndex++) {
+                StudentGroup team = teams.get(teamIndex);
+                rendered.writeInt(firstPositionOfTeam.get(team.getStudentGroupName()));
+                rendered.writeInt(team.getGroupSize());
+                writeString(rendered, rows.get(teamIndex));
+            }
+        }
+    }
+
+    //helper function to merge the rendered teams of every partition by the position of their first file;
+    //each partition's teams are already in that order, so only the position of each partition's next team is
+    //held, and the rows of a team are only read once it is its turn
+    private void writeMerged(Path workDirectory, CsvFeedbackWriter csvWriter) throws IOException {
+        List<DataInputStream> inputs = new ArrayList<>(partitions);
+        try {
+            PriorityQueue<RenderedTeam> heads = new PriorityQueue<>(Comparator.comparingInt(team -> team.position));
+            for (int partition = 0; partition < partitions; partition++) {
+                DataInputStream input = openRun(renderedFile(workDirectory, partition));
+                inputs.add(input);
+                RenderedTeam head = readRenderedTeam(input);
+                if (head != null) {
+                    heads.add(head);
+                }
+            }
+
+            csvWriter.writeHeader();
+            long rows = 1;
+            int displayedGroupIndex = 0;
+            while (!heads.isEmpty()) {
+                RenderedTeam next = heads.poll();
+                displayedGroupIndex++;
+                csvWriter.writeGroup(displayedGroupIndex, readString(next.input));
+                rows += CsvFeedbackWriter.groupRowCount(next.size);
+
+                RenderedTeam following = readRenderedTeam(next.input);
+                if (following != null) {
+                    heads.add(following);
+                }
+            }
+            writtenRowCount = rows;
+        } finally {
+            for (DataInputStream eachInput : inputs) {
+                eachInput.close();
+            }
+        }
+    }
+
+    //helper function to read the position and size of the next rendered team of a partition, leaving its rows
+    //to be read next; null at the end
+    private static RenderedTeam readRenderedTeam(DataInputStream input) throws IOException {
+        int position = readPosition(input);
+        if (position < 0) {
+            return null;
+        }
+        int size = input.readInt();
+        return new RenderedTeam(position, size, input);
+    }
+
+    //helper function to read back an evaluation written by spillOne(); the partition's own table interns
+    //the names, emails and team #s repeated across its files, like StudentEvaluationAdapter does
+    private static StudentEvaluation readEvaluation(DataInputStream run, SymbolTable symbols) throws IOException {
+        int feedbackCount = run.readInt();
+        List<Group> feedbacks = new ArrayList<>(feedbackCount);
+        for (int feedbackIndex = 0; feedbackIndex < feedbackCount; feedbackIndex++) {
+            String name = symbols.intern(readString(run));
+            String sfuEmail = symbols.intern(readString(run));
+            double score = run.readDouble();
+            String comment = readString(run);
+            String groupName = feedbackIndex == 0 ? symbols.intern(Group.groupNameOf(sfuEmail)) : null;
+            feedbacks.add(new Group(name, sfuEmail, groupName, new Contribution(score, comment)));
+        }
+        return new StudentEvaluation(feedbacks, readString(run));
+    }
+
+    //helper function to read the position that starts every record; -1 at the end of the file
+    private static int readPosition(DataInputStream input) throws IOException {
+        try {
+            return input.readInt();
+        } catch (EOFException end) {
+            return -1;
+        }
+    }
+
+    //helper function to write a string as its UTF-8 length and bytes; writeUTF() is limited to 64 KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    //helper function to read a string written by writeString()
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //helper function to open a run file for reading
+    private static DataInputStream openRun(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), RUN_BUFFER_SIZE));
+    }
+
+    //helper function to name the run file of the evaluations of a partition
+    private static Path runFile(Path workDirectory, int partition) {
+        return workDirectory.resolve("partition-" + partition + ".run");
+    }
+
+    //helper function to name the run file of the rendered teams of a partition
+    private static Path renderedFile(Path workDirectory, int partition) {
+        return workDirectory.resolve("partition-" + partition + ".rows");
+    }
+
+    //helper function to delete the run files
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    //a problem and the position of the file it was found at, or of its team's first file
+    private static class PlacedDiagnostic {
+        private final int position;
+        private final Diagnostic diagnostic;
+
+        PlacedDiagnostic(int position, Diagnostic diagnostic) {
+            this.position = position;
+            this.diagnostic = diagnostic;
+        }
+    }
+
+    //a rendered team whose rows are next in its partition: the position of its first file, its size and the
+    //partition it is read from
+    private static class RenderedTeam {
+        private final int position;
+        private final int size;
+        private final DataInputStream input;
+
+        RenderedTeam(int position, int size, DataInputStream input) {
+            this.position = position;
+            this.size = size;
+            this.input = input;
+        }
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() +
+                "[Partitions:" + this.partitions +
+                ", Threads:" + this.threads + "]";
+    }
+}
@@ -0,0 +1,194 @@
+package ca.cmpt213.as2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A class that processes a cohort as a pipeline instead of one stage after the other: threads (int).
+ * A discovery thread lists the directories and hands every .json file to the parser threads; the calling thread
+ * takes the parsed files back in search order, groups them and writes each team's block as soon as the team is
+ * complete and valid (see TeamAssembler). Reading the disk, parsing and grouping overlap, and the queue between
+ * discovery and grouping is bounded, so discovery waits when grouping falls behind and at most
+ * FILES_IN_FLIGHT_PER_THREAD files per thread are read but not yet grouped.
+ * The csv is the same as the one of FeedbackPipeline and so are the diagnostics, except for an evaluation that
+ * arrives for a team that was already written (see TeamAssembler). Since blocks are written before the run is
+ * known to be successful, the caller writes to a temporary file and discards it if there are diagnostics.
+ * @author Bei Bei Li
+ */
+public class StreamingFeedbackPipeline implements CsvWritingPipeline {
+
+    //enough parsed files per thread to keep the parsers busy while the grouping thread waits for the next one
+    private static final int FILES_IN_FLIGHT_PER_THREAD = 64;
+
+    //put by the discovery thread after the last file
+    private static final ParsedFile END_OF_INPUT = new ParsedFile(null, null);
+
+    private final int threads;
+    private final PipelineMetrics metrics;
+
+    private int writtenTeamCount = 0;
+    private long writtenRowCount = 0;
+
+    /**
+     * Constructor that takes a parameter to instantiate the StreamingFeedbackPipeline class
+     * @param threads The number of parser threads; discovery and grouping each have a thread of their own
+     */
+    public StreamingFeedbackPipeline(int threads) {
+        this(threads, PipelineMetrics.disabled());
+    }
+
+    /**
+     * Constructor that takes parameters to instantiate the StreamingFeedbackPipeline class with metrics;
+     * the stages overlap, so the whole run is timed as one stage
+     * @param threads The number of parser threads; discovery and grouping each have a thread of their own
+     * @param metrics The PipelineMetrics every run records to
+     */
+    public StreamingFeedbackPipeline(int threads, PipelineMetrics metrics) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads has to be at least 1");
+        }
+        this.threads = threads;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Method to process all the .json files under the directory and write the csv while doing so.
+     * Like FeedbackPipeline, the problems of the first stage that fails are returned: unreadable or invalid
+     * files stop the grouping, and duplicated evaluations are reported instead of the problems of the teams.
+     * @param inputDirectory The directory that contains the .json files
+     * @param csvWriter The CsvFeedbackWriter to write to; it is not closed, and should be discarded
+     *                  if any diagnostic is returned
+     * @return A List<Diagnostic>, empty if the run was successful
+     * @throws IOException If the csv cannot be written or the thread is interrupted
+     */
+    @Override
+    public List<Diagnostic> process(Path inputDirectory, CsvFeedbackWriter csvWriter) throws IOException {
+        writtenTeamCount = 0;
+        writtenRowCount = 0;
+        long startNanos = metrics.startTimer();
+        JsonFileMapper mapper = new JsonFileMapper(threads, null, metrics);
+        TeamAssembler assembler = new TeamAssembler(csvWriter);
+        BlockingQueue<ParsedFile> parsedFiles = new ArrayBlockingQueue<>(threads * FILES_IN_FLIGHT_PER_THREAD);
+        ExecutorService parsers = Executors.newFixedThreadPool(threads);
+        Thread discovery = new Thread(() -> discover(inputDirectory, mapper, parsers, parsedFiles),
+                "feedback-discovery");
+        discovery.setDaemon(true);
+
+        int fileCount = 0;
+        try {
+            discovery.start();
+            csvWriter.writeHeader();
+
+            //futures are queued in search order, so taking them in turn puts the files back in that order
+            for (ParsedFile next = parsedFiles.take(); next != END_OF_INPUT; next = parsedFiles.take()) {
+                fileCount++;
+                StudentEvaluation evaluation = mapper.await(next.result, next.file.getAbsolutePath());
+                //once a file has failed the run stops after this stage, so the rest are only parsed
+                if (evaluation != null && mapper.hasErrors() == false) {
+                    assembler.add(evaluation);
+                }
+            }
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while processing " + inputDirectory);
+        } finally {
+            discovery.interrupt();
+            parsers.shutdownNow();
+        }
+
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        if (fileCount < 1) {
+            diagnostics.add(new Diagnostic(Diagnostic.Kind.NO_JSON_FILES, inputDirectory.toString(),
+                    "no .JSON file found in the given path"));
+        } else if (mapper.hasErrors()) {
+            diagnostics.addAll(mapper.getErrors());
+        } else {
+            assembler.finish();
+            writtenTeamCount = assembler.getWrittenTeamCount();
+            writtenRowCount = 1 + assembler.getWrittenRowCount();
+            diagnostics.addAll(assembler.getDiagnostics());
+            metrics.recordTeamsGrouped(writtenTeamCount);
+        }
+
+        metrics.recordStage(PipelineMetrics.STREAM, startNanos);
+        metrics.recordFilesDiscovered(fileCount);
+        metrics.recordDiagnostics(diagnostics.size());
+        return diagnostics;
+    }
+
+    /**
+     * Method to retrieve the number of csv rows written by the last call of process()
+     * @return The number of rows, including the header; 0 if the run failed before all the teams were written
+     */
+    @Override
+    public long getWrittenRowCount() {
+        return writtenRowCount;
+    }
+
+    /**
+     * Method to retrieve the number of group blocks written by the last call of process()
+     * @return The number of teams in the csv, 0 if the run failed before all the teams were written
+     */
+    public int getWrittenTeamCount() {
+        return writtenTeamCount;
+    }
+
+    //helper function run by the discovery thread: walks the tree in search order, submits each file to the
+    //parsers and queues its pending result; blocks while the queue is full
+    private static void discover(Path root, JsonFileMapper mapper, ExecutorService parsers,
+                                 BlockingQueue<ParsedFile> parsedFiles) {
+        try {
+            new JsonFileWalker(1).walk(root, discovered -> {
+                File jsonFile = discovered.toFile();
+                ParsedFile pending = new ParsedFile(jsonFile, parsers.submit(() -> mapper.mapFile(jsonFile)));
+                try {
+                    parsedFiles.put(pending);
+                } catch (InterruptedException interrupted) {
+                    throw new CancellationException("grouping stopped");
+                }
+            });
+            parsedFiles.put(END_OF_INPUT);
+        } catch (CancellationException | InterruptedException stopped) {
+            //the grouping thread is gone, so there is nobody to tell
+        } catch (RuntimeException failed) {
+            //report the failure as a file that could not be read instead of leaving the grouping thread waiting
+            try {
+                parsedFiles.put(new ParsedFile(root.toFile(), CompletableFuture.failedFuture(failed)));
+                parsedFiles.put(END_OF_INPUT);
+            } catch (InterruptedException stopped) {
+                //the grouping thread is gone as well
+            }
+        }
+    }
+
+    //a file handed to the parsers and its pending result
+    private static class ParsedFile {
+        private final File file;
+        private final Future<StudentEvaluation> result;
+
+        ParsedFile(File file, Future<StudentEvaluation> result) {
+            this.file = file;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() + "[Threads:" + this.threads + "]";
+    }
+}
@@ -2,6 +2,9 @@ package ca.cmpt213.as2;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 //An annotation that indicates this member should be exposed for JSON serialization or deserialization.
 import com.google.gson.annotations.Expose;
 //An annotation that indicates this member should be serialized or deserialized to JSON with the provided name value as its field name.
@@ -9,6 +12,8 @@ import com.google.gson.annotations.SerializedName;
 
 /**
  * A class that represents the student evaluations: group (List<Group>), confidentialComments (String).
+ * An evaluation either holds its feedbacks itself, as mapped from the file, or is a row of an EvaluationStore
+ * and reads them from there; the methods below behave the same for both.
  * @author Bei Bei Li
  */
 public class StudentEvaluation {
@@ -23,11 +28,50 @@ public class StudentEvaluation {
     @Expose
     private String confidentialComments;
 
+    //sfu email -> feedback, built on first lookup; transient so Gson never maps it
+    //the map is wrapped as unmodifiable, whose final field makes it safe to share between threads once built
+    private transient Map<String, Group> feedbackByEmail;
+
+    //the sfu emails of the feedbacks excluding self, built on first use
+    private transient List<String> targetStudents;
+
+    //the store and row this evaluation reads from; null unless it was added to an EvaluationStore
+    private transient EvaluationStore store;
+    private transient int row;
+
+    //used by Gson's reflective mapping
+    private StudentEvaluation() {
+    }
+
+    /**
+     * Constructor that takes parameters to instantiate the StudentEvaluation class
+     * @param group The feedbacks in the evaluation; the first one is the owner's feedback about themselves
+     * @param confidentialComments The confidential comment
+     */
+    StudentEvaluation(List<Group> group, String confidentialComments) {
+        this.group = group;
+        this.confidentialComments = confidentialComments;
+    }
+
+    /**
+     * Constructor that takes parameters to instantiate the StudentEvaluation class as a row of a store
+     * @param store The EvaluationStore that holds the evaluation
+     * @param row The row of the evaluation in the store
+     */
+    StudentEvaluation(EvaluationStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
     /**
      * Method to retrieve pointer to the list of feedbacks inside the evaluation
-     * @return The pointer reference to the group list (which contains the feedbacks)
+     * @return The pointer reference to the group list (which contains the feedbacks);
+     * an unmodifiable view if the evaluation is in a store
      */
     public List<Group> getGroup(){
+        if (store != null) {
+            return store.feedbacks(row);
+        }
         return group;
     }
 
@@ -36,6 +80,9 @@ public class StudentEvaluation {
      * @return The confidential comment (String)
      */
     public String getConfidentialComments(){
+        if (store != null) {
+            return store.confidentialComment(row);
+        }
         return confidentialComments;
     }
 
@@ -44,6 +91,9 @@ public class StudentEvaluation {
      * @return The number of feedbacks (Int)
      */
     public int getGroupSize(){
+        if (store != null) {
+            return store.feedbackCount(row);
+        }
         return this.group.size();
     }
 
@@ -52,6 +102,9 @@ public class StudentEvaluation {
      * @return The name of the evaluation owner (String)
      */
     public String getGroupName() {
+        if (store != null) {
+            return store.teamName(row);
+        }
         int studentSelf = 0;
         return this.group.get(0).getGroupName();
     }
@@ -62,20 +115,31 @@ public class StudentEvaluation {
      */
     public String getStudentEmail() {
         int studentSelf = 0;
+        if (store != null) {
+            return store.email(row, studentSelf);
+        }
         return this.group.get(0).getSfuEmail();
     }
 
     /**
      * Method to retrieve a list of student emails from the feedbacks in the evaluation excluding self
-     * @return A List<String> of sfu emails
+     * @return An unmodifiable List<String> of sfu emails
      */
     public List<String> getTargetStudents(){
-        List<String> TargetStudents = new ArrayList<>();
-        //check
-        for ( int otherStudents = 1; otherStudents < this.group.size(); otherStudents++) {
-            TargetStudents.add(group.get(otherStudents).getSfuEmail());
+        //a stored evaluation keeps nothing but its row, so it returns a view of the store
+        if (store != null) {
+            return store.targetEmails(row);
+        }
+        List<String> targets = this.targetStudents;
+        if (targets == null) {
+            List<String> TargetStudents = new ArrayList<>(getGroupSize());
+            for ( int otherStudents = 1; otherStudents < getGroupSize(); otherStudents++) {
+                TargetStudents.add(group.get(otherStudents).getSfuEmail());
+            }
+            targets = Collections.unmodifiableList(TargetStudents);
+            this.targetStudents = targets;
         }
-        return TargetStudents;
+        return targets;
     }
 
     /**
@@ -85,23 +149,10 @@ public class StudentEvaluation {
      * in the evaluation
      */
     public boolean isInTargetStudents(String checkIsIn){
-
-        boolean isIn = false;
-        List<String> TargetStudents = new ArrayList<>();
-
-        //get the feedback emails
-        for ( int otherStudents = 0; otherStudents < this.group.size(); otherStudents++) {
-            TargetStudents.add(group.get(otherStudents).getSfuEmail());
+        if (store != null) {
+            return store.hasFeedback(row, checkIsIn);
         }
-
-        //check
-        for (String others : TargetStudents){
-            if (checkIsIn.compareTo(others) == 0){
-                isIn = true;
-            }
-        }
-
-        return isIn;
+        return feedbackIndex().containsKey(checkIsIn);
     }
 
     /**
@@ -110,54 +161,48 @@ public class StudentEvaluation {
      * @return A boolean value to indicate if the sfu email given is the owner of the evaluation
      */
     public boolean isMySelf (String studentID) {
-        boolean isMe = false;
-        if (getStudentEmail().compareTo(studentID) == 0){
-            isMe = true;
-        }
-
-        return isMe;
-
+        return getStudentEmail().equals(studentID);
     }
 
     /**
-     * A method to check if the sum of score in the file is not (20 * number of group members), with a tolerance of 0.1.
-     * @return A boolean value to indicate if the sum of score in the file is not (20 * number of group members), with a tolerance of 0.1.
+     * A method to find the feedback by sfu email
+     * @param target The sfu email of the feedback wanted
+     * @return The feedback (Group) wanted; the last one if the email is listed twice, null if not found
      */
-    public boolean isSumScoreWithinRange() {
-
-        boolean isWithin = true;
-
-        int numberOfStudents = getGroupSize();
-        double maxPossibleSum = 20d * numberOfStudents;
-        double currentSum = 0d;
-
-        //Sum of scores in the file is not (20 * number of group members), with a tolerance of 0.1
-        for (Group eachFeedBack : this.group){
-            currentSum += eachFeedBack.getContribution().getScore();
-        }
-
-        if (!(Math.abs(currentSum - maxPossibleSum) < 0.1)){
-            isWithin = false;
-            System.out.println("ERROR: " + getStudentEmail() + "'s evaluation - " +
-                    "the sum of score in the file is not (20 * number of group members), with a tolerance of 0.1");
+    public Group findFeedbackById(String target){
+        if (store != null) {
+            return store.findFeedback(row, target);
         }
-
-        return isWithin;
+        return feedbackIndex().get(target);
     }
 
     /**
-     * A method to find the feedback by sfu email
-     * @param target The sfu email of the feedback wanted
-     * @return The feedback (Group) wanted
+     * A method to find the contribution of the feedback about the owner of another evaluation
+     * @param owner The evaluation whose owner the feedback is about
+     * @return The contribution wanted; the last one if the email is listed twice, null if not found
      */
-    public Group findFeedbackById(String target){
-        Group found = null;
-        for (Group eachFeedback : group){
-            if (eachFeedback.getSfuEmail().compareTo(target) == 0){
-                found = eachFeedback;
+    public Contribution findContributionAbout(StudentEvaluation owner){
+        //two rows of the same store compare email ids, and no feedback is built
+        if (store != null && owner.store == store) {
+            return store.findContribution(row, owner.row);
+        }
+        Group feedback = findFeedbackById(owner.getStudentEmail());
+        return feedback == null ? null : feedback.getContribution();
+    }
+
+    //helper function to retrieve the sfu email -> feedback index, building it on the first call
+    //later feedbacks overwrite earlier ones with the same email, same as the previous linear search
+    private Map<String, Group> feedbackIndex(){
+        Map<String, Group> index = this.feedbackByEmail;
+        if (index == null) {
+            Map<String, Group> built = new HashMap<>(this.group.size() * 2);
+            for (Group eachFeedback : this.group){
+                built.put(eachFeedback.getSfuEmail(), eachFeedback);
             }
+            index = Collections.unmodifiableMap(built);
+            this.feedbackByEmail = index;
         }
-        return found;
+        return index;
     }
 
     //helper function for toString()
@@ -176,8 +221,8 @@ public class StudentEvaluation {
     @Override
     public String toString(){
         return getClass().getName() +
-                "\n[Group:" + listToString(this.group) +
-                ", Confidential Comments:" + this.confidentialComments + "]";
+                "\n[Group:" + listToString(getGroup()) +
+                ", Confidential Comments:" + getConfidentialComments() + "]";
     }
 
 }
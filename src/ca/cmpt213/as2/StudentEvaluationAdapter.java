@@ -0,0 +1,262 @@
+package ca.cmpt213.as2;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class that reads and writes StudentEvaluation objects token by token, without Gson's reflective field binding.
+ * Required fields are checked while reading, so an evaluation that comes out of read() is complete:
+ * group (non-empty), and for each feedback name, sfu_email, contribution, score (not negative) and comment,
+ * then confidential_comments. Unknown fields are skipped.
+ * With a SymbolTable, names, emails and the owner's team # are interned as they are read, so the strings repeated
+ * across a cohort's files are kept once.
+ * Without reading text, the names and comments are only checked to be there and are skipped instead of being
+ * built into strings; the evaluations read that way are skeletons with empty text, which is enough to group and
+ * check the teams (see FeedbackPipeline.preScan()).
+ * @author Bei Bei Li
+ */
+public class StudentEvaluationAdapter extends TypeAdapter<StudentEvaluation> {
+
+    //null unless the strings read are interned
+    private final SymbolTable symbols;
+
+    //false if names and comments are only checked and skipped
+    private final boolean isReadingText;
+
+    /**
+     * Constructor to instantiate the StudentEvaluationAdapter class without interning
+     */
+    public StudentEvaluationAdapter() {
+        this(null);
+    }
+
+    /**
+     * Constructor that takes a parameter to instantiate the StudentEvaluationAdapter class
+     * @param symbols The SymbolTable the names, emails and team #s are interned in, or null to keep them as read
+     */
+    public StudentEvaluationAdapter(SymbolTable symbols) {
+        this(symbols, true);
+    }
+
+    /**
+     * Constructor that takes parameters to instantiate the StudentEvaluationAdapter class
+     * @param symbols The SymbolTable the names, emails and team #s are interned in, or null to keep them as read
+     * @param isReadingText True to read the names and comments, false to only check they are there
+     */
+    public StudentEvaluationAdapter(SymbolTable symbols, boolean isReadingText) {
+        this.symbols = symbols;
+        this.isReadingText = isReadingText;
+    }
+
+    /**
+     * Method to read one evaluation
+     * @param in The JsonReader positioned at the evaluation
+     * @return The StudentEvaluation, or null for a JSON null
+     * @throws IOException If the reader fails or the JSON is malformed
+     * @throws InvalidEvaluationException If a required field is missing, a score is negative or the owner's email has no team #
+     */
+    @Override
+    public StudentEvaluation read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        List<Group> group = null;
+        String confidentialComments = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (field.equals("group")) {
+                group = readGroup(in);
+            } else if (field.equals("confidential_comments")) {
+                confidentialComments = readText(in);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (group == null || group.isEmpty()) {
+            throw new InvalidEvaluationException("Missing required fields (group)");
+        }
+        if (confidentialComments == null) {
+            throw new InvalidEvaluationException("Missing required fields (confidential_comments) in " +
+                    group.get(0).getSfuEmail() + "'s evaluation");
+        }
+        return new StudentEvaluation(group, confidentialComments);
+    }
+
+    //helper function to read the list of feedbacks; null for a JSON null
+    private List<Group> readGroup(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<Group> group = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            //the first feedback is the owner's, whose team # the evaluation is grouped by
+            group.add(readFeedback(in, group.isEmpty()));
+        }
+        in.endArray();
+        return group;
+    }
+
+    //helper function to read one feedback and check its required fields
+    private Group readFeedback(JsonReader in, boolean isOwner) throws IOException {
+        String name = null;
+        String sfuEmail = null;
+        Contribution contribution = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (field.equals("name")) {
+                name = readText(in);
+            } else if (field.equals("sfu_email")) {
+                sfuEmail = readString(in);
+            } else if (field.equals("contribution")) {
+                contribution = readContribution(in, sfuEmail);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (sfuEmail == null) {
+            throw new InvalidEvaluationException("Missing required fields (sfu_email)");
+        }
+        if (name == null) {
+            throw new InvalidEvaluationException("Missing required fields (name) in the feedback for " + sfuEmail);
+        }
+        if (contribution == null) {
+            throw new InvalidEvaluationException("Missing required fields (contribution) in the feedback for " + sfuEmail);
+        }
+        //the evaluation is grouped by the team # in the owner's email, e.g. t1 in abc-t1-s1
+        String groupName = isOwner ? Group.groupNameOf(sfuEmail) : null;
+        if (isOwner && groupName == null) {
+            throw new InvalidEvaluationException("No team # in the sfu_email " + sfuEmail + " of the evaluation owner");
+        }
+        if (symbols == null) {
+            return new Group(name, sfuEmail, groupName, contribution);
+        }
+        groupName = isOwner ? symbols.intern(groupName) : null;
+        return new Group(symbols.intern(name), symbols.intern(sfuEmail), groupName, contribution);
+    }
+
+    //helper function to read a contribution and check its required fields; sfuEmail may still be null
+    //when contribution comes before sfu_email in the file, it is only used for the error message
+    private Contribution readContribution(JsonReader in, String sfuEmail) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        //same default as the reflective mapping, so a missing score is reported as negative
+        double score = -1;
+        String comment = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (field.equals("score")) {
+                score = readScore(in);
+            } else if (field.equals("comment")) {
+                comment = readText(in);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        String about = sfuEmail == null ? "a feedback" : "the feedback for " + sfuEmail;
+        if (score < 0) {
+            throw new InvalidEvaluationException("Negative score detected in " + about);
+        }
+        if (comment == null) {
+            throw new InvalidEvaluationException("Missing required fields (comment) in " + about);
+        }
+        return new Contribution(score, comment);
+    }
+
+    //helper function to read a name or comment; without reading text, a value that readString() accepts is
+    //skipped and read as an empty string, and any other value fails in readString() the same way
+    private String readText(JsonReader in) throws IOException {
+        if (isReadingText) {
+            return readString(in);
+        }
+        JsonToken token = in.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            in.skipValue();
+            return "";
+        }
+        return readString(in);
+    }
+
+    //helper function to read a score; a JSON null leaves the same default as a missing score
+    private double readScore(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return -1;
+        }
+        return in.nextDouble();
+    }
+
+    //helper function to read a string field; null for a JSON null
+    private String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Method to write one evaluation with the same field names it is read with
+     * @param out The JsonWriter to write to
+     * @param evaluation The StudentEvaluation to be written
+     * @throws IOException If the writer fails
+     */
+    @Override
+    public void write(JsonWriter out, StudentEvaluation evaluation) throws IOException {
+        if (evaluation == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("group").beginArray();
+        for (Group eachFeedback : evaluation.getGroup()) {
+            out.beginObject();
+            out.name("name").value(eachFeedback.getName());
+            out.name("sfu_email").value(eachFeedback.getSfuEmail());
+            out.name("contribution").beginObject();
+            out.name("score").value(eachFeedback.getContribution().getScore());
+            out.name("comment").value(eachFeedback.getContribution().getComment());
+            out.endObject();
+            out.endObject();
+        }
+        out.endArray();
+        out.name("confidential_comments").value(evaluation.getConfidentialComments());
+        out.endObject();
+    }
+
+    /**
+     * Exception thrown when an evaluation is missing a required field or has a negative score.
+     */
+    public static class InvalidEvaluationException extends JsonParseException {
+        private static final long serialVersionUID = 1L;
+
+        InvalidEvaluationException(String message) {
+            super(message);
+        }
+    }
+}
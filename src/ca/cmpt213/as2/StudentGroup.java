@@ -1,10 +1,14 @@
 package ca.cmpt213.as2;
 
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A class that represents the student groups: evaluations (List<StudentEvaluation>), studentGroupName (String).
@@ -22,6 +26,12 @@ public class StudentGroup implements Comparator<StudentEvaluation> {
     //the student evaluations inside a group
     private List<StudentEvaluation> evaluations = new ArrayList<>();
 
+    //the emails of the evaluation owners inside the group, for constant time membership checks
+    private Set<String> studentEmails = new HashSet<>();
+
+    //evaluations are appended unsorted; the ascending email order is restored once, when they are next read
+    private boolean isSorted = true;
+
     //the csv identifies groups by iterative numbers
     //but each student belongs to a team
     //this is the team number inside the student emails
@@ -61,10 +71,12 @@ public class StudentGroup implements Comparator<StudentEvaluation> {
     }
 
     /**
-     * Method to retrieve pointer to the list of evaluations inside the group
+     * Method to retrieve pointer to the list of evaluations inside the group, sorted by the owners' sfu emails;
+     * the list is sorted here if evaluations were added since it was last sorted
      * @return The pointer reference to the evaluations list (which contains the evaluations)
      */
     public List<StudentEvaluation> getEvaluations() {
+        sortEvaluations();
         return evaluations;
     }
 
@@ -74,114 +86,34 @@ public class StudentGroup implements Comparator<StudentEvaluation> {
      * @return A boolean value to indicate if the student is in the group
      */
     public boolean isStudentInGroup(StudentEvaluation studentEva) {
-        boolean isExist = false;
-        for (StudentEvaluation eachStudent : evaluations) {
-            if (studentEva.getStudentEmail().compareTo(eachStudent.getStudentEmail()) == 0) {
-                isExist = true;
-                break;
-            }
-        }
-        return isExist;
+        return studentEmails.contains(studentEva.getStudentEmail());
     }
 
     /**
-     * Method to add the a student evaluation to the group; sorts after each add
+     * Method to add the a student evaluation to the group; instead of sorting after each add, the group is sorted
+     * once by the next getEvaluations() or sortEvaluations()
      * @param studentEva The StudentEvaluation to be added
+     * @return A boolean value to indicate if the evaluation was added (false if the student is already in the group)
      */
-    public void addStudentEva(StudentEvaluation studentEva) {
-        boolean alreadyExist = isStudentInGroup(studentEva);
+    public boolean addStudentEva(StudentEvaluation studentEva) {
+        boolean isAdded = studentEmails.add(studentEva.getStudentEmail());
 
-        if (alreadyExist == false) {
+        if (isAdded == true) {
             this.evaluations.add(studentEva);
-            java.util.Collections.sort(evaluations, this);
-        }
-    }
-
-    //It is an error if any student in a group does not provide feedback about all other students in
-    //that group.
-    //check all students in a group submitted a feedback for others
-    /**
-     * Method to check if all evaluations contain feedbacks for all students inside a group
-     * @return A boolean value to indicate if all evaluations contain feedbacks
-     * for all students inside a group
-     */
-    public boolean hasAllEvaluation() {
-
-        boolean isInEachEva = true;
-
-        for (StudentEvaluation eachEva : evaluations) {
-
-            String iAmTheFeedBackTarget = eachEva.getStudentEmail();
-
-            for (StudentEvaluation comparedEva : evaluations) {
-
-                isInEachEva = comparedEva.isInTargetStudents(iAmTheFeedBackTarget);
-                if (isInEachEva == false) {
-                    System.out.println("ERROR: " + comparedEva.getStudentEmail() +
-                            " did not provide feedback for " + iAmTheFeedBackTarget);
-                    break;
-                }
-
-            }
-            if (isInEachEva == false) {
-                break;
-            }
+            isSorted = false;
         }
-
-        return isInEachEva;
-
+        return isAdded;
     }
 
-    //It is an error if any student who is mentioned in the feedback of another student in the
-    //group fails to submit a JSON feedback file.
-    //check a student provided feed back for all team members
     /**
-     * Method to check if all students who should be inside the group submitted their evaluations
-     * @return A boolean value to indicate if all students who should be inside the group
-     * submitted their evaluations
+     * Method to sort the evaluations inside the group by the owners' sfu emails (ascending order); teams that are
+     * read from several threads should be sorted before they are shared
      */
-    public boolean allEvaluationsReceived() {
-
-        boolean targetHasEvaluation = false;
-
-        if (evaluations.size() == 1) {
-
-            for (StudentEvaluation eachEva : evaluations) {
-                if (eachEva.getGroupSize() == 1) {
-                    targetHasEvaluation = true;
-                }
-            }
-        } else {
-
-            for (StudentEvaluation eachEva : evaluations) {
-
-                //get all the feedbacks inside an evaluation
-                List<String> teamMembers = eachEva.getTargetStudents();
-
-                //for each feeback target
-                for (String checkMember : teamMembers) {
-
-                    //check if they submitted their evaluation
-                    for (StudentEvaluation otherEva : evaluations) {
-
-                        if (otherEva.getStudentEmail().compareTo(eachEva.getStudentEmail()) != 0) {
-                            targetHasEvaluation = otherEva.isMySelf(checkMember);
-                            if (targetHasEvaluation == true) {
-                                break;
-                            }
-                        }
-                    }
-                    if (targetHasEvaluation == false) {
-                        System.out.println("ERROR: " + eachEva.getStudentEmail() + " in team " +
-                                studentGroupName + " mentioned " +
-                                checkMember + ", but " + checkMember + " did not provide an evaluation");
-                        break;
-                    }
-                }
-            }
+    public void sortEvaluations() {
+        if (isSorted == false) {
+            Collections.sort(evaluations, this);
+            isSorted = true;
         }
-
-        return targetHasEvaluation;
     }
 
     /**
@@ -189,68 +121,12 @@ public class StudentGroup implements Comparator<StudentEvaluation> {
      * @param printer The PrintWriter object to produce output
      */
     public void printGroup(PrintWriter printer) {
-
-        //for each student A inside the group
-        for (StudentEvaluation evaA : evaluations) {
-
-            String targetStudent = evaA.getStudentEmail();
-            String sourceStudent = null;
-            Double feedbackScore = 0d;
-            String feedbackComment = null;
-            Double studentTotal = 0d;
-
-            //go to other students BCD's evaluation to get student A's feedbacks
-            for (StudentEvaluation evaBCD : evaluations) {
-
-                //leave student A's own feedback for last
-                if (evaBCD.getStudentEmail() == targetStudent) {
-                    continue;
-                } else {
-                    sourceStudent = evaBCD.getStudentEmail();
-
-                    feedbackScore = evaBCD.findFeedbackById(targetStudent).getContribution().getScore();
-                    studentTotal += feedbackScore;
-
-                    feedbackComment = changeQuote(evaBCD.findFeedbackById(targetStudent).getContribution().getComment());
-
-                    printer.printf(",%s,%s,%.1f,%s,,%n", sourceStudent, targetStudent, feedbackScore, feedbackComment);
-                }
-
-            }
-
-            //now print student A's own feedback
-            sourceStudent = "-->";
-            feedbackScore = evaA.getGroup().get(0).getContribution().getScore();
-            feedbackComment = changeQuote(evaA.getGroup().get(0).getContribution().getComment());
-            printer.printf(",%s,%s,%.1f,%s%n", sourceStudent, targetStudent, feedbackScore, feedbackComment);
-
-            //print student A's average score excluding self and confidential comment
-            String confComment = changeQuote(evaA.getConfidentialComments());
-
-            int numberOfStudentsExcludingSelf = evaluations.size() - 1;
-
-            //if only one student in group, no average score from other students
-            if ((numberOfStudentsExcludingSelf) == 0) {
-                printer.printf(",-->,%s,avg NaN /0,,,%s%n", targetStudent, confComment); //TAT I hate linefeeds
-            } else {
-                double scoreAverage = studentTotal / numberOfStudentsExcludingSelf;
-                double maxScoreCanBeReceived = 20d;
-                double maxPossibleAvgScore = maxScoreCanBeReceived * numberOfStudentsExcludingSelf;
-
-                printer.printf(",-->,%s,avg %.1f /%d,,,%s%n", targetStudent, scoreAverage, numberOfStudentsExcludingSelf, confComment);
-
-
-            }
-
+        try {
+            new CsvFeedbackWriter(printer).writeTeamRows(this);
+        } catch (IOException io) {
+            //PrintWriter never throws, it records errors for checkError()
+            throw new UncheckedIOException(io);
         }
-
-    }
-
-    //helper function to change double quote in student comments to single quote
-    //return the changed string
-    private String changeQuote(String changeString) {
-        String result = changeString.replace("\\n", "%n");
-        return "\"" + result.replace("\"", "\'") + "\"";
     }
 
     //helper function for toString()
@@ -0,0 +1,52 @@
+package ca.cmpt213.as2;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A class that canonicalizes the strings that repeat across .json files: symbols (Map<String, String>).
+ * Every student's email and name appear in their own file and again in each teammate's file, so interning them
+ * while parsing keeps one String per student instead of one per mention, and equal symbols are the same instance.
+ * The table is shared by the threads that parse the files of one run.
+ * @author Bei Bei Li
+ */
+public class SymbolTable {
+
+    private final ConcurrentHashMap<String, String> symbols = new ConcurrentHashMap<>();
+
+    /**
+     * Method to retrieve the canonical instance of a string, adding it the first time it is seen
+     * @param symbol The string read from a file; may be null
+     * @return The canonical String equal to symbol, or null if symbol is null
+     */
+    public String intern(String symbol) {
+        if (symbol == null) {
+            return null;
+        }
+        //most symbols are already in the table, and a plain lookup does not lock
+        String canonical = symbols.get(symbol);
+        if (canonical == null) {
+            canonical = symbols.putIfAbsent(symbol, symbol);
+            if (canonical == null) {
+                canonical = symbol;
+            }
+        }
+        return canonical;
+    }
+
+    /**
+     * Method to retrieve the number of distinct symbols seen
+     * @return The number of symbols in the table
+     */
+    public int size() {
+        return symbols.size();
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() + "[Symbols:" + this.symbols.size() + "]";
+    }
+}
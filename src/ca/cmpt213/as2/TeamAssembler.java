@@ -0,0 +1,246 @@
+package ca.cmpt213.as2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A class that groups student evaluations into teams as they arrive and writes each team's csv block as soon as
+ * the team is complete and valid: csvWriter (CsvFeedbackWriter), teamsInOrder (List<AssembledTeam>).
+ * A team is complete when everyone mentioned in its evaluations has sent an evaluation; it is then checked, and
+ * once written only the emails of its members are kept. Blocks are written in the order the teams are first seen,
+ * so a finished team waits (as rendered rows) until every team before it is written, and the csv is the same as
+ * the one of FeedbackPipeline.
+ * A team that is not complete or not valid stays in memory and is checked by finish(). An evaluation that arrives
+ * for a team that was already written can only make the run fail: it is either a duplicate, or nobody in the team
+ * mentioned its owner. The written members are reported as missing that feedback; the newcomer's own evaluation is
+ * not checked further.
+ * @author Bei Bei Li
+ */
+public class TeamAssembler {
+
+    private final CsvFeedbackWriter csvWriter;
+    private final TeamValidator validator = new TeamValidator();
+
+    private final Map<String, AssembledTeam> teamsByName = new HashMap<>();
+    private final List<AssembledTeam> teamsInOrder = new ArrayList<>();
+
+    //index of the next team to be written; every team before it is in the csv
+    private int nextToWrite = 0;
+
+    //rows of the group blocks written so far
+    private long writtenRowCount = 0;
+
+    private final List<Diagnostic> duplicates = new ArrayList<>();
+
+    //the problems of each team, by team index, so they are reported in team order
+    private final Map<Integer, List<Diagnostic>> teamErrors = new TreeMap<>();
+
+    /**
+     * Constructor that takes a parameter to instantiate the TeamAssembler class
+     * @param csvWriter The CsvFeedbackWriter the group blocks are written to; its header is written by the caller
+     */
+    public TeamAssembler(CsvFeedbackWriter csvWriter) {
+        this.csvWriter = csvWriter;
+    }
+
+    /**
+     * Method to add a student evaluation to its team, writing the team (and any finished teams after it)
+     * if the evaluation completes it
+     * @param studentEva The StudentEvaluation to be added
+     * @throws IOException If the csv cannot be written
+     */
+    public void add(StudentEvaluation studentEva) throws IOException {
+        String teamName = studentEva.getGroupName();
+
+        AssembledTeam team = teamsByName.get(teamName);
+        if (team == null) {
+            team = new AssembledTeam(teamsInOrder.size(), teamName);
+            teamsByName.put(teamName, team);
+            teamsInOrder.add(team);
+        }
+
+        String owner = studentEva.getStudentEmail();
+        if (team.memberEmails.add(owner) == false) {
+            duplicates.add(new Diagnostic(Diagnostic.Kind.DUPLICATE_EVALUATION, owner,
+                    "student evaluation duplicated for " + owner));
+            return;
+        }
+        if (team.group == null) {
+            addLate(team, owner);
+            return;
+        }
+
+        team.group.addStudentEva(studentEva);
+        team.awaited.remove(owner);
+        for (String eachTarget : studentEva.getTargetStudents()) {
+            if (!team.memberEmails.contains(eachTarget)) {
+                team.awaited.add(eachTarget);
+            }
+        }
+
+        //a complete team that is not valid cannot become valid, so it waits for finish() to report it
+        if (team.awaited.isEmpty()) {
+            team.group.sortEvaluations();
+            if (validator.validateTeam(team.group).isEmpty()) {
+                release(team);
+            }
+        }
+    }
+
+    /**
+     * Method to check the teams that are still in memory once every evaluation is added, and write them
+     * if the run is successful
+     * @throws IOException If the csv cannot be written
+     */
+    public void finish() throws IOException {
+        for (AssembledTeam eachTeam : teamsInOrder) {
+            if (eachTeam.group == null) {
+                continue;
+            }
+            eachTeam.group.sortEvaluations();
+            List<Diagnostic> errors = validator.validateTeam(eachTeam.group);
+            if (errors.isEmpty()) {
+                release(eachTeam);
+            } else {
+                teamErrors.computeIfAbsent(eachTeam.index, index -> new ArrayList<>()).addAll(errors);
+            }
+        }
+    }
+
+    /**
+     * Method to retrieve the problems found; like FeedbackPipeline, duplicated evaluations are reported
+     * instead of the problems of the teams
+     * @return A List<Diagnostic>, empty if every team was written
+     */
+    public List<Diagnostic> getDiagnostics() {
+        if (!duplicates.isEmpty()) {
+            return Collections.unmodifiableList(duplicates);
+        }
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        for (List<Diagnostic> eachTeamErrors : teamErrors.values()) {
+            diagnostics.addAll(eachTeamErrors);
+        }
+        return diagnostics;
+    }
+
+    /**
+     * Method to retrieve the number of group blocks written so far
+     * @return The number of teams in the csv
+     */
+    public int getWrittenTeamCount() {
+        return nextToWrite;
+    }
+
+    /**
+     * Method to retrieve the number of csv rows of the group blocks written so far
+     * @return The number of rows, without the header
+     */
+    public long getWrittenRowCount() {
+        return writtenRowCount;
+    }
+
+    /**
+     * Method to retrieve the number of teams whose evaluations are still in memory
+     * @return The number of teams that are not complete or not valid yet
+     */
+    public int getPendingTeamCount() {
+        int pending = 0;
+        for (AssembledTeam eachTeam : teamsInOrder) {
+            if (eachTeam.group != null) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    //helper function to report an evaluation for a team that was already released: it was complete without
+    //the owner, so none of its members gave the owner a feedback
+    private void addLate(AssembledTeam team, String owner) {
+        List<Diagnostic> errors = teamErrors.computeIfAbsent(team.index, index -> new ArrayList<>());
+        for (String eachMember : team.releasedMembers) {
+            errors.add(TeamValidator.missingFeedback(team.name, eachMember, owner));
+        }
+    }
+
+    //helper function to mark a valid team as finished and write every finished team that is next in line;
+    //a team that has to wait keeps its rendered rows instead of its evaluations
+    private void release(AssembledTeam team) throws IOException {
+        team.isFinished = true;
+        team.releasedMembers = new ArrayList<>(team.group.getGroupSize());
+        for (StudentEvaluation eachEva : team.group.getEvaluations()) {
+            team.releasedMembers.add(eachEva.getStudentEmail());
+        }
+
+        if (hasProblems() == false) {
+            if (team.index == nextToWrite) {
+                writeFinishedTeams();
+            } else {
+                team.rows = CsvFeedbackWriter.renderTeamRows(team.group);
+            }
+        }
+        team.group = null;
+        team.awaited = null;
+    }
+
+    //helper function to write the finished teams at the head of the line, in team order
+    private void writeFinishedTeams() throws IOException {
+        while (nextToWrite < teamsInOrder.size() && teamsInOrder.get(nextToWrite).isFinished) {
+            AssembledTeam team = teamsInOrder.get(nextToWrite);
+            int displayedGroupIndex = nextToWrite + 1;
+            writtenRowCount += CsvFeedbackWriter.groupRowCount(team.releasedMembers.size());
+            if (team.rows != null) {
+                csvWriter.writeGroup(displayedGroupIndex, team.rows);
+                team.rows = null;
+            } else {
+                csvWriter.writeGroup(displayedGroupIndex, team.group);
+            }
+            nextToWrite++;
+        }
+    }
+
+    //helper function to check if the run has already failed; the csv is then discarded, so nothing more is written
+    private boolean hasProblems() {
+        return !duplicates.isEmpty() || !teamErrors.isEmpty();
+    }
+
+    //a team being assembled: its evaluations until it is finished, then only what is needed to write it in order
+    //and to report evaluations that arrive too late
+    private static class AssembledTeam {
+        private final int index;
+        private final String name;
+        private final Set<String> memberEmails = new HashSet<>();
+
+        //emails mentioned in the team's evaluations that have not sent one yet; null once released
+        private Set<String> awaited = new HashSet<>();
+        private StudentGroup group;
+
+        private boolean isFinished = false;
+        private String rows = null;
+        private List<String> releasedMembers = null;
+
+        AssembledTeam(int index, String name) {
+            this.index = index;
+            this.name = name;
+            this.group = new StudentGroup(name);
+        }
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() +
+                "[Teams:" + this.teamsInOrder.size() +
+                ", Written:" + this.nextToWrite +
+                ", Duplicates:" + this.duplicates.size() + "]";
+    }
+}
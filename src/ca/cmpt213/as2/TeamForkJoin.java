@@ -0,0 +1,132 @@
+package ca.cmpt213.as2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * A class that runs a task on every team of a list on a fork/join pool and returns the results in the order
+ * of the teams: parallelism (int). Teams are independent once they are grouped, so validating or rendering
+ * them in parallel gives the same results as doing it one team at a time.
+ * The pool is kept until close() is called, so it can be reused for several lists.
+ * @author Bei Bei Li
+ */
+public class TeamForkJoin implements AutoCloseable {
+
+    //ranges are split into about this many leaves per worker thread, which balances the load
+    //without paying for a task per team of 4 students
+    private static final int LEAVES_PER_THREAD = 8;
+
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor that takes a parameter to instantiate the TeamForkJoin class
+     * @param parallelism The number of worker threads; 1 runs the tasks on the calling thread
+     */
+    public TeamForkJoin(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism has to be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    /**
+     * Method to run the task on teams [from, to) of the list
+     * @param teams The teams
+     * @param from The index of the first team
+     * @param to The index after the last team
+     * @param task The task; it must not change anything shared between teams
+     * @return A List of the results, where result i belongs to team from + i
+     */
+    public <R> List<R> map(List<StudentGroup> teams, int from, int to, Function<StudentGroup, R> task) {
+        Object[] results = new Object[to - from];
+
+        if (pool == null || to - from <= 1) {
+            for (int teamIndex = from; teamIndex < to; teamIndex++) {
+                results[teamIndex - from] = task.apply(teams.get(teamIndex));
+            }
+        } else {
+            int leafSize = Math.max(1, (to - from) / (parallelism * LEAVES_PER_THREAD));
+            pool.invoke(new TeamRange<>(teams, from, from, to, leafSize, task, results));
+        }
+
+        List<R> ordered = new ArrayList<>(results.length);
+        for (Object eachResult : results) {
+            @SuppressWarnings("unchecked")
+            R result = (R) eachResult;
+            ordered.add(result);
+        }
+        return ordered;
+    }
+
+    /**
+     * Method to run the task on every team of the list
+     * @param teams The teams
+     * @param task The task; it must not change anything shared between teams
+     * @return A List of the results, in the order of the teams
+     */
+    public <R> List<R> map(List<StudentGroup> teams, Function<StudentGroup, R> task) {
+        return map(teams, 0, teams.size(), task);
+    }
+
+    /**
+     * Method to stop the worker threads
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    //runs the task on a range of teams, splitting it in halves until it is small enough
+    private static class TeamRange<R> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<StudentGroup> teams;
+        private final int offset;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final Function<StudentGroup, R> task;
+        private final Object[] results;
+
+        TeamRange(List<StudentGroup> teams, int offset, int from, int to, int leafSize,
+                  Function<StudentGroup, R> task, Object[] results) {
+            this.teams = teams;
+            this.offset = offset;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.task = task;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                for (int teamIndex = from; teamIndex < to; teamIndex++) {
+                    //each leaf writes its own slots, and invoke() makes them visible to the caller
+                    results[teamIndex - offset] = task.apply(teams.get(teamIndex));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TeamRange<>(teams, offset, from, middle, leafSize, task, results),
+                    new TeamRange<>(teams, offset, middle, to, leafSize, task, results));
+        }
+    }
+
+    /**
+     * Method to override the default toString() to display information for debugging and logging purpose.
+     * @return A string displaying the class info
+     */
+    @Override
+    public String toString() {
+        return getClass().getName() + "[Parallelism:" + this.parallelism + "]";
+    }
+}
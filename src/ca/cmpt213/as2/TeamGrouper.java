@@ -0,0 +1,64 @@
+package ca.cmpt213.as2;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class that groups student evaluations into teams: teamsByName (Map<String, StudentGroup>).
+ * Teams are looked up by name in a hash map and students by email inside each StudentGroup,
+ * so grouping n evaluations takes O(n) plus one sort per team.
+ * Teams keep the order in which they are first seen, which is the order of the csv groups.
+ * @author Bei Bei Li
+ */
+public class TeamGrouper {
+
+    private final Map<String, StudentGroup> teamsByName = new LinkedHashMap<>();
+
+    /**
+     * Method to add a student evaluation to its team, creating the team the first time it is seen
+     * @param studentEva The StudentEvaluation to be added
+     * @return A boolean value to indicate if the evaluation was added (false if it is a duplicate)
+     */
+    public boolean add(StudentEvaluation studentEva) {
+        String teamName = studentEva.getGroupName();
+
+        StudentGroup team = teamsByName.get(teamName);
+        if (team == null) {
+            team = new StudentGroup(teamName);
+            teamsByName.put(teamName, team);
+        }
+        return team.addStudentEva(studentEva);
+    }
+
+    /**
+     * Method to retrieve the team with the given name
+     * @param teamName The team # extracted from student emails
+     * @return The StudentGroup, or null if no evaluation of that team was added
+     */
+    public StudentGroup getTeam(String teamName) {
+        return teamsByName.get(teamName);
+    }
+
+    /**
+     * Method to retrieve the number of teams found so far
+     * @return The number of teams
+     */
+    public int getTeamCount() {
+        return teamsByName.size();
+    }
+
+    /**
+     * Method to retrieve the teams in the order they were first seen; each team is sorted once here
+     * @return A List<StudentGroup> of all teams
+     */
+    public List<StudentGroup> getTeams() {
+        List<StudentGroup> teams = new ArrayList<>(teamsByName.size());
+        for (StudentGroup eachTeam : teamsByName.values()) {
+            eachTeam.sortEvaluations();
+            teams.add(eachTeam);
+        }
+        return teams;
+    }
+}
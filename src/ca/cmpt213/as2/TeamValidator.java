@@ -0,0 +1,148 @@
+package ca.cmpt213.as2;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class that checks the teams in one pass over each team's feedbacks: errors (List<Diagnostic>).
+ * Every member gets an integer id (its index in the sorted team), and each member keeps a BitSet of the
+ * members that gave it feedback, so completeness and mutual coverage take O(m * m) per team of m students.
+ * The score sums are added up in the same pass. Every violation is reported, not only the first one:
+ * - a student did not provide feedback for another member of the team
+ * - a student mentioned someone who did not provide an evaluation in the team (or mentioned themselves)
+ * - the sum of scores in an evaluation is not (20 * number of group members), with a tolerance of 0.1
+ * @author Bei Bei Li
+ */
+public class TeamValidator {
+
+    private static final double SCORE_PER_STUDENT = 20d;
+    private static final double SCORE_SUM_TOLERANCE = 0.1;
+
+    private final List<Diagnostic> errors = new ArrayList<>();
+
+    /**
+     * Method to check all the teams, keeping the violations of every team
+     * @param teams The teams to be checked
+     * @return A boolean value to indicate if all teams are valid
+     */
+    public boolean validate(List<StudentGroup> teams) {
+        boolean isValid = true;
+        for (StudentGroup eachTeam : teams) {
+            List<Diagnostic> teamErrors = validateTeam(eachTeam);
+            if (!teamErrors.isEmpty()) {
+                errors.addAll(teamErrors);
+                isValid = false;
+            }
+        }
+        return isValid;
+    }
+
+    /**
+     * Method to check one team; the team is not changed, so teams can be checked on different threads
+     * @param team The team to be checked, with its evaluations sorted
+     * @return The diagnostics of the team in the order of the checks above, empty if the team is valid
+     */
+    public List<Diagnostic> validateTeam(StudentGroup team) {
+        List<StudentEvaluation> evaluations = team.getEvaluations();
+        int teamSize = evaluations.size();
+        String teamName = team.getStudentGroupName();
+
+        Map<String, Integer> memberIds = new HashMap<>(teamSize * 2);
+        for (int memberId = 0; memberId < teamSize; memberId++) {
+            memberIds.put(evaluations.get(memberId).getStudentEmail(), memberId);
+        }
+
+        //feedbackFrom[target] has bit source set when source gave target a feedback
+        BitSet[] feedbackFrom = new BitSet[teamSize];
+        for (int memberId = 0; memberId < teamSize; memberId++) {
+            feedbackFrom[memberId] = new BitSet(teamSize);
+        }
+
+        List<Diagnostic> missingEvaluations = new ArrayList<>();
+        List<Diagnostic> wrongScoreSums = new ArrayList<>();
+
+        for (int sourceId = 0; sourceId < teamSize; sourceId++) {
+            StudentEvaluation eachEva = evaluations.get(sourceId);
+            List<Group> feedbacks = eachEva.getGroup();
+            double scoreSum = 0d;
+
+            for (int feedbackIndex = 0; feedbackIndex < feedbacks.size(); feedbackIndex++) {
+                Group eachFeedback = feedbacks.get(feedbackIndex);
+                scoreSum += eachFeedback.getContribution().getScore();
+
+                Integer targetId = memberIds.get(eachFeedback.getSfuEmail());
+                if (targetId != null) {
+                    feedbackFrom[targetId].set(sourceId);
+                }
+
+                //the first feedback is the owner's own, the others have to be other members of the team
+                if (feedbackIndex > 0 && (targetId == null || targetId == sourceId)) {
+                    String mentioned = eachFeedback.getSfuEmail();
+                    missingEvaluations.add(new Diagnostic(Diagnostic.Kind.MISSING_EVALUATION, teamName,
+                            eachEva.getStudentEmail() + " in team " + teamName + " mentioned " + mentioned +
+                            ", but " + mentioned + " did not provide an evaluation"));
+                }
+            }
+
+            double expectedSum = SCORE_PER_STUDENT * feedbacks.size();
+            if (!(Math.abs(scoreSum - expectedSum) < SCORE_SUM_TOLERANCE)) {
+                wrongScoreSums.add(new Diagnostic(Diagnostic.Kind.SCORE_SUM, teamName,
+                        eachEva.getStudentEmail() + "'s evaluation in team " + teamName + " - the sum of score " +
+                        "in the file is not (20 * number of group members), with a tolerance of 0.1"));
+            }
+        }
+
+        List<Diagnostic> missingFeedbacks = new ArrayList<>();
+        for (int targetId = 0; targetId < teamSize; targetId++) {
+            BitSet received = feedbackFrom[targetId];
+            for (int sourceId = received.nextClearBit(0); sourceId < teamSize;
+                 sourceId = received.nextClearBit(sourceId + 1)) {
+                missingFeedbacks.add(missingFeedback(teamName, evaluations.get(sourceId).getStudentEmail(),
+                        evaluations.get(targetId).getStudentEmail()));
+            }
+        }
+
+        if (missingFeedbacks.isEmpty() && missingEvaluations.isEmpty() && wrongScoreSums.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Diagnostic> teamErrors = new ArrayList<>(
+                missingFeedbacks.size() + missingEvaluations.size() + wrongScoreSums.size());
+        teamErrors.addAll(missingFeedbacks);
+        teamErrors.addAll(missingEvaluations);
+        teamErrors.addAll(wrongScoreSums);
+        return teamErrors;
+    }
+
+    /**
+     * Method to create the diagnostic of a member who did not give another member a feedback
+     * @param teamName The team # extracted from student emails
+     * @param source The sfu email of the member who left the feedback out
+     * @param target The sfu email of the member who did not get the feedback
+     * @return The Diagnostic, worded like the ones of validateTeam()
+     */
+    static Diagnostic missingFeedback(String teamName, String source, String target) {
+        return new Diagnostic(Diagnostic.Kind.MISSING_FEEDBACK, teamName,
+                source + " in team " + teamName + " did not provide feedback for " + target);
+    }
+
+    /**
+     * Method to retrieve the diagnostics of the teams checked so far
+     * @return An unmodifiable List<Diagnostic>
+     */
+    public List<Diagnostic> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Method to check if any team checked so far is invalid
+     * @return A boolean value to indicate if there are errors
+     */
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
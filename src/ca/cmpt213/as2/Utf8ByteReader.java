@@ -0,0 +1,148 @@
+package ca.cmpt213.as2;
+
+import java.io.Reader;
+
+/**
+ * A Reader that decodes UTF-8 straight from a byte array into the caller's char buffer: bytes (byte[]).
+ * It replaces an InputStreamReader over the bytes, which would decode into its own buffer first and copy from
+ * there. Malformed sequences become U+FFFD, like the default decoder does.
+ * The array is not copied, so it must not change while the reader is in use.
+ * @author Bei Bei Li
+ */
+public class Utf8ByteReader extends Reader {
+
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final byte[] bytes;
+    private int position;
+    private final int end;
+
+    //the second half of a 4 byte sequence that did not fit in the caller's buffer
+    private char pendingLowSurrogate = 0;
+
+    /**
+     * Constructor that takes parameters to instantiate the Utf8ByteReader class
+     * @param bytes The array holding the UTF-8 bytes
+     * @param offset The index of the first byte
+     * @param length The number of bytes
+     */
+    public Utf8ByteReader(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    /**
+     * Method to decode up to length chars into the buffer
+     * @param buffer The destination buffer
+     * @param offset The index of the first char to write
+     * @param length The maximum number of chars to write
+     * @return The number of chars written, or -1 at the end of the bytes
+     */
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int written = 0;
+        if (pendingLowSurrogate != 0) {
+            buffer[offset + written++] = pendingLowSurrogate;
+            pendingLowSurrogate = 0;
+        }
+
+        while (written < length && position < end) {
+            int first = bytes[position];
+
+            //ASCII is by far the most common case in the feedback files
+            if (first >= 0) {
+                buffer[offset + written++] = (char) first;
+                position++;
+                continue;
+            }
+
+            int codePoint = decodeMultiByte(first & 0xFF);
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                buffer[offset + written++] = (char) codePoint;
+            } else {
+                buffer[offset + written++] = Character.highSurrogate(codePoint);
+                if (written < length) {
+                    buffer[offset + written++] = Character.lowSurrogate(codePoint);
+                } else {
+                    pendingLowSurrogate = Character.lowSurrogate(codePoint);
+                }
+            }
+        }
+
+        return written == 0 ? -1 : written;
+    }
+
+    //helper function to decode the sequence starting at position (its first byte is given); moves position past it.
+    //Like the JDK decoder, each maximal invalid prefix becomes one U+FFFD, so both decode a file to the same text
+    private int decodeMultiByte(int first) {
+        int continuationBytes;
+        int codePoint;
+        //the second byte has a narrower range after some first bytes, which rules out overlong forms
+        //and code points above U+10FFFF
+        int secondMin = 0x80;
+        int secondMax = 0xBF;
+        if (first >= 0xC2 && first <= 0xDF) {
+            continuationBytes = 1;
+            codePoint = first & 0x1F;
+        } else if (first >= 0xE0 && first <= 0xEF) {
+            continuationBytes = 2;
+            codePoint = first & 0x0F;
+            if (first == 0xE0) {
+                secondMin = 0xA0;
+            }
+        } else if (first >= 0xF0 && first <= 0xF4) {
+            continuationBytes = 3;
+            codePoint = first & 0x07;
+            if (first == 0xF0) {
+                secondMin = 0x90;
+            } else if (first == 0xF4) {
+                secondMax = 0x8F;
+            }
+        } else {
+            //a stray continuation byte or a byte that never starts a sequence
+            position++;
+            return REPLACEMENT;
+        }
+
+        int next = position + 1;
+        for (int index = 0; index < continuationBytes; index++, next++) {
+            int continuation = next < end ? bytes[next] & 0xFF : -1;
+            int min = index == 0 ? secondMin : 0x80;
+            int max = index == 0 ? secondMax : 0xBF;
+            if (continuation < min || continuation > max) {
+                //truncated sequence: replace what was read and resume at the byte that broke it
+                position = next;
+                return REPLACEMENT;
+            }
+            codePoint = (codePoint << 6) | (continuation & 0x3F);
+        }
+        position = next;
+
+        //an encoded surrogate is a whole sequence of its own, so it is replaced once
+        if (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) {
+            return REPLACEMENT;
+        }
+        return codePoint;
+    }
+
+    /**
+     * Method to check if read() would return without blocking; it never blocks
+     * @return A boolean value to indicate if any char is left
+     */
+    @Override
+    public boolean ready() {
+        return pendingLowSurrogate != 0 || position < end;
+    }
+
+    /**
+     * Method to close the reader; there is nothing to release
+     */
+    @Override
+    public void close() {
+        //the byte array belongs to the caller
+    }
+}